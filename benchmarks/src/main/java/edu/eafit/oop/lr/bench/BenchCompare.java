@@ -0,0 +1,99 @@
+package edu.eafit.oop.lr.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written with {@code -rf csv} (e.g. the previous release
+ * and the current build) and prints, per benchmark and parameter set, both scores and
+ * the slowdown. Exits with status 1 when any benchmark got slower than the threshold, so
+ * it can gate a release script.
+ *
+ * Usage: BenchCompare <baseline.csv> <candidate.csv> [threshold, default 0.10]
+ */
+public final class BenchCompare {
+
+    private BenchCompare() {}
+
+    static final class Result {
+        final String mode, unit;
+        final double score;
+        Result(String mode, double score, String unit) {
+            this.mode = mode; this.score = score; this.unit = unit;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchCompare <baseline.csv> <candidate.csv> [threshold]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        Map<String,Result> base = read(Paths.get(args[0])), cand = read(Paths.get(args[1]));
+        int regressions = 0;
+        System.out.printf(Locale.US, "%-70s %14s %14s %9s%n", "benchmark", "baseline", "candidate", "change");
+        for (Map.Entry<String,Result> e : cand.entrySet()) {
+            Result b = base.get(e.getKey()), c = e.getValue();
+            if (b == null) {
+                System.out.printf(Locale.US, "%-70s %14s %14.3f %9s%n", e.getKey(), "-", c.score, "new");
+                continue;
+            }
+            if (!b.unit.equals(c.unit)) throw new IllegalArgumentException(e.getKey() + ": unit " + b.unit + " vs " + c.unit);
+            double slowdown = slowdown(b, c);
+            boolean worse = slowdown > threshold;
+            if (worse) regressions++;
+            System.out.printf(Locale.US, "%-70s %14.3f %14.3f %+8.1f%%%s%n",
+                    e.getKey(), b.score, c.score, 100 * slowdown, worse ? "  REGRESSION" : "");
+        }
+        for (String k : base.keySet()) if (!cand.containsKey(k)) System.out.printf("%-70s %14s%n", k, "removed");
+        System.out.printf(Locale.US, "%d benchmark(s) slower than %.0f%%%n", regressions, 100 * threshold);
+        if (regressions > 0) System.exit(1);
+    }
+
+    /** Relative slowdown of c against b; positive = worse, for time and throughput modes alike. */
+    static double slowdown(Result b, Result c) {
+        return "thrpt".equals(c.mode) ? b.score / c.score - 1 : c.score / b.score - 1;
+    }
+
+    /** Benchmark name plus its parameters -> result, in file order. */
+    static Map<String,Result> read(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty()) throw new IOException(file + ": empty result file");
+        List<String> header = split(lines.get(0));
+        int bench = header.indexOf("Benchmark"), mode = header.indexOf("Mode"), score = header.indexOf("Score"), unit = header.indexOf("Unit");
+        if (bench < 0 || score < 0 || unit < 0) throw new IOException(file + ": not a JMH csv result file");
+        Map<String,Result> out = new LinkedHashMap<>();
+        for (int i=1; i<lines.size(); i++) {
+            if (lines.get(i).isBlank()) continue;
+            List<String> f = split(lines.get(i));
+            StringBuilder key = new StringBuilder(f.get(bench));
+            for (int j=0; j<header.size(); j++)
+                if (header.get(j).startsWith("Param: ") && !f.get(j).isEmpty()) key.append(' ').append(header.get(j).substring(7)).append('=').append(f.get(j));
+            out.put(key.toString(), new Result(mode >= 0 ? f.get(mode) : "avgt", Double.parseDouble(f.get(score)), f.get(unit)));
+        }
+        return out;
+    }
+
+    /** Splits one CSV line, removing double quotes around fields. */
+    static List<String> split(String line) {
+        List<String> out = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        for (int i=0; i<line.length(); i++) {
+            char ch = line.charAt(i);
+            if (ch == '"') quoted = !quoted;
+            else if (ch == ',' && !quoted) { out.add(sb.toString()); sb.setLength(0); }
+            else sb.append(ch);
+        }
+        out.add(sb.toString());
+        return out;
+    }
+}
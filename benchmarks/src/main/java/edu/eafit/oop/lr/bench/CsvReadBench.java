@@ -0,0 +1,51 @@
+package edu.eafit.oop.lr.bench;
+
+import edu.eafit.oop.lr.CSVReader;
+import edu.eafit.oop.lr.OffHeapDataset;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** {@link CSVReader} and {@link OffHeapDataset#readCsv} on a temporary synthetic file (page cache warm after the first iteration). */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class CsvReadBench {
+
+    @Param({"100000x8", "20000x64", "1000x512"})
+    public String shape;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        int[] s = SyntheticData.shape(shape);
+        double[][] X = SyntheticData.features(s[0], s[1], SyntheticData.SEED);
+        file = SyntheticData.writeCsv(X, SyntheticData.target(X, 1.0, SyntheticData.SEED),
+                Files.createTempFile("lr-bench-", ".csv"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public CSVReader.DataFrame read() throws IOException { return CSVReader.read(file.toString()); }
+
+    @Benchmark
+    public CSVReader.DataFrame readParallel() throws IOException { return CSVReader.readParallel(file.toString()); }
+
+    /** Parse into native memory and release it (the release is part of the cost). */
+    @Benchmark
+    public int readOffHeap() throws IOException {
+        try (OffHeapDataset ds = OffHeapDataset.readCsv(file, null)) {
+            return ds.rows();
+        }
+    }
+}
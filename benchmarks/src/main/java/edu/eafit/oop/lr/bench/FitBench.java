@@ -0,0 +1,68 @@
+package edu.eafit.oop.lr.bench;
+
+import edu.eafit.oop.lr.LinearRegression;
+import edu.eafit.oop.lr.LinearRegression.TrainingMethod;
+import edu.eafit.oop.lr.StandardScaler;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * {@link LinearRegression#fit(double[][], double[])} by normal equation, gradient descent
+ * and conjugate gradient on standardized data. Gradient descent runs a fixed number of
+ * epochs (no tolerance), so every release does the same amount of work per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class FitBench {
+
+    /** Tall, medium and wide (more features than rows; ridge keeps the normal equation solvable). */
+    @Param({"50000x8", "5000x64", "200x400"})
+    public String shape;
+
+    @Param({"100"})
+    public int epochs;
+
+    private double[][] X;
+    private double[] y;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] s = SyntheticData.shape(shape);
+        double[][] raw = SyntheticData.features(s[0], s[1], SyntheticData.SEED);
+        y = SyntheticData.target(raw, 1.0, SyntheticData.SEED);
+        X = new StandardScaler().fitTransform(raw);
+    }
+
+    private LinearRegression model(TrainingMethod method) {
+        LinearRegression m = new LinearRegression(method);
+        m.setRidge(1e-3);
+        m.setEpochs(epochs);
+        m.setLearningRate(0.05);
+        return m;
+    }
+
+    @Benchmark
+    public LinearRegression normalEquation() {
+        LinearRegression m = model(TrainingMethod.NORMAL_EQUATION);
+        m.fit(X, y);
+        return m;
+    }
+
+    @Benchmark
+    public LinearRegression gradientDescent() {
+        LinearRegression m = model(TrainingMethod.GRADIENT_DESCENT);
+        m.fit(X, y);
+        return m;
+    }
+
+    @Benchmark
+    public LinearRegression conjugateGradient() {
+        LinearRegression m = model(TrainingMethod.CONJUGATE_GRADIENT);
+        m.fit(X, y);
+        return m;
+    }
+}
@@ -0,0 +1,26 @@
+package edu.eafit.oop.lr.bench;
+
+import edu.eafit.oop.lr.Matrix;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** {@link Matrix#inverse} of a symmetric positive definite n x n matrix. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class InverseBench {
+
+    @Param({"16", "64", "256"})
+    public int n;
+
+    private double[][] S;
+
+    @Setup(Level.Trial)
+    public void setUp() { S = SyntheticData.spd(n, SyntheticData.SEED); }
+
+    @Benchmark
+    public double[][] inverse() { return Matrix.inverse(S); }
+}
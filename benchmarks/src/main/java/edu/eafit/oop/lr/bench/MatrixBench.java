@@ -0,0 +1,39 @@
+package edu.eafit.oop.lr.bench;
+
+import edu.eafit.oop.lr.Matrix;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** {@link Matrix} products on tall (m >> n) and wide (n >= m) operands. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class MatrixBench {
+
+    /** Shape of A; the products are A x B with B of shape n x 32, A x v, and A^T A. */
+    @Param({"10000x16", "2000x128", "64x512"})
+    public String shape;
+
+    private double[][] A, B;
+    private double[] v;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] s = SyntheticData.shape(shape);
+        A = SyntheticData.features(s[0], s[1], SyntheticData.SEED);
+        B = SyntheticData.features(s[1], 32, SyntheticData.SEED + 1);
+        v = SyntheticData.features(1, s[1], SyntheticData.SEED + 2)[0];
+    }
+
+    @Benchmark
+    public double[][] dotMatrix() { return Matrix.dot(A, B); }
+
+    @Benchmark
+    public double[] dotVector() { return Matrix.dot(A, v); }
+
+    @Benchmark
+    public double[][] gram() { return Matrix.gram(A); }
+}
@@ -0,0 +1,42 @@
+package edu.eafit.oop.lr.bench;
+
+import edu.eafit.oop.lr.StandardScaler;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** {@link StandardScaler} statistics and transforms. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class ScalerBench {
+
+    @Param({"100000x8", "20000x64", "1000x512"})
+    public String shape;
+
+    private double[][] X;
+    private StandardScaler fitted;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] s = SyntheticData.shape(shape);
+        X = SyntheticData.features(s[0], s[1], SyntheticData.SEED);
+        fitted = new StandardScaler();
+        fitted.fit(X);
+    }
+
+    @Benchmark
+    public StandardScaler fit() {
+        StandardScaler sc = new StandardScaler();
+        sc.fit(X);
+        return sc;
+    }
+
+    @Benchmark
+    public double[][] transform() { return fitted.transform(X); }
+
+    @Benchmark
+    public double[][] fitTransform() { return new StandardScaler().fitTransform(X); }
+}
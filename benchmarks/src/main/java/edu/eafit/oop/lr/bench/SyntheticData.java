@@ -0,0 +1,78 @@
+package edu.eafit.oop.lr.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Seeded synthetic data for the benchmarks: Gaussian features with per-column offset and
+ * scale (so standardization has real work to do) and a noisy linear target. The same seed
+ * always yields the same data, so runs of different releases measure identical inputs.
+ */
+public final class SyntheticData {
+
+    public static final long SEED = 42L;
+
+    private SyntheticData() {}
+
+    /** Parses a {@code "<rows>x<cols>"} shape parameter. */
+    public static int[] shape(String s) {
+        int x = s.indexOf('x');
+        if (x <= 0) throw new IllegalArgumentException("Shape must look like 1000x10, got '" + s + "'");
+        return new int[]{ Integer.parseInt(s.substring(0, x)), Integer.parseInt(s.substring(x + 1)) };
+    }
+
+    /** m x n features; column j has mean j and standard deviation 1 + j % 5. */
+    public static double[][] features(int m, int n, long seed) {
+        Random r = new Random(seed);
+        double[][] X = new double[m][n];
+        for (int i=0; i<m; i++)
+            for (int j=0; j<n; j++)
+                X[i][j] = j + (1 + j % 5) * r.nextGaussian();
+        return X;
+    }
+
+    /** y = 3 + sum(w_j * x_j) + noise with fixed weights w_j = (j % 7) - 3. */
+    public static double[] target(double[][] X, double noise, long seed) {
+        Random r = new Random(seed ^ 0x5DEECE66DL);
+        double[] y = new double[X.length];
+        for (int i=0; i<X.length; i++) {
+            double s = 3.0;
+            for (int j=0; j<X[i].length; j++) s += ((j % 7) - 3) * X[i][j];
+            y[i] = s + noise * r.nextGaussian();
+        }
+        return y;
+    }
+
+    /** Well-conditioned symmetric positive definite n x n matrix: A^T A / n + I. */
+    public static double[][] spd(int n, long seed) {
+        double[][] A = features(n, n, seed);
+        double[][] S = new double[n][n];
+        for (int i=0; i<n; i++)
+            for (int j=0; j<n; j++) {
+                double s = 0;
+                for (int k=0; k<n; k++) s += (A[k][i] - i) * (A[k][j] - j);
+                S[i][j] = s / n + (i == j ? 1.0 : 0.0);
+            }
+        return S;
+    }
+
+    /** Writes X and y as a comma separated file with headers x1..xn,y. */
+    public static Path writeCsv(double[][] X, double[] y, Path file) throws IOException {
+        int n = X[0].length;
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int j=0; j<n; j++) w.write("x" + (j + 1) + ",");
+            w.write("y\n");
+            StringBuilder sb = new StringBuilder();
+            for (int i=0; i<X.length; i++) {
+                sb.setLength(0);
+                for (int j=0; j<n; j++) sb.append(X[i][j]).append(',');
+                w.append(sb.append(y[i]).append('\n'));
+            }
+        }
+        return file;
+    }
+}
@@ -1,6 +1,14 @@
 package edu.eafit.oop.lr;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * CLI demo to train/evaluate LinearRegression from a CSV.
@@ -8,6 +16,7 @@ import java.util.*;
  * Example:
  *   java -cp out edu.eafit.oop.lr.App --file data.csv --target-col y --method normal --scale standard
  *   java -cp out edu.eafit.oop.lr.App --file data.csv --target-col final --method gd --alpha 0.01 --epochs 20000
+ *   java -cp out edu.eafit.oop.lr.App --file data.csv --target-col final --method sgd --batch 64 --epochs 20
  */
 public class App {
 
@@ -15,12 +24,53 @@ public class App {
         System.out.println("Usage:");
         System.out.println("  --file <path.csv>              CSV file (comma or semicolon is OK)");
         System.out.println("  --target-col <name|index>      Target column (header name or zero-based index)");
-        System.out.println("  --method <normal|gd>           Training: normal equation or gradient descent");
-        System.out.println("  --scale <none|standard>        Feature scaling (default: standard for GD, none for normal)");
-        System.out.println("  --alpha <float>                Learning rate for GD (default 0.01)");
-        System.out.println("  --epochs <int>                 Epochs for GD (default 10000)");
+        System.out.println("  --method <normal|gd|sgd|cg>    Training: normal equation, gradient descent, mini-batch SGD or");
+        System.out.println("                                 conjugate gradient (matrix-free, for many features)");
+        System.out.println("  --scale <none|standard>        Feature scaling (default: standard for GD/SGD, none for normal)");
+        System.out.println("  --alpha <float>                Learning rate for GD/SGD (default 0.01)");
+        System.out.println("  --epochs <int>                 Epochs for GD (default 10000), SGD passes (default 50) or CG iterations");
+        System.out.println("  --batch <int>                  Mini-batch size for SGD (default 32)");
+        System.out.println("  --optimizer <name>             GD/SGD update: sgd|momentum|nesterov|adam|linesearch (default sgd)");
+        System.out.println("  --tol <float>                  Stop when relative loss improvement < tol (default 0 = off);");
+        System.out.println("                                 for CG, the relative residual (default 1e-10)");
+        System.out.println("  --precond <jacobi|none>        CG preconditioner (default jacobi)");
+        System.out.println("  --patience <int>               Hold out 10% of train, stop after <int> epochs without val improvement");
+        System.out.println("  --time-budget <ms>             Wall-clock limit for GD/SGD training (default 0 = none)");
+        System.out.println("  --fold-scaling                 Fold the scaler into the weights (report/predict on raw features)");
+        System.out.println("  --ridge <float>                L2 term for the normal equation and CG (default 1e-8)");
+        System.out.println("  --ridge-path <list>            Normal equation: scan comma-separated lambdas from one eigendecomposition,");
+        System.out.println("                                 print GCV/LOO for each and keep the lambda with the lowest LOO error");
+        System.out.println("  --cv <k>                       k-fold grid search instead of a single split; --alpha, --epochs and");
+        System.out.println("                                 --ridge then accept comma-separated lists (e.g. --ridge 0,0.1,1)");
+        System.out.println("  --threads <int>                Worker threads for --cv (default: all cores)");
         System.out.println("  --split <float>                Train ratio (default 0.8)");
         System.out.println("  --seed <long>                  Random seed for split (default 42)");
+        System.out.println("  --parallel-read                Parse the CSV in line-aligned chunks on all cores");
+        System.out.println("  --out-of-core                  Stream the CSV in chunks instead of loading it (split by row hash)");
+        System.out.println("  --chunk-rows <int>             Rows held in memory at once with --out-of-core (default 65536)");
+        System.out.println("  --format <csv|libsvm>          Input format (default csv); libsvm files need no --target-col");
+        System.out.println("  --sparse                       Load features as a sparse CSR matrix (implied by --format libsvm);");
+        System.out.println("                                 --scale standard then only divides by the std, keeping zeros");
+        System.out.println("  --cache-dir <dir>              Cache parsed CSVs as binary columns (reused while size/mtime match)");
+        System.out.println("  --off-heap                     Parse the CSV into native memory outside the Java heap (freed at the end)");
+        System.out.println("  --off-heap-file <path>         Like --off-heap, but in a mapped scratch file (deleted at the end)");
+        System.out.println("  --shards <k>                   Train on all rows with k worker JVMs, each reading its own part of the");
+        System.out.println("                                 CSV or binary dataset (normal|gd|cg); reports training-set scores");
+        System.out.println("  --listen <port>                With --shards: wait for workers started elsewhere instead of spawning them");
+        System.out.println();
+        System.out.println("  --save-model <path>            Write the trained model (scaling folded in) for --serve");
+        System.out.println("  --metrics                      Print wall time, allocation and rows/s per pipeline stage");
+        System.out.println("  --metrics-json <path>          Write the stage metrics and GD/SGD per-epoch loss and gradient norm as JSON");
+        System.out.println();
+        System.out.println("Scoring server (no training):");
+        System.out.println("  --serve --model <path>         Serve a saved model over HTTP on localhost (POST /predict,");
+        System.out.println("                                 PUT|POST /model to hot-swap, GET /stats)");
+        System.out.println("  --port <int>                   Listening port (default 8080)");
+        System.out.println("  --batch-window-us <int>        Coalesce single-row requests for up to this long (default 200, 0 = off)");
+        System.out.println("  --max-batch <int>              Largest micro-batch (default 256)");
+        System.out.println();
+        System.out.println("Sharded training worker:");
+        System.out.println("  --worker --connect <host:port> Serve one shard to a coordinator started with --shards k --listen <port>");
         System.out.println();
         System.out.println("Example:");
         System.out.println("  java -cp out edu.eafit.oop.lr.App --file ice_cream.csv --target-col sales --method normal");
@@ -32,109 +82,645 @@ public class App {
             printHelp();
             return;
         }
+        if (flags.containsKey("--serve")) {
+            runServer(flags);
+            return;
+        }
+        if (flags.containsKey("--worker")) {
+            runWorker(flags.getOrDefault("--connect", ""));
+            return;
+        }
+        String metricsJson = flags.get("--metrics-json");
+        boolean metrics = flags.containsKey("--metrics") || metricsJson != null;
+        if (metrics) Instrumentation.setEnabled(true);
+        train(flags);
+        if (metrics) exportMetrics(flags.containsKey("--metrics"), metricsJson);
+    }
+
+    /** One training run as configured by the command-line flags; errors are printed, not thrown. */
+    private static void train(Map<String,String> flags) {
         String file = flags.getOrDefault("--file", "");
+        String saveModel = flags.get("--save-model");
         String targetCol = flags.getOrDefault("--target-col", "");
         String method = flags.getOrDefault("--method", "normal").toLowerCase(Locale.ROOT);
-        String scale = flags.getOrDefault("--scale", method.equals("gd") ? "standard" : "none").toLowerCase(Locale.ROOT);
-        double alpha = Double.parseDouble(flags.getOrDefault("--alpha", "0.01"));
-        int epochs = Integer.parseInt(flags.getOrDefault("--epochs", "10000"));
+        boolean direct = method.equals("normal") || method.equals("cg");
+        String scale = flags.getOrDefault("--scale", direct ? "none" : "standard").toLowerCase(Locale.ROOT);
+        // --alpha, --epochs and --ridge take comma-separated lists with --cv
+        double[] alphas = parseDoubles(flags.getOrDefault("--alpha", "0.01"));
+        int[] epochList = parseInts(flags.getOrDefault("--epochs", method.equals("sgd") ? "50" : "10000"));
+        double[] ridges = parseDoubles(flags.getOrDefault("--ridge", "1e-8"));
+        int cvFolds = Integer.parseInt(flags.getOrDefault("--cv", "0"));
+        double[] ridgePath = flags.containsKey("--ridge-path") ? parseDoubles(flags.get("--ridge-path")) : null;
+        int batch = Integer.parseInt(flags.getOrDefault("--batch", "32"));
+        String optimizer = flags.getOrDefault("--optimizer", "sgd").toLowerCase(Locale.ROOT);
+        double tol = Double.parseDouble(flags.getOrDefault("--tol", "0"));
+        int patience = Integer.parseInt(flags.getOrDefault("--patience", "0"));
+        long timeBudget = Long.parseLong(flags.getOrDefault("--time-budget", "0"));
         double split = Double.parseDouble(flags.getOrDefault("--split", "0.8"));
         long seed = Long.parseLong(flags.getOrDefault("--seed", "42"));
+        boolean foldScaling = flags.containsKey("--fold-scaling");
+        String format = flags.getOrDefault("--format", "csv").toLowerCase(Locale.ROOT);
+        boolean libsvm = format.equals("libsvm");
 
-        if (file.isEmpty() || targetCol.isEmpty()) {
+        if (!libsvm && !format.equals("csv")) {
+            System.err.println("ERROR: --format must be 'csv' or 'libsvm'.");
+            return;
+        }
+        if (file.isEmpty() || (targetCol.isEmpty() && !libsvm)) {
             System.err.println("ERROR: --file and --target-col are required.");
             printHelp();
             return;
         }
-        if (!method.equals("normal") && !method.equals("gd")) {
-            System.err.println("ERROR: --method must be 'normal' or 'gd'.");
+        if (!direct && !method.equals("gd") && !method.equals("sgd")) {
+            System.err.println("ERROR: --method must be 'normal', 'gd', 'sgd' or 'cg'.");
             return;
         }
         if (!scale.equals("none") && !scale.equals("standard")) {
             System.err.println("ERROR: --scale must be 'none' or 'standard'.");
             return;
         }
+        if (cvFolds == 0 && (alphas.length > 1 || epochList.length > 1 || ridges.length > 1)) {
+            System.err.println("ERROR: lists for --alpha/--epochs/--ridge are only accepted with --cv.");
+            return;
+        }
+        if (ridgePath != null && (!method.equals("normal") || cvFolds > 0 || flags.containsKey("--out-of-core"))) {
+            System.err.println("ERROR: --ridge-path needs --method normal and no --cv/--out-of-core.");
+            return;
+        }
+        double alpha = alphas[0];
+        int epochs = epochList[0];
+
+        // Configure model
+        LinearRegression.TrainingMethod tm = method.equals("gd")
+                ? LinearRegression.TrainingMethod.GRADIENT_DESCENT
+                : method.equals("sgd")
+                ? LinearRegression.TrainingMethod.MINI_BATCH_SGD
+                : method.equals("cg")
+                ? LinearRegression.TrainingMethod.CONJUGATE_GRADIENT
+                : LinearRegression.TrainingMethod.NORMAL_EQUATION;
+
+        LinearRegression model = new LinearRegression(tm);
+        model.setRidge(ridges[0]);
+        if (tm == LinearRegression.TrainingMethod.CONJUGATE_GRADIENT) {
+            String precond = flags.getOrDefault("--precond", "jacobi").toLowerCase(Locale.ROOT);
+            if (!precond.equals("jacobi") && !precond.equals("none")) {
+                System.err.println("ERROR: --precond must be 'jacobi' or 'none'.");
+                return;
+            }
+            model.setPreconditioner(precond.equals("jacobi"));
+            model.setEpochs(epochs);
+            model.setTolerance(tol);
+            model.setTimeBudgetMillis(timeBudget);
+        } else if (tm != LinearRegression.TrainingMethod.NORMAL_EQUATION) {
+            model.setLearningRate(alpha);
+            model.setEpochs(epochs);
+            try {
+                model.setOptimizer(Optimizer.byName(optimizer));
+            } catch (IllegalArgumentException e) {
+                System.err.println("ERROR: " + e.getMessage());
+                return;
+            }
+            model.setTolerance(tol);
+            model.setTimeBudgetMillis(timeBudget);
+        }
+        if (tm == LinearRegression.TrainingMethod.MINI_BATCH_SGD) {
+            model.setBatchSize(batch);
+            model.setSeed(seed);
+        }
+        if (flags.containsKey("--shards")) {
+            if (tm == LinearRegression.TrainingMethod.MINI_BATCH_SGD || cvFolds > 0 || ridgePath != null || libsvm || flags.containsKey("--sparse")) {
+                System.err.println("ERROR: --shards supports --method normal|gd|cg on a CSV or binary dataset, without --cv/--ridge-path/--sparse.");
+                return;
+            }
+            int chunkRows = Integer.parseInt(flags.getOrDefault("--chunk-rows", "65536"));
+            int listen = Integer.parseInt(flags.getOrDefault("--listen", "-1"));
+            runSharded(file, targetCol, Integer.parseInt(flags.get("--shards")), listen, chunkRows, scale, foldScaling, model, saveModel);
+            return;
+        }
+        if (flags.containsKey("--out-of-core")) {
+            int chunkRows = Integer.parseInt(flags.getOrDefault("--chunk-rows", "65536"));
+            runOutOfCore(file, targetCol, chunkRows, split, seed, scale, foldScaling, model, saveModel);
+            return;
+        }
+
+        if (flags.containsKey("--off-heap") || flags.containsKey("--off-heap-file")) {
+            if (libsvm || flags.containsKey("--sparse") || cvFolds > 0) {
+                System.err.println("ERROR: --off-heap loads a dense CSV and does not support --cv.");
+                return;
+            }
+            runOffHeap(file, flags.get("--off-heap-file"), targetCol, split, seed, direct ? 0 : patience,
+                    scale, foldScaling, ridgePath, model, saveModel);
+            return;
+        }
+
+        if (libsvm || flags.containsKey("--sparse")) {
+            runSparse(file, libsvm, targetCol, split, seed, direct ? 0 : patience, scale, foldScaling, ridgePath, model, saveModel);
+            return;
+        }
 
         // Load CSV
         CSVReader.DataFrame df;
-        try {
-            df = CSVReader.read(file);
+        try (Instrumentation.Stage st = Instrumentation.stage("read")) {
+            boolean parallelRead = flags.containsKey("--parallel-read");
+            String cacheDir = flags.get("--cache-dir");
+            if (cacheDir != null) df = CSVReader.readCached(file, Paths.get(cacheDir), parallelRead);
+            else df = parallelRead ? CSVReader.readParallel(file) : CSVReader.read(file);
+            st.rows(df.rows());
         } catch (Exception e) {
             System.err.println("ERROR reading CSV: " + e.getMessage());
             return;
         }
 
-        // Resolve target column index
-        int yIdx = -1;
-        try {
-            yIdx = Integer.parseInt(targetCol);
-        } catch (NumberFormatException ignored) {
-            yIdx = df.indexOfColumn(targetCol);
-        }
+        int yIdx = resolveTarget(df.headers, targetCol);
         if (yIdx < 0) {
             System.err.println("ERROR: Could not find target column '" + targetCol + "'");
             return;
         }
 
-        // Split train/test
-        CSVReader.DataFrame[] splitDF = df.trainTestSplit(split, seed);
-        CSVReader.DataFrame train = splitDF[0];
-        CSVReader.DataFrame test  = splitDF[1];
+        if (cvFolds > 0) {
+            runCrossValidation(df, yIdx, tm, cvFolds, seed, scale.equals("standard"),
+                    ridges, alphas, epochList, Integer.parseInt(flags.getOrDefault("--threads", "0")));
+            return;
+        }
 
-        // Separate X and y
-        double[][] Xtrain = train.featuresExcept(yIdx);
-        double[]   ytrain = train.columnAsVector(yIdx);
+        runDense(df.featureView(yIdx), df.columnAsVector(yIdx), false, split, seed, direct ? 0 : patience,
+                scale, foldScaling, ridgePath, model, saveModel);
+    }
 
-        double[][] Xtest  = test.featuresExcept(yIdx);
-        double[]   ytest  = test.columnAsVector(yIdx);
+    /**
+     * Everything after loading, shared by the in-memory, off-heap and sparse pipelines: the
+     * shuffled train/test split, the validation holdout for --patience, scaling, the fit (or
+     * ridge path), folding, scores and saving. Train, test and validation are row selections
+     * over X, so only y is copied. With {@code sparse} the scaler does not centre the rows
+     * and a wide model is printed as a summary.
+     */
+    private static void runDense(DataView X, double[] y, boolean sparse, double split, long seed, int patience,
+                                 String scale, boolean foldScaling, double[] ridgePath, LinearRegression model, String saveModel) {
+        int m = X.rows();
+        if (X.cols() == 0) {
+            System.err.println("ERROR: no feature columns: the file only has the target column.");
+            return;
+        }
+        if (m < 2) {
+            System.err.println("ERROR: need at least 2 rows.");
+            return;
+        }
+        Instrumentation.Stage splitStage = Instrumentation.stage("split").rows(m);
+        int[][] rows = shuffledSplit(m, split, seed);
+        int[] trainRows = rows[0], testRows = rows[1], valRows = null;
+        if (patience > 0 && trainRows.length >= 10) {
+            // Validation holdout: train rows are already shuffled, keep the last 10%
+            int nFit = trainRows.length - trainRows.length / 10;
+            valRows = Arrays.copyOfRange(trainRows, nFit, trainRows.length);
+            trainRows = Arrays.copyOf(trainRows, nFit);
+        }
+        DataView Xtrain = X.select(trainRows), Xtest = X.select(testRows);
+        DataView Xval = valRows == null ? null : X.select(valRows);
+        double[] ytrain = gather(y, trainRows), ytest = gather(y, testRows);
+        splitStage.close();
 
-        // Optional scaling
+        // Optional scaling (lazy views: values are standardized as they are read)
         StandardScaler scaler = null;
         if (scale.equals("standard")) {
-            scaler = new StandardScaler();
-            scaler.fit(Xtrain);
-            Xtrain = scaler.transform(Xtrain);
-            Xtest  = scaler.transform(Xtest);
+            try (Instrumentation.Stage st = Instrumentation.stage("scale")) {
+                st.rows(Xtrain.rows());
+                scaler = new StandardScaler();
+                scaler.setWithMean(!sparse);
+                scaler.fit(Xtrain);
+                Xtrain = scaler.transformView(Xtrain);
+                // Folded weights apply to raw features: the test view stays unscaled
+                if (!foldScaling) Xtest = scaler.transformView(Xtest);
+                if (Xval != null) Xval = scaler.transformView(Xval);
+            }
         }
+        if (Xval != null) model.setValidation(Xval, gather(y, valRows), patience);
 
-        // Train model
-        LinearRegression.TrainingMethod tm = method.equals("gd")
-                ? LinearRegression.TrainingMethod.GRADIENT_DESCENT
-                : LinearRegression.TrainingMethod.NORMAL_EQUATION;
-
-        LinearRegression model = new LinearRegression(tm);
-        if (tm == LinearRegression.TrainingMethod.GRADIENT_DESCENT) {
-            model.setLearningRate(alpha);
-            model.setEpochs(epochs);
+        try (Instrumentation.Stage st = Instrumentation.stage("fit")) {
+            st.rows(Xtrain.rows());
+            if (ridgePath != null) {
+                RidgePath path = RidgePath.fit(Xtrain, ytrain);
+                double best = path.best(ridgePath);
+                printRidgePath(path, ridgePath, best);
+                model.fit(path, best);
+            } else {
+                model.fit(Xtrain, ytrain);
+            }
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            return;
         }
-        model.fit(Xtrain, ytrain);
+        if (scaler != null && foldScaling) model.foldScaling(scaler);
 
-        // Report
-        System.out.println("== Model parameters ==");
-        System.out.println("bias: " + model.getBias());
-        System.out.println("weights: " + Arrays.toString(model.getWeights()));
+        if (sparse && X.cols() > 20) printWeightSummary(model);
+        else printParameters(model);
+        printTestScores(model, Xtest, ytest);
+        if (sparse && scaler != null) {
+            System.out.println("\n(Features were divided by their std; sparse data is not centered)");
+            if (foldScaling) System.out.println("(Scaling folded into the weights: they apply to raw features)");
+        } else {
+            printScalingNote(scaler, foldScaling);
+        }
+        if (saveModel != null) saveModel(saveModel, model, foldScaling ? null : scaler);
+    }
 
-        double[] yhatTest = model.predict(Xtest);
+    private static void printTestScores(LinearRegression model, DataView Xtest, double[] ytest) {
+        double[] yhatTest;
+        double r2, mse, mae;
+        try (Instrumentation.Stage st = Instrumentation.stage("evaluate")) {
+            st.rows(Xtest.rows());
+            yhatTest = model.predict(Xtest);
+            r2  = model.score(Xtest, ytest); // R^2
+            mse = VectorStats.mse(ytest, yhatTest);
+            mae = VectorStats.mae(ytest, yhatTest);
+        }
         System.out.println("\n== Predictions (first 5) ==");
         for (int i = 0; i < Math.min(5, yhatTest.length); i++) {
             System.out.printf(Locale.US, "y_hat[%d] = %.6f (y=%.6f)%n", i, yhatTest[i], ytest[i]);
         }
 
-        double r2  = model.score(Xtest, ytest); // R^2
-        double mse = VectorStats.mse(ytest, yhatTest);
-        double mae = VectorStats.mae(ytest, yhatTest);
+        printScores("== Scores ==", r2, mse, mae);
+    }
 
-        System.out.println("\n== Scores ==");
+    private static void printScores(String title, double r2, double mse, double mae) {
+        System.out.println("\n" + title);
         System.out.printf(Locale.US, "R2  : %.6f%n", r2);
         System.out.printf(Locale.US, "MSE : %.6f%n", mse);
         System.out.printf(Locale.US, "MAE : %.6f%n", mae);
+    }
+
+    /** {@link #printScores} from streamed {@link LinearRegression#addErrorSums error sums}. */
+    private static void printScores(String title, double[] sums) {
+        double[] s = LinearRegression.scores(sums);
+        printScores(title, s[0], s[1], s[2]);
+    }
+
+    /** Index of the target column given by header name (case-insensitive) or zero-based index; -1 if absent. */
+    static int resolveTarget(String[] headers, String targetCol) {
+        int idx;
+        try {
+            idx = Integer.parseInt(targetCol);
+        } catch (NumberFormatException ignored) {
+            idx = -1;
+            for (int j=0; j<headers.length && idx < 0; j++) if (headers[j].equalsIgnoreCase(targetCol)) idx = j;
+        }
+        return idx < headers.length ? idx : -1;
+    }
+
+    /**
+     * Sparse pipeline: features are loaded as a {@link CsrMatrix} (libsvm, or a CSV with its
+     * zeros dropped) and every step works on the nonzeros. Scaling divides by the std only.
+     */
+    private static void runSparse(String file, boolean libsvm, String targetCol, double split, long seed, int patience,
+                                  String scale, boolean foldScaling, double[] ridgePath, LinearRegression model, String saveModel) {
+        SparseReader.Dataset data;
+        try (Instrumentation.Stage st = Instrumentation.stage("read")) {
+            if (libsvm) {
+                data = SparseReader.readLibSvm(file, 0);
+            } else {
+                int yIdx = resolveTarget(CSVBlockSource.open(file, 0, 1).headers, targetCol);
+                if (yIdx < 0) {
+                    System.err.println("ERROR: Could not find target column '" + targetCol + "'");
+                    return;
+                }
+                data = SparseReader.readCsv(file, yIdx);
+            }
+            st.rows(data.y.length);
+        } catch (Exception e) {
+            System.err.println("ERROR reading " + file + ": " + e.getMessage());
+            return;
+        }
+        CsrMatrix X = data.X;
+        System.out.printf(Locale.US, "Loaded %d x %d sparse matrix, %d nonzeros (%.2f%% dense)%n%n",
+                X.rows(), X.cols(), X.nnz(), 100 * X.density());
+        runDense(X, data.y, true, split, seed, patience, scale, foldScaling, ridgePath, model, saveModel);
+    }
 
-        if (scaler != null) {
-            System.out.println("\n(Features were scaled with StandardScaler: mean=0, std=1)");
+    /** Bias and a summary of the weights, for models too wide to print in full. */
+    private static void printWeightSummary(LinearRegression model) {
+        double[] w = model.getWeights();
+        int nz = 0;
+        double max = 0;
+        for (double v : w) {
+            if (v != 0) nz++;
+            max = Math.max(max, Math.abs(v));
+        }
+        System.out.println("== Model parameters ==");
+        System.out.println("bias: " + model.getBias());
+        System.out.printf(Locale.US, "weights: %d (%d nonzero, max |w| = %.6g)%n", w.length, nz, max);
+        if (model.getMethod() != LinearRegression.TrainingMethod.NORMAL_EQUATION) {
+            System.out.println("epochs/iterations run: " + model.getEpochsRun());
+        }
+    }
+
+    /** Row indexes {train, test} shuffled exactly like {@link CSVReader.DataFrame#trainTestSplit}. */
+    private static int[][] shuffledSplit(int m, double split, long seed) {
+        int[] idx = new int[m];
+        for (int i=0; i<m; i++) idx[i] = i;
+        Random r = new Random(seed);
+        for (int i=m; i>1; i--) {
+            int k = r.nextInt(i);
+            int t = idx[i-1]; idx[i-1] = idx[k]; idx[k] = t;
+        }
+        int nTrain = Math.max(1, (int) Math.round(m * split));
+        return new int[][] { Arrays.copyOfRange(idx, 0, nTrain), Arrays.copyOfRange(idx, nTrain, m) };
+    }
+
+    private static double[] gather(double[] v, int[] rows) {
+        double[] out = new double[rows.length];
+        for (int i=0; i<rows.length; i++) out[i] = v[rows[i]];
+        return out;
+    }
+
+    /**
+     * Dense pipeline over an {@link OffHeapDataset}: the CSV is parsed straight into native
+     * memory (or a mapped scratch file), train/test/validation are row selections over it and
+     * only y and the row indexes live on the heap. Same split and results as the default
+     * pipeline; the memory is released before returning.
+     */
+    private static void runOffHeap(String file, String backing, String targetCol, double split, long seed, int patience,
+                                   String scale, boolean foldScaling, double[] ridgePath, LinearRegression model, String saveModel) {
+        OffHeapDataset ds;
+        try (Instrumentation.Stage st = Instrumentation.stage("read")) {
+            ds = OffHeapDataset.readCsv(Paths.get(file), backing == null ? null : Paths.get(backing));
+            st.rows(ds.rows());
+        } catch (Exception e) {
+            System.err.println("ERROR reading CSV: " + e.getMessage());
+            return;
+        }
+        try (OffHeapDataset data = ds) {
+            int yIdx = resolveTarget(data.headers, targetCol);
+            if (yIdx < 0) {
+                System.err.println("ERROR: Could not find target column '" + targetCol + "'");
+                return;
+            }
+            System.out.printf(Locale.US, "Loaded %d x %d off-heap (%.1f MB %s)%n%n", data.rows(), data.cols(),
+                    data.reservedBytes() / 1048576.0, data.isFileBacked() ? "mapped from " + backing : "of native memory");
+            runDense(data.featureView(yIdx), data.column(yIdx), false, split, seed, patience,
+                    scale, foldScaling, ridgePath, model, saveModel);
+        } catch (IOException e) {
+            System.err.println("ERROR releasing off-heap dataset: " + e.getMessage());
+        }
+    }
+
+    /** Prints the stage table and/or writes the JSON export collected by {@link Instrumentation}. */
+    private static void exportMetrics(boolean table, String jsonPath) {
+        if (table) System.out.print("\n" + Instrumentation.summaryTable());
+        if (jsonPath == null) return;
+        try {
+            Files.write(Paths.get(jsonPath), Instrumentation.toJson().getBytes(StandardCharsets.UTF_8));
+            System.out.println("Metrics written to " + jsonPath);
+        } catch (IOException e) {
+            System.err.println("ERROR writing metrics: " + e.getMessage());
+        }
+    }
+
+    /** k-fold grid search over the whole file, candidates printed best (lowest mean MSE) first. */
+    private static void runCrossValidation(CSVReader.DataFrame df, int yIdx, LinearRegression.TrainingMethod tm,
+                                           int folds, long seed, boolean scale,
+                                           double[] ridges, double[] alphas, int[] epochs, int threads) {
+        CrossValidator cv;
+        try {
+            cv = new CrossValidator(folds, seed);
+            if (threads > 0) cv.setThreads(threads);
+        } catch (IllegalArgumentException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            return;
+        }
+        cv.setScale(scale);
+        List<CrossValidator.Params> grid = CrossValidator.grid(tm, ridges, alphas, epochs);
+        long t0 = System.nanoTime();
+        List<CrossValidator.Result> results;
+        try (Instrumentation.Stage st = Instrumentation.stage("cv")) {
+            st.rows(df.rows());
+            results = cv.run(df.featureView(yIdx), df.columnAsVector(yIdx), grid);
+        } catch (RuntimeException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            return;
+        }
+        long wall = System.nanoTime() - t0;
+        results = new ArrayList<>(results);
+        results.sort(Comparator.comparingDouble((CrossValidator.Result r) -> Double.isNaN(r.meanMse) ? Double.POSITIVE_INFINITY : r.meanMse));
+
+        System.out.printf(Locale.US, "== %d-fold cross-validation: %d candidates, %s ==%n", folds, grid.size(),
+                scale ? "scaled per training fold" : "no scaling");
+        for (CrossValidator.Result r : results) {
+            if (Double.isNaN(r.meanMse)) {
+                System.out.printf(Locale.US, "%-28s diverged%n", r.params);
+                continue;
+            }
+            System.out.printf(Locale.US, "%-28s R2 %.6g +- %.4g  MSE %.6g +- %.4g  MAE %.6g +- %.4g  (%.1f ms)%n",
+                    r.params, r.meanR2, r.stdR2, r.meanMse, r.stdMse, r.meanMae, r.stdMae, r.nanos / 1e6);
+        }
+        System.out.printf(Locale.US, "%nbest: %s   (wall time %.1f ms)%n", results.get(0).params, wall / 1e6);
+    }
+
+    private static double[] parseDoubles(String csv) {
+        String[] p = csv.split(",");
+        double[] v = new double[p.length];
+        for (int i=0; i<p.length; i++) v[i] = Double.parseDouble(p[i].trim());
+        return v;
+    }
+
+    private static int[] parseInts(String csv) {
+        String[] p = csv.split(",");
+        int[] v = new int[p.length];
+        for (int i=0; i<p.length; i++) v[i] = Integer.parseInt(p[i].trim());
+        return v;
+    }
+
+    private static void printRidgePath(RidgePath path, double[] lambdas, double best) {
+        System.out.println("== Ridge path (intercept not penalized) ==");
+        System.out.printf(Locale.US, "%-12s %10s %14s %14s%n", "lambda", "df", "GCV", "LOO MSE");
+        for (double l : lambdas) {
+            System.out.printf(Locale.US, "%-12s %10.4f %14.6g %14.6g%s%n", Double.toString(l),
+                    path.degreesOfFreedom(l), path.gcv(l), path.loo(l), l == best ? "  <- best" : "");
+        }
+        System.out.println();
+    }
+
+    /** Freezes the model (and an unfolded scaler) into a {@link Predictor} file. */
+    private static void saveModel(String path, LinearRegression model, StandardScaler scaler) {
+        try {
+            Predictor.of(model, scaler).save(Paths.get(path));
+            System.out.println("\nModel saved to " + path);
+        } catch (IOException e) {
+            System.err.println("ERROR saving model: " + e.getMessage());
+        }
+    }
+
+    /** Serves a saved model until the process is stopped. */
+    private static void runServer(Map<String,String> flags) {
+        String path = flags.get("--model");
+        if (path == null) {
+            System.err.println("ERROR: --serve needs --model <path> (write one with --save-model).");
+            return;
+        }
+        int port = Integer.parseInt(flags.getOrDefault("--port", "8080"));
+        long window = Long.parseLong(flags.getOrDefault("--batch-window-us", "200"));
+        int maxBatch = Integer.parseInt(flags.getOrDefault("--max-batch", "256"));
+        try {
+            Predictor p = Predictor.load(Paths.get(path));
+            ScoringServer server = new ScoringServer(p, Paths.get(path), port, window, maxBatch);
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            System.out.printf(Locale.US, "Serving %s (%d features) on http://localhost:%d  [%s threads, batch window %d us, max batch %d]%n",
+                    path, p.features(), server.port(), server.usesVirtualThreads() ? "virtual" : "pooled", window, maxBatch);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("ERROR starting server: " + e.getMessage());
+        }
+    }
+
+    private static void printScalingNote(StandardScaler scaler, boolean folded) {
+        if (scaler == null) return;
+        System.out.println("\n(Features were scaled with StandardScaler: mean=0, std=1)");
+        if (folded) System.out.println("(Scaling folded into the weights: they apply to raw features)");
+    }
+
+    private static void printParameters(LinearRegression model) {
+        System.out.println("== Model parameters ==");
+        System.out.println("bias: " + model.getBias());
+        System.out.println("weights: " + Arrays.toString(model.getWeights()));
+        if (model.getMethod() == LinearRegression.TrainingMethod.CONJUGATE_GRADIENT) {
+            System.out.println("CG iterations: " + model.getEpochsRun());
+        } else if (model.getMethod() != LinearRegression.TrainingMethod.NORMAL_EQUATION) {
+            System.out.println("epochs run: " + model.getEpochsRun());
+        }
+    }
+
+    /**
+     * Streams the CSV in blocks of {@code chunkRows} rows instead of loading it: one pass
+     * for the scaler, one (normal) or one per epoch (GD/SGD) for training and one for the
+     * test scores. Rows go to train or test by a hash of (seed, row number).
+     */
+    private static void runOutOfCore(String file, String targetCol, int chunkRows, double split, long seed,
+                                     String scale, boolean foldScaling, LinearRegression model, String saveModel) {
+        try {
+            CSVBlockSource all = CSVBlockSource.open(file, 0, chunkRows);
+            int yIdx = resolveTarget(all.headers, targetCol);
+            if (yIdx < 0) {
+                System.err.println("ERROR: Could not find target column '" + targetCol + "'");
+                return;
+            }
+            all = CSVBlockSource.open(file, yIdx, chunkRows);
+            RowBlockSource train = all.train(split, seed);
+            RowBlockSource test  = all.test(split, seed);
+
+            StandardScaler scaler = null;
+            if (scale.equals("standard")) {
+                StandardScaler s = new StandardScaler();
+                RowBlockSource raw = train;
+                Instrumentation.time("scale", () -> s.fit(raw));
+                scaler = s;
+                train = s.transform(train);
+                if (!foldScaling) test = s.transform(test);
+            }
+            RowBlockSource fitRows = train;
+            Instrumentation.time("fit", () -> model.fit(fitRows));
+            if (scaler != null && foldScaling) model.foldScaling(scaler);
+            printParameters(model);
+
+            // Streaming scores: error sums and the first predictions
+            double[] w = model.getWeights(), theta = new double[w.length + 1];
+            theta[0] = model.getBias();
+            System.arraycopy(w, 0, theta, 1, w.length);
+            int n = w.length;
+            double[] acc = new double[5];
+            Instrumentation.Stage evalStage = Instrumentation.stage("evaluate");
+            System.out.println("\n== Predictions (first 5) ==");
+            test.forEach((x, y, rows) -> {
+                for (int r=0; r<rows && acc[4] + r < 5; r++) {
+                    double p = theta[0] + Kernels.dot(theta, 1, x, r * n, n);
+                    System.out.printf(Locale.US, "y_hat[%d] = %.6f (y=%.6f)%n", (int) acc[4] + r, p, y[r]);
+                }
+                LinearRegression.addErrorSums(x, y, n, rows, theta, acc);
+            });
+            evalStage.rows((long) acc[4]).close();
+            if (acc[4] == 0) {
+                System.err.println("ERROR: the test split is empty.");
+                return;
+            }
+            printScores("== Scores ==", acc);
+            printScalingNote(scaler, foldScaling);
+            if (saveModel != null) saveModel(saveModel, model, foldScaling ? null : scaler);
+        } catch (IOException e) {
+            System.err.println("ERROR reading CSV: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("ERROR: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Coordinator of sharded training: spawns {@code shards} worker JVMs (or waits for them
+     * on port {@code listen} when it is >= 0), fits the scaler and the model from their
+     * partial sums and reports scores over all rows of the file.
+     */
+    private static void runSharded(String file, String targetCol, int shards, int listen, int chunkRows,
+                                   String scale, boolean foldScaling, LinearRegression model, String saveModel) {
+        List<Process> workers = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(Math.max(0, listen), shards, InetAddress.getLoopbackAddress())) {
+            Path path = Paths.get(file).toAbsolutePath();
+            String[] headers = BinaryDataset.isDataset(path) ? BinaryDataset.open(path).headers : CSVBlockSource.open(file, 0, 1).headers;
+            int yIdx = resolveTarget(headers, targetCol);
+            if (yIdx < 0) {
+                System.err.println("ERROR: Could not find target column '" + targetCol + "'");
+                return;
+            }
+            if (listen >= 0) {
+                System.out.printf("Waiting for %d workers on port %d (App --worker --connect localhost:%d)%n", shards, server.getLocalPort(), server.getLocalPort());
+            } else {
+                for (int k=0; k<shards; k++) workers.add(ShardWorker.spawn(server.getLocalPort()));
+            }
+            try (ShardCoordinator coord = ShardCoordinator.accept(server, shards, path.toString(), yIdx, chunkRows, listen >= 0 ? 0 : 60_000)) {
+                System.out.printf("Training on %d shards, %d features%n%n", shards, coord.cols());
+                StandardScaler scaler = null;
+                if (scale.equals("standard")) scaler = Instrumentation.time("scale", coord::fitScaler);
+                Instrumentation.time("fit", () -> coord.fit(model));
+                double[] w = model.getWeights(), theta = new double[w.length + 1];
+                theta[0] = model.getBias();
+                System.arraycopy(w, 0, theta, 1, w.length);
+                double[] acc;
+                try (Instrumentation.Stage st = Instrumentation.stage("evaluate")) {
+                    acc = coord.evaluate(theta); // in the scaled features the workers see
+                    st.rows((long) acc[4]);
+                }
+                if (scaler != null && foldScaling) model.foldScaling(scaler);
+                printParameters(model);
+
+                printScores(String.format(Locale.US, "== Training scores (%d rows) ==", (long) acc[4]), acc);
+                printScalingNote(scaler, foldScaling);
+                if (saveModel != null) saveModel(saveModel, model, foldScaling ? null : scaler);
+            }
+        } catch (IOException e) {
+            System.err.println("ERROR in sharded training: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("ERROR: " + e.getMessage());
+        } finally {
+            for (Process p : workers) {
+                try {
+                    if (!p.waitFor(5, TimeUnit.SECONDS)) p.destroyForcibly();
+                } catch (InterruptedException e) {
+                    p.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /** {@code --worker --connect host:port}: serves one shard until the coordinator is done. */
+    private static void runWorker(String connect) {
+        int colon = connect.lastIndexOf(':');
+        if (colon <= 0) {
+            System.err.println("ERROR: --worker needs --connect <host:port>.");
+            return;
+        }
+        try {
+            ShardWorker.run(connect.substring(0, colon), Integer.parseInt(connect.substring(colon + 1)));
+        } catch (IOException e) {
+            System.err.println("ERROR in shard worker: " + e.getMessage());
         }
     }
 
-    private static Map<String,String> parseArgs(String[] args) {
+    static Map<String,String> parseArgs(String[] args) {
         Map<String,String> m = new LinkedHashMap<>();
         for (int i=0; i<args.length; i++) {
             String a = args[i];
@@ -0,0 +1,293 @@
+package edu.eafit.oop.lr;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Compact binary columnar dataset. Layout (little-endian):
+ * <pre>
+ *   magic "LRCOLS01" | int version | int cols | long rows | long dataOffset
+ *   source: int len + UTF-8 bytes
+ *   cols x (int len + UTF-8 column name)
+ *   zero padding up to dataOffset (a multiple of 8)
+ *   cols x rows float64, one contiguous block per column
+ * </pre>
+ * The reader maps each column block and exposes it as a {@link DoubleBuffer}: nothing
+ * is parsed or converted when a file is opened. {@code source} is a free-form stamp
+ * (used by {@link CSVReader#readCached} to store the path, size and mtime of the CSV).
+ */
+public final class BinaryDataset {
+
+    private static final byte[] MAGIC = "LRCOLS01".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int FIXED_HEADER = 32;
+    /** Each column is mapped as one buffer, so it must stay under 2 GB. */
+    private static final long MAX_COLUMN_BYTES = Integer.MAX_VALUE;
+    static final int MAX_ROWS = (int) (MAX_COLUMN_BYTES / 8);
+
+    public final String[] headers;
+    private final String source;
+    private final int rows;
+    private final DoubleBuffer[] columns;
+
+    private BinaryDataset(String[] headers, String source, int rows, DoubleBuffer[] columns) {
+        this.headers = headers;
+        this.source = source;
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    public int rows() { return rows; }
+    public int cols() { return headers.length; }
+    public String source() { return source; }
+
+    /** Column {@code j} as a read-only buffer over the mapped file. */
+    public DoubleBuffer column(int j) { return columns[j].duplicate(); }
+
+    /** All columns as a view over the mapped file (no copy). */
+    public DataView view() {
+        int[] all = new int[columns.length];
+        for (int j=0; j<all.length; j++) all[j] = j;
+        return new MappedView(columns, all, null);
+    }
+
+    /** The mapped columns as a {@link CSVReader.DataFrame}, for the in-memory pipeline (no copy). */
+    public CSVReader.DataFrame frame() {
+        DoubleBuffer[] cols = new DoubleBuffer[columns.length];
+        for (int j=0; j<cols.length; j++) cols[j] = columns[j].duplicate();
+        return new CSVReader.DataFrame(headers, cols);
+    }
+
+    /**
+     * Rows [rows * shard / shards, rows * (shard + 1) / shards) as a {@link RowBlockSource}
+     * with column {@code target} as y, gathered from the mapped columns in blocks of
+     * {@code chunkRows}; use shard 0 of 1 for the whole file.
+     */
+    public RowBlockSource blocks(int target, int shard, int shards, int chunkRows) {
+        if (target < 0 || target >= columns.length) throw new IllegalArgumentException("Target column out of range: " + target);
+        if (columns.length < 2) throw new IllegalArgumentException("Need at least one feature and a target column");
+        if (shards <= 0 || shard < 0 || shard >= shards) throw new IllegalArgumentException("Bad shard " + shard + " of " + shards);
+        if (chunkRows <= 0) throw new IllegalArgumentException("chunkRows must be > 0");
+        int from = (int) ((long) rows * shard / shards), to = (int) ((long) rows * (shard + 1) / shards);
+        int n = columns.length - 1;
+        return new RowBlockSource() {
+            @Override public int cols() { return n; }
+            @Override public void forEach(BlockConsumer consumer) throws IOException {
+                int cap = Math.min(chunkRows, Math.max(1, to - from));
+                double[] x = new double[cap * n], y = new double[cap];
+                for (int b0=from; b0<to; b0+=cap) {
+                    int b1 = Math.min(to, b0 + cap);
+                    for (int j=0, f=0; j<columns.length; j++) {
+                        DoubleBuffer c = columns[j];
+                        if (j == target) {
+                            for (int i=b0; i<b1; i++) y[i - b0] = c.get(i);
+                            continue;
+                        }
+                        for (int i=b0, o=f; i<b1; i++, o+=n) x[o] = c.get(i);
+                        f++;
+                    }
+                    consumer.accept(x, y, b1 - b0);
+                }
+            }
+        };
+    }
+
+    /** Whether {@code path} starts with the dataset magic (only the first bytes are read). */
+    public static boolean isDataset(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (ch.size() < FIXED_HEADER) return false;
+            byte[] magic = new byte[MAGIC.length];
+            readAt(ch, 0, MAGIC.length).get(magic);
+            return Arrays.equals(magic, MAGIC);
+        }
+    }
+
+    /** Copies the columns onto the heap with bulk buffer reads; {@link #frame()} avoids the copy. */
+    public CSVReader.DataFrame toDataFrame() {
+        double[][] cols = new double[columns.length][rows];
+        for (int j=0; j<cols.length; j++) columns[j].duplicate().get(cols[j]);
+        return new CSVReader.DataFrame(headers, cols);
+    }
+
+    /**
+     * Writes {@code df} (rows in the frame's order) to {@code out}. The file is written
+     * next to its destination and moved into place, so readers never see a partial file.
+     */
+    public static void write(CSVReader.DataFrame df, Path out, String source) throws IOException {
+        int cols = df.cols();
+        long rows = df.rows();
+        if (rows > MAX_ROWS) throw new IOException("Cannot write " + rows + " rows; at most " + MAX_ROWS + " fit in one mapped column");
+        byte[] src = source.getBytes(StandardCharsets.UTF_8);
+        byte[][] names = new byte[cols][];
+        long headerLen = FIXED_HEADER + 4 + src.length;
+        for (int j=0; j<cols; j++) {
+            names[j] = df.headers[j].getBytes(StandardCharsets.UTF_8);
+            headerLen += 4 + names[j].length;
+        }
+        long dataOffset = (headerLen + 7) & ~7L;
+        if (dataOffset > Integer.MAX_VALUE) throw new IOException("Header too large");
+
+        ByteBuffer h = ByteBuffer.allocate((int) dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+        h.put(MAGIC).putInt(VERSION).putInt(cols).putLong(rows).putLong(dataOffset);
+        h.putInt(src.length).put(src);
+        for (byte[] nm : names) h.putInt(nm.length).put(nm);
+        h.clear();
+
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(ch, h);
+            ByteBuffer b = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            DataView v = df.view();
+            for (int j=0; j<cols; j++) {
+                double[] c = v.column(j);
+                for (int i=0; i<c.length; i++) {
+                    if (!b.hasRemaining()) { b.flip(); writeFully(ch, b); b.clear(); }
+                    b.putDouble(c[i]);
+                }
+            }
+            b.flip();
+            writeFully(ch, b);
+        }
+        Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Opens {@code path} and maps its columns. */
+    public static BinaryDataset open(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < FIXED_HEADER) throw new IOException("Not a dataset file: " + path);
+            ByteBuffer f = readAt(ch, 0, FIXED_HEADER);
+            byte[] magic = new byte[MAGIC.length];
+            f.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) throw new IOException("Not a dataset file: " + path);
+            int version = f.getInt();
+            if (version != VERSION) throw new IOException("Unsupported dataset version " + version);
+            int cols = f.getInt();
+            long rows = f.getLong();
+            long dataOffset = f.getLong();
+            if (cols <= 0 || rows < 0 || rows > Integer.MAX_VALUE - 8 || dataOffset < FIXED_HEADER
+                || dataOffset > Integer.MAX_VALUE || (dataOffset & 7) != 0) {
+                throw new IOException("Corrupt dataset header: " + path);
+            }
+            long colBytes = rows * 8;
+            if (colBytes > MAX_COLUMN_BYTES) throw new IOException("Dataset has " + rows + " rows; at most " + MAX_ROWS + " fit in one mapped column: " + path);
+            if (size != dataOffset + colBytes * cols) throw new IOException("Truncated dataset file: " + path);
+
+            ByteBuffer v = readAt(ch, FIXED_HEADER, (int) dataOffset - FIXED_HEADER);
+            String source = readString(v);
+            String[] headers = new String[cols];
+            for (int j=0; j<cols; j++) headers[j] = readString(v);
+
+            DoubleBuffer[] columns = new DoubleBuffer[cols];
+            for (int j=0; j<cols; j++) {
+                columns[j] = ch.map(FileChannel.MapMode.READ_ONLY, dataOffset + colBytes * j, colBytes)
+                               .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            }
+            return new BinaryDataset(headers, source, (int) rows, columns);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupt dataset header: " + path);
+        }
+    }
+
+    private static ByteBuffer readAt(FileChannel ch, long pos, int len) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(len).order(ByteOrder.LITTLE_ENDIAN);
+        while (b.hasRemaining()) {
+            if (ch.read(b, pos + b.position()) < 0) throw new IOException("Unexpected end of file");
+        }
+        b.flip();
+        return b;
+    }
+
+    private static String readString(ByteBuffer b) throws IOException {
+        int len = b.getInt();
+        if (len < 0 || len > b.remaining()) throw new IOException("Corrupt dataset header");
+        byte[] s = new byte[len];
+        b.get(s);
+        return new String(s, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) ch.write(b);
+    }
+
+    /**
+     * {@link DataView} over mapped column buffers: a subset of the columns, optionally seen
+     * through a row-index permutation, like {@link ColumnView} over heap arrays.
+     */
+    static final class MappedView implements DataView {
+        private final DoubleBuffer[] columns;
+        private final int[] cols;   // selected column indices
+        private final int[] rowIdx; // null = identity
+
+        MappedView(DoubleBuffer[] columns, int[] cols, int[] rowIdx) {
+            this.columns = columns;
+            this.cols = cols;
+            this.rowIdx = rowIdx;
+        }
+
+        @Override public int rows() {
+            if (rowIdx != null) return rowIdx.length;
+            return columns.length == 0 ? 0 : columns[0].limit();
+        }
+
+        @Override public int cols() { return cols.length; }
+
+        @Override public double get(int i, int j) {
+            return columns[cols[j]].get(rowIdx == null ? i : rowIdx[i]);
+        }
+
+        @Override public void copyRow(int i, double[] dst, int off) {
+            int r = rowIdx == null ? i : rowIdx[i];
+            for (int j=0; j<cols.length; j++) dst[off + j] = columns[cols[j]].get(r);
+        }
+
+        @Override public void copyRows(int from, int to, double[] dst) {
+            int n = cols.length;
+            for (int j=0; j<n; j++) {
+                DoubleBuffer c = columns[cols[j]];
+                if (rowIdx == null) {
+                    for (int i=from, o=j; i<to; i++, o+=n) dst[o] = c.get(i);
+                } else {
+                    for (int i=from, o=j; i<to; i++, o+=n) dst[o] = c.get(rowIdx[i]);
+                }
+            }
+        }
+
+        @Override public void gatherRows(int[] idx, int from, int to, double[] dst) {
+            int n = cols.length;
+            for (int j=0; j<n; j++) {
+                DoubleBuffer c = columns[cols[j]];
+                for (int r=from, o=j; r<to; r++, o+=n) {
+                    int i = idx[r];
+                    dst[o] = c.get(rowIdx == null ? i : rowIdx[i]);
+                }
+            }
+        }
+
+        /** Composes the row selection with this view's own row index. */
+        @Override public DataView select(int[] rows) {
+            int[] idx = new int[rows.length];
+            for (int i=0; i<idx.length; i++) idx[i] = rowIdx == null ? rows[i] : rowIdx[rows[i]];
+            return new MappedView(columns, cols, idx);
+        }
+
+        @Override public double[] column(int j) {
+            DoubleBuffer c = columns[cols[j]];
+            double[] v = new double[rows()];
+            if (rowIdx == null) c.get(0, v);
+            else for (int i=0; i<v.length; i++) v[i] = c.get(rowIdx[i]);
+            return v;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package edu.eafit.oop.lr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * {@link RowBlockSource} over a CSV file that is re-read on every pass. Rows are parsed
+ * by {@link MappedCSVParser#stream} into a block of at most {@code chunkRows} rows, so
+ * heap use is bounded by the chunk size and not by the file size.
+ *
+ * Train/test membership is decided per row from a hash of (seed, row number), which
+ * is reproducible across passes and runs without shuffling anything in memory.
+ * {@link #shard} instead restricts the source to one line-aligned byte range of the
+ * file, so separate processes can each read their own part.
+ */
+public final class CSVBlockSource implements RowBlockSource {
+
+    private static final int ALL = 0, TRAIN = 1, TEST = 2;
+
+    public final String[] headers;
+    private final Path path;
+    private final int target;
+    private final int chunkRows;
+    private final int subset;
+    private final double trainRatio;
+    private final long seed;
+    private final int shard, shards;
+
+    private CSVBlockSource(Path path, String[] headers, int target, int chunkRows,
+                           int subset, double trainRatio, long seed) {
+        this(path, headers, target, chunkRows, subset, trainRatio, seed, 0, 1);
+    }
+
+    private CSVBlockSource(Path path, String[] headers, int target, int chunkRows,
+                           int subset, double trainRatio, long seed, int shard, int shards) {
+        this.path = path;
+        this.headers = headers;
+        this.target = target;
+        this.chunkRows = chunkRows;
+        this.subset = subset;
+        this.trainRatio = trainRatio;
+        this.seed = seed;
+        this.shard = shard;
+        this.shards = shards;
+    }
+
+    /** Opens {@code path} (only the header is read) with column {@code target} as y. */
+    public static CSVBlockSource open(String path, int target, int chunkRows) throws IOException {
+        if (chunkRows <= 0) throw new IllegalArgumentException("chunkRows must be > 0");
+        Path p = Paths.get(path);
+        String[] headers = MappedCSVParser.headers(p);
+        if (headers.length < 2) throw new IllegalArgumentException("Need at least one feature and a target column");
+        if (target < 0 || target >= headers.length) throw new IllegalArgumentException("Target column out of range: " + target);
+        return new CSVBlockSource(p, headers, target, chunkRows, ALL, 1.0, 0L);
+    }
+
+    public int indexOfColumn(String name) {
+        for (int i=0; i<headers.length; i++) {
+            if (headers[i].equalsIgnoreCase(name)) return i;
+        }
+        return -1;
+    }
+
+    /** Rows hashed into the first {@code trainRatio} fraction. */
+    public CSVBlockSource train(double trainRatio, long seed) {
+        return new CSVBlockSource(path, headers, target, chunkRows, TRAIN, trainRatio, seed);
+    }
+
+    /** The complement of {@link #train(double, long)} for the same arguments. */
+    public CSVBlockSource test(double trainRatio, long seed) {
+        return new CSVBlockSource(path, headers, target, chunkRows, TEST, trainRatio, seed);
+    }
+
+    /**
+     * The rows of byte range {@code shard} of {@code shards} (see {@link MappedCSVParser});
+     * together the shards hold every row once. Row numbers restart in each shard, so this
+     * is only defined on the whole file, not on a train/test subset.
+     */
+    public CSVBlockSource shard(int shard, int shards) {
+        if (subset != ALL || this.shards != 1) throw new IllegalStateException("Only the whole file can be sharded");
+        if (shards <= 0 || shard < 0 || shard >= shards) throw new IllegalArgumentException("Bad shard " + shard + " of " + shards);
+        return new CSVBlockSource(path, headers, target, chunkRows, ALL, 1.0, 0L, shard, shards);
+    }
+
+    /** Deterministic train/test assignment of data row {@code row} (0-based, after dropped rows). */
+    public static boolean inTrain(long row, long seed, double trainRatio) {
+        // SplitMix64 finalizer over (seed, row): a uniform 53-bit fraction per row
+        long z = seed + (row + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53 < trainRatio;
+    }
+
+    @Override public int cols() { return headers.length - 1; }
+
+    @Override
+    public void forEach(BlockConsumer consumer) throws IOException {
+        int n = cols();
+        double[] x = new double[chunkRows * n];
+        double[] y = new double[chunkRows];
+        int[] fill = new int[1];
+        MappedCSVParser.stream(path, shard, shards, (row, index) -> {
+            if (subset != ALL && inTrain(index, seed, trainRatio) != (subset == TRAIN)) return;
+            int r = fill[0];
+            int o = r * n;
+            for (int j=0; j<row.length; j++) {
+                if (j == target) y[r] = row[j];
+                else x[o++] = row[j];
+            }
+            if (++fill[0] == chunkRows) {
+                consumer.accept(x, y, chunkRows);
+                fill[0] = 0;
+            }
+        });
+        if (fill[0] > 0) consumer.accept(x, y, fill[0]);
+    }
+}
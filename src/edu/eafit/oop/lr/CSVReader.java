@@ -1,21 +1,48 @@
 package edu.eafit.oop.lr;
 
 import java.io.*;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 
 /** Minimal CSV loader that accepts comma or semicolon as delimiter. */
 public class CSVReader {
 
+    /**
+     * Columnar table: one contiguous double[] per column (or one mapped buffer per column
+     * of a {@link BinaryDataset}), optionally seen through a row-index permutation. Splits
+     * and feature/target projections are views that share the columns instead of copying them.
+     */
     public static class DataFrame {
         public final String[] headers;
-        public final double[][] data; // rows x cols
+        private final double[][] columns;    // cols x rows, or null when mapped
+        private final DoubleBuffer[] mapped; // columns of a BinaryDataset, or null
+        private final int[] rowIndex;        // null = rows in storage order
 
-        DataFrame(String[] headers, double[][] data) {
+        DataFrame(String[] headers, double[][] columns) {
+            this(headers, columns, null, null);
+        }
+
+        /** Frame over the mapped columns of a {@link BinaryDataset} (nothing is copied). */
+        DataFrame(String[] headers, DoubleBuffer[] mapped) {
+            this(headers, null, mapped, null);
+        }
+
+        private DataFrame(String[] headers, double[][] columns, DoubleBuffer[] mapped, int[] rowIndex) {
             this.headers = headers;
-            this.data = data;
+            this.columns = columns;
+            this.mapped = mapped;
+            this.rowIndex = rowIndex;
         }
 
-        public int rows() { return data.length; }
+        public int rows() {
+            if (rowIndex != null) return rowIndex.length;
+            if (mapped != null) return mapped.length == 0 ? 0 : mapped[0].limit();
+            return columns.length == 0 ? 0 : columns[0].length;
+        }
         public int cols() { return headers.length; }
 
         public int indexOfColumn(String name) {
@@ -25,85 +52,125 @@ public class CSVReader {
             return -1;
         }
 
+        public double get(int row, int col) {
+            int r = rowIndex == null ? row : rowIndex[row];
+            return mapped != null ? mapped[col].get(r) : columns[col][r];
+        }
+
         public double[] columnAsVector(int colIdx) {
-            double[] v = new double[rows()];
-            for (int i=0; i<rows(); i++) v[i] = data[i][colIdx];
-            return v;
+            return view(new int[] { colIdx }).column(0);
+        }
+
+        /** All columns as a view (no copy). */
+        public DataView view() {
+            int[] all = new int[cols()];
+            for (int j=0; j<all.length; j++) all[j] = j;
+            return view(all);
+        }
+
+        /** The given columns, in the given order, as a view (no copy). */
+        public DataView view(int[] cols) {
+            if (mapped != null) return new BinaryDataset.MappedView(mapped, cols, rowIndex);
+            return new ColumnView(columns, cols, rowIndex);
+        }
+
+        /** Every column except {@code skipCol} as a view (no copy). */
+        public DataView featureView(int skipCol) {
+            int[] keep = new int[cols() - 1];
+            int t = 0;
+            for (int j=0; j<cols(); j++) if (j != skipCol) keep[t++] = j;
+            return view(keep);
+        }
+
+        /**
+         * Row-major copy of every row (rows x cols), in this frame's row order. Replaces the
+         * former public {@code data} field, which went away when storage became columnar;
+         * each call copies, so prefer {@link #view()}.
+         */
+        @Deprecated
+        public double[][] data() {
+            return view().toArray();
         }
 
+        /** Row-major copy of every column except {@code skipCol}. Prefer {@link #featureView}. */
         public double[][] featuresExcept(int skipCol) {
-            double[][] X = new double[rows()][cols()-1];
-            for (int i=0; i<rows(); i++) {
-                int t = 0;
-                for (int j=0; j<cols(); j++) {
-                    if (j == skipCol) continue;
-                    X[i][t++] = data[i][j];
-                }
-            }
-            return X;
+            return featureView(skipCol).toArray();
+        }
+
+        /** Rows [from, to) of this frame as a frame sharing the same columns. */
+        public DataFrame slice(int from, int to) {
+            int[] idx = new int[to - from];
+            for (int i=from; i<to; i++) idx[i - from] = rowIndex == null ? i : rowIndex[i];
+            return new DataFrame(headers, columns, mapped, idx);
         }
 
+        /** Shuffled split into two frames that share this frame's columns. */
         public DataFrame[] trainTestSplit(double trainRatio, long seed) {
             int n = rows();
-            Integer[] idx = new Integer[n];
-            for (int i=0; i<n; i++) idx[i] = i;
+            int[] idx = new int[n];
+            for (int i=0; i<n; i++) idx[i] = rowIndex == null ? i : rowIndex[i];
+            // Same swap sequence as Collections.shuffle, so a seed gives the same split as before
             Random r = new Random(seed);
-            Collections.shuffle(Arrays.asList(idx), r);
+            for (int i=n; i>1; i--) {
+                int k = r.nextInt(i);
+                int t = idx[i-1]; idx[i-1] = idx[k]; idx[k] = t;
+            }
             int nTrain = Math.max(1, (int)Math.round(n * trainRatio));
 
-            double[][] train = new double[nTrain][cols()];
-            double[][] test  = new double[n - nTrain][cols()];
-
-            for (int i=0; i<nTrain; i++) train[i] = data[idx[i]];
-            for (int i=nTrain; i<n; i++) test[i - nTrain] = data[idx[i]];
-
             return new DataFrame[] {
-                new DataFrame(headers, train),
-                new DataFrame(headers, test)
+                new DataFrame(headers, columns, mapped, Arrays.copyOfRange(idx, 0, nTrain)),
+                new DataFrame(headers, columns, mapped, Arrays.copyOfRange(idx, nTrain, n))
             };
         }
     }
 
+    /**
+     * Reads a CSV with a header row. Parsing is done by {@link MappedCSVParser} on a
+     * memory-mapped view of the file.
+     */
     public static DataFrame read(String path) throws IOException {
-        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-            String headerLine = br.readLine();
-            if (headerLine == null) throw new IOException("Empty file");
-            String delim = headerLine.contains(";") ? ";" : ",";
-            String[] headers = Arrays.stream(headerLine.trim().split("\\s*" + java.util.regex.Pattern.quote(delim) + "\\s*"))
-                                     .toArray(String[]::new);
-            List<double[]> rows = new ArrayList<>();
-            String line;
-            int expectedCols = headers.length;
-            int lineNo = 1;
-            while ((line = br.readLine()) != null) {
-                lineNo++;
-                line = line.trim();
-                if (line.isEmpty()) continue;
-                String[] parts = line.split(java.util.regex.Pattern.quote(delim));
-                if (parts.length != expectedCols) {
-                    throw new IOException("Row " + lineNo + " has " + parts.length +
-                        " columns, expected " + expectedCols);
-                }
-                double[] row = new double[expectedCols];
-                for (int i=0; i<expectedCols; i++) {
-                    String s = parts[i].trim().replace("\"","");
-                    if (s.isEmpty() || s.equalsIgnoreCase("NA")) {
-                        row[i] = Double.NaN;
-                    } else {
-                        row[i] = Double.parseDouble(s);
-                    }
-                }
-                rows.add(row);
-            }
-            // Drop rows with NaN
-            List<double[]> clean = new ArrayList<>();
-            for (double[] r : rows) {
-                boolean ok = true;
-                for (double v : r) if (Double.isNaN(v)) { ok = false; break; }
-                if (ok) clean.add(r);
+        return toDataFrame(MappedCSVParser.parse(Paths.get(path), false));
+    }
+
+    /**
+     * Same as {@link #read(String)}, but the file is split into line-aligned byte ranges
+     * that are parsed concurrently on the common fork-join pool and stitched back in order.
+     */
+    public static DataFrame readParallel(String path) throws IOException {
+        return toDataFrame(MappedCSVParser.parse(Paths.get(path), true));
+    }
+
+    /**
+     * Reads {@code path} through a {@link BinaryDataset} cache kept in {@code cacheDir}.
+     * The cache entry is keyed on the absolute path, size and modification time of the
+     * CSV; when it matches, the returned frame reads the mapped binary file directly
+     * (nothing is parsed or copied onto the heap). Otherwise the CSV is parsed and the
+     * cache entry is rewritten; failing to write it is an error like failing to read.
+     */
+    public static DataFrame readCached(String path, Path cacheDir, boolean parallel) throws IOException {
+        Path src = Paths.get(path).toAbsolutePath().normalize();
+        BasicFileAttributes attrs = Files.readAttributes(src, BasicFileAttributes.class);
+        String key = src + "|" + attrs.size() + "|" + attrs.lastModifiedTime().toMillis();
+        Path bin = cacheDir.resolve(src.getFileName() + "-" + Integer.toHexString(src.toString().hashCode()) + ".lrc");
+        if (Files.isRegularFile(bin)) {
+            try {
+                BinaryDataset cached = BinaryDataset.open(bin);
+                if (cached.source().equals(key)) return cached.frame();
+            } catch (IOException e) {
+                // unreadable or from an older format: rebuild it below
             }
-            double[][] data = clean.toArray(new double[0][]);
-            return new DataFrame(headers, data);
         }
+        DataFrame df = toDataFrame(MappedCSVParser.parse(src, parallel));
+        try {
+            Files.createDirectories(cacheDir);
+            BinaryDataset.write(df, bin, key);
+        } catch (IOException e) {
+            throw new IOException("Could not write CSV cache " + bin + ": " + e.getMessage(), e);
+        }
+        return df;
+    }
+
+    private static DataFrame toDataFrame(MappedCSVParser.Result r) {
+        return new DataFrame(r.headers, r.columns);
     }
 }
@@ -0,0 +1,72 @@
+package edu.eafit.oop.lr;
+
+/**
+ * {@link DataView} over column arrays: a subset of the columns, optionally seen
+ * through a row-index permutation. Nothing is copied; row blocks are gathered
+ * column by column so each column array is walked in order.
+ */
+final class ColumnView implements DataView {
+    private final double[][] columns; // all columns of the frame
+    private final int[] cols;         // selected column indices
+    private final int[] rowIdx;       // null = identity
+
+    ColumnView(double[][] columns, int[] cols, int[] rowIdx) {
+        this.columns = columns;
+        this.cols = cols;
+        this.rowIdx = rowIdx;
+    }
+
+    @Override public int rows() {
+        if (rowIdx != null) return rowIdx.length;
+        return columns.length == 0 ? 0 : columns[0].length;
+    }
+
+    @Override public int cols() { return cols.length; }
+
+    @Override public double get(int i, int j) {
+        return columns[cols[j]][rowIdx == null ? i : rowIdx[i]];
+    }
+
+    @Override public void copyRow(int i, double[] dst, int off) {
+        int r = rowIdx == null ? i : rowIdx[i];
+        for (int j=0; j<cols.length; j++) dst[off + j] = columns[cols[j]][r];
+    }
+
+    @Override public void copyRows(int from, int to, double[] dst) {
+        int n = cols.length;
+        for (int j=0; j<n; j++) {
+            double[] c = columns[cols[j]];
+            if (rowIdx == null) {
+                for (int i=from, o=j; i<to; i++, o+=n) dst[o] = c[i];
+            } else {
+                for (int i=from, o=j; i<to; i++, o+=n) dst[o] = c[rowIdx[i]];
+            }
+        }
+    }
+
+    @Override public void gatherRows(int[] idx, int from, int to, double[] dst) {
+        int n = cols.length;
+        for (int j=0; j<n; j++) {
+            double[] c = columns[cols[j]];
+            for (int r=from, o=j; r<to; r++, o+=n) {
+                int i = idx[r];
+                dst[o] = c[rowIdx == null ? i : rowIdx[i]];
+            }
+        }
+    }
+
+    /** Composes the row selection with this view's own row index. */
+    @Override public DataView select(int[] rows) {
+        int[] idx = new int[rows.length];
+        for (int i=0; i<idx.length; i++) idx[i] = rowIdx == null ? rows[i] : rowIdx[rows[i]];
+        return new ColumnView(columns, cols, idx);
+    }
+
+    @Override public double[] column(int j) {
+        double[] c = columns[cols[j]];
+        if (rowIdx == null) return c.clone();
+        double[] v = new double[rowIdx.length];
+        for (int i=0; i<v.length; i++) v[i] = c[rowIdx[i]];
+        return v;
+    }
+}
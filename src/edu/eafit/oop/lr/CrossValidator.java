@@ -0,0 +1,262 @@
+package edu.eafit.oop.lr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * k-fold cross-validation over a grid of hyperparameters. All folds x candidates run
+ * concurrently on a fixed-size thread pool and share one dataset: folds are row
+ * selections of the same {@link DataView}, nothing is copied.
+ *
+ * For the normal equation the rows are read once: one {@link GramAccumulator} per fold
+ * plus their sum; the training statistics of fold f are the totals minus fold f, and
+ * every ridge value is a solve on those statistics.
+ */
+public final class CrossValidator {
+
+    /** One hyperparameter combination. */
+    public static final class Params {
+        public final LinearRegression.TrainingMethod method;
+        public final double ridge;
+        public final double learningRate;
+        public final int epochs;
+
+        public Params(LinearRegression.TrainingMethod method, double ridge, double learningRate, int epochs) {
+            this.method = method;
+            this.ridge = ridge;
+            this.learningRate = learningRate;
+            this.epochs = epochs;
+        }
+
+        @Override public String toString() {
+            if (method == LinearRegression.TrainingMethod.NORMAL_EQUATION) return "ridge=" + ridge;
+            if (method == LinearRegression.TrainingMethod.CONJUGATE_GRADIENT) return "ridge=" + ridge + " iterations=" + epochs;
+            return "alpha=" + learningRate + " epochs=" + epochs;
+        }
+    }
+
+    /**
+     * Fold-averaged scores of one candidate (NaN if it diverged on some fold);
+     * {@code nanos} is the summed fit+score time of its folds.
+     */
+    public static final class Result {
+        public final Params params;
+        public final double meanR2, stdR2, meanMse, stdMse, meanMae, stdMae;
+        public final long nanos;
+
+        Result(Params params, double[] r2, double[] mse, double[] mae, long nanos) {
+            this.params = params;
+            this.meanR2 = VectorStats.mean(r2);   this.stdR2 = VectorStats.std(r2);
+            this.meanMse = VectorStats.mean(mse); this.stdMse = VectorStats.std(mse);
+            this.meanMae = VectorStats.mean(mae); this.stdMae = VectorStats.std(mae);
+            this.nanos = nanos;
+        }
+    }
+
+    private final int folds;
+    private final long seed;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean scale = false;
+
+    public CrossValidator(int folds, long seed) {
+        if (folds < 2) throw new IllegalArgumentException("folds must be >= 2");
+        this.folds = folds;
+        this.seed = seed;
+    }
+
+    /** Size of the worker pool (default: available processors). */
+    public void setThreads(int t) {
+        if (t <= 0) throw new IllegalArgumentException("threads must be > 0");
+        this.threads = t;
+    }
+
+    /** Standardize features with statistics of each training fold only. */
+    public void setScale(boolean s) { this.scale = s; }
+
+    /**
+     * Candidates for {@code method}: one per ridge value for the normal equation, ridge
+     * values times iteration limits for CG, the product of learning rates and epoch
+     * counts for GD/SGD (ridge does not apply there).
+     */
+    public static List<Params> grid(LinearRegression.TrainingMethod method, double[] ridges, double[] rates, int[] epochs) {
+        List<Params> g = new ArrayList<>();
+        if (method == LinearRegression.TrainingMethod.NORMAL_EQUATION) {
+            for (double r : ridges) g.add(new Params(method, r, 0, 0));
+        } else if (method == LinearRegression.TrainingMethod.CONJUGATE_GRADIENT) {
+            for (double r : ridges)
+                for (int e : epochs) g.add(new Params(method, r, 0, e));
+        } else {
+            for (double a : rates)
+                for (int e : epochs) g.add(new Params(method, 0, a, e));
+        }
+        return g;
+    }
+
+    /** Evaluates every candidate on every fold; results are in candidate order. */
+    public List<Result> run(DataView X, double[] y, List<Params> candidates) {
+        int m = X.rows();
+        if (m < folds) throw new IllegalArgumentException("Need at least " + folds + " rows, got " + m);
+        if (y.length != m) throw new IllegalArgumentException("X.rows != y.length");
+        int[][] test = new int[folds][], train = new int[folds][];
+        splitFolds(m, test, train);
+
+        int c = candidates.size();
+        double[][] r2 = new double[c][folds], mse = new double[c][folds], mae = new double[c][folds];
+        long[] nanos = new long[c];
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, c * folds));
+        try {
+            // Per-fold statistics for the normal equation, built once and shared by every ridge value
+            GramAccumulator[] foldStats = null;
+            GramAccumulator total = null;
+            double[] shift = new double[X.cols()];
+            if (candidates.stream().anyMatch(p -> p.method == LinearRegression.TrainingMethod.NORMAL_EQUATION)) {
+                // With scaling, the rows are accumulated centred on the global mean, so the per-fold
+                // centring in fitNormal subtracts small numbers instead of cancelling two huge ones.
+                // Sparse matrices keep their nonzero-only path and are accumulated as they are.
+                DataView Xs = X;
+                if (scale && !(X instanceof CsrMatrix)) {
+                    shift = StandardScaler.Moments.of(X).mean;
+                    double[] ones = new double[shift.length];
+                    Arrays.fill(ones, 1.0);
+                    Xs = StandardScaler.of(shift, ones).transformView(X);
+                }
+                DataView src = Xs;
+                List<Future<GramAccumulator>> fs = new ArrayList<>();
+                for (int f=0; f<folds; f++) {
+                    int[] rows = test[f];
+                    fs.add(pool.submit(() -> GramAccumulator.of(src.select(rows), select(y, rows))));
+                }
+                foldStats = new GramAccumulator[folds];
+                total = new GramAccumulator(X.cols());
+                for (int f=0; f<folds; f++) {
+                    foldStats[f] = fs.get(f).get();
+                    total.merge(foldStats[f]);
+                }
+            }
+
+            List<Future<Long>> tasks = new ArrayList<>();
+            for (int k=0; k<c; k++) {
+                for (int f=0; f<folds; f++) {
+                    Params p = candidates.get(k);
+                    int ci = k, fi = f;
+                    GramAccumulator trainStats = null;
+                    if (p.method == LinearRegression.TrainingMethod.NORMAL_EQUATION) {
+                        trainStats = total.copy();
+                        trainStats.subtract(foldStats[f]);
+                    }
+                    GramAccumulator ts = trainStats;
+                    double[] sh = shift;
+                    tasks.add(pool.submit(() -> {
+                        long t0 = System.nanoTime();
+                        DataView Xte = X.select(test[fi]);
+                        double[] yte = select(y, test[fi]);
+                        LinearRegression model;
+                        try {
+                            model = ts != null ? fitNormal(p, ts, sh) : fitIterative(p, X.select(train[fi]), select(y, train[fi]));
+                        } catch (IllegalStateException diverged) {
+                            r2[ci][fi] = mse[ci][fi] = mae[ci][fi] = Double.NaN;
+                            return System.nanoTime() - t0;
+                        }
+                        double[] yhat = model.predict(Xte);
+                        r2[ci][fi] = VectorStats.r2(yte, yhat);
+                        mse[ci][fi] = VectorStats.mse(yte, yhat);
+                        mae[ci][fi] = VectorStats.mae(yte, yhat);
+                        return System.nanoTime() - t0;
+                    }));
+                }
+            }
+            for (int t=0; t<tasks.size(); t++) nanos[t / folds] += tasks.get(t).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Cross-validation interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<Result> out = new ArrayList<>(c);
+        for (int k=0; k<c; k++) out.add(new Result(candidates.get(k), r2[k], mse[k], mae[k], nanos[k]));
+        return out;
+    }
+
+    /**
+     * Normal equation from training-fold statistics; scaling is applied to the statistics, then folded back.
+     * {@code stats} were accumulated from rows minus {@code shift}, so its means are relative to the shift.
+     */
+    private LinearRegression fitNormal(Params p, GramAccumulator stats, double[] shift) {
+        LinearRegression model = new LinearRegression(p.method);
+        model.setRidge(p.ridge);
+        if (!scale) {
+            model.fit(stats);
+            return model;
+        }
+        int n = stats.features();
+        double cnt = stats.count();
+        double[] sums = stats.columnSums(), mean = new double[n], std = new double[n];
+        double[] g = stats.gram();
+        for (int j=0; j<n; j++) {
+            mean[j] = sums[j] / cnt;
+            double var = (g[j*n + j] - cnt * mean[j] * mean[j]) / Math.max(1, cnt - 1);
+            std[j] = var > 0 ? Math.sqrt(var) : 1.0;
+        }
+        model.fit(stats.standardized(mean, std));
+        for (int j=0; j<n; j++) mean[j] += shift[j];
+        model.foldScaling(StandardScaler.of(mean, std));
+        return model;
+    }
+
+    private LinearRegression fitIterative(Params p, DataView Xtr, double[] ytr) {
+        LinearRegression model = new LinearRegression(p.method);
+        model.setLearningRate(p.learningRate);
+        model.setEpochs(p.epochs);
+        model.setRidge(p.ridge);
+        model.setSeed(seed);
+        if (!scale) {
+            model.fit(Xtr, ytr);
+            return model;
+        }
+        StandardScaler s = new StandardScaler();
+        s.fit(Xtr);
+        model.fit(s.transformView(Xtr), ytr);
+        model.foldScaling(s);
+        return model;
+    }
+
+    /** Shuffles 0..m-1 with the seed and cuts it into contiguous folds; each fold is sorted for locality. */
+    private void splitFolds(int m, int[][] test, int[][] train) {
+        int[] idx = new int[m];
+        for (int i=0; i<m; i++) idx[i] = i;
+        Random r = new Random(seed);
+        for (int i=m-1; i>0; i--) {
+            int k = r.nextInt(i + 1);
+            int t = idx[i]; idx[i] = idx[k]; idx[k] = t;
+        }
+        for (int f=0; f<folds; f++) {
+            int a = (int) ((long) m * f / folds), b = (int) ((long) m * (f + 1) / folds);
+            test[f] = Arrays.copyOfRange(idx, a, b);
+            Arrays.sort(test[f]);
+        }
+        for (int f=0; f<folds; f++) {
+            int[] tr = new int[m - test[f].length];
+            int t = 0;
+            for (int g=0; g<folds; g++) if (g != f) for (int i : test[g]) tr[t++] = i;
+            Arrays.sort(tr);
+            train[f] = tr;
+        }
+    }
+
+    private static double[] select(double[] y, int[] rows) {
+        double[] v = new double[rows.length];
+        for (int i=0; i<v.length; i++) v[i] = y[rows[i]];
+        return v;
+    }
+}
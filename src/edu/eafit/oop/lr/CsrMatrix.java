@@ -0,0 +1,198 @@
+package edu.eafit.oop.lr;
+
+import java.util.Arrays;
+
+/**
+ * Sparse m x n matrix in compressed sparse row (CSR) form: the nonzeros of row r are
+ * values[rowPtr[r] .. rowPtr[r+1]) at columns colIdx[same range], in increasing column
+ * order. Memory is O(nnz + m). Like {@link ColumnView}, rows may be seen through a
+ * row-index array, so {@link #select} is a view that shares the nonzero arrays.
+ *
+ * As a {@link DataView} it densifies rows on demand, so every consumer works; the hot
+ * paths ({@link GramAccumulator}, {@link GradientEvaluator}, {@link LinearRegression#predict}
+ * and {@link StandardScaler} in scale-only mode) read the nonzeros directly instead.
+ */
+public final class CsrMatrix implements DataView {
+
+    private final int cols;
+    private final int[] rowPtr;
+    private final int[] colIdx;
+    private final double[] values;
+    private final int[] rowIdx; // null = storage order
+
+    public CsrMatrix(int cols, int[] rowPtr, int[] colIdx, double[] values) {
+        this(cols, rowPtr, colIdx, values, null);
+        if (cols < 0 || rowPtr.length == 0 || rowPtr[0] != 0) throw new IllegalArgumentException("Bad CSR row pointers");
+        int nnz = rowPtr[rowPtr.length - 1];
+        if (colIdx.length < nnz || values.length < nnz) throw new IllegalArgumentException("CSR arrays shorter than nnz = " + nnz);
+        for (int r=0; r+1<rowPtr.length; r++) {
+            if (rowPtr[r+1] < rowPtr[r]) throw new IllegalArgumentException("Row pointers decrease at row " + r);
+            for (int k=rowPtr[r]; k<rowPtr[r+1]; k++) {
+                int c = colIdx[k];
+                if (c < 0 || c >= cols || (k > rowPtr[r] && c <= colIdx[k-1])) {
+                    throw new IllegalArgumentException("Row " + r + ": column indices must be increasing and in [0, " + cols + ")");
+                }
+            }
+        }
+    }
+
+    private CsrMatrix(int cols, int[] rowPtr, int[] colIdx, double[] values, int[] rowIdx) {
+        this.cols = cols;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.values = values;
+        this.rowIdx = rowIdx;
+    }
+
+    /** Nonzeros of a dense view (exact zeros are dropped). */
+    public static CsrMatrix fromDense(DataView X) {
+        int m = X.rows(), n = X.cols();
+        Builder b = new Builder(n);
+        double[] row = new double[n];
+        for (int i=0; i<m; i++) {
+            X.copyRow(i, row, 0);
+            b.addDenseRow(row, 0);
+        }
+        return b.build();
+    }
+
+    @Override public int rows() { return rowIdx != null ? rowIdx.length : rowPtr.length - 1; }
+    @Override public int cols() { return cols; }
+
+    /** Stored nonzeros in the rows of this matrix. */
+    public long nnz() {
+        if (rowIdx == null) return rowPtr[rowPtr.length - 1];
+        long s = 0;
+        for (int r : rowIdx) s += rowPtr[r+1] - rowPtr[r];
+        return s;
+    }
+
+    /** nnz / (rows * cols). */
+    public double density() {
+        long cells = (long) rows() * cols;
+        return cells == 0 ? 0.0 : (double) nnz() / cells;
+    }
+
+    // Raw access for the sparse fast paths: the nonzeros of row i are start(i) .. end(i)
+    int start(int i) { return rowPtr[rowIdx == null ? i : rowIdx[i]]; }
+    int end(int i) { return rowPtr[(rowIdx == null ? i : rowIdx[i]) + 1]; }
+    int[] colIdx() { return colIdx; }
+    double[] values() { return values; }
+
+    /** sum_k w[wOff + col_k] * v_k over the nonzeros of row i. */
+    double dotRow(int i, double[] w, int wOff) {
+        double s = 0;
+        for (int k=start(i), e=end(i); k<e; k++) s += w[wOff + colIdx[k]] * values[k];
+        return s;
+    }
+
+    /** y[yOff + col_k] += alpha * v_k over the nonzeros of row i. */
+    void axpyRow(int i, double alpha, double[] y, int yOff) {
+        for (int k=start(i), e=end(i); k<e; k++) y[yOff + colIdx[k]] += alpha * values[k];
+    }
+
+    /** Same structure with every value in column j divided by {@code div[j]}; row pointers and indices are shared. */
+    public CsrMatrix divideColumns(double[] div) {
+        if (div.length != cols) throw new IllegalArgumentException("Expected " + cols + " divisors, got " + div.length);
+        int nnz = rowPtr[rowPtr.length - 1];
+        double[] v = new double[nnz];
+        for (int k=0; k<nnz; k++) v[k] = values[k] / div[colIdx[k]];
+        return new CsrMatrix(cols, rowPtr, colIdx, v, rowIdx);
+    }
+
+    @Override public double get(int i, int j) {
+        int s = start(i), e = end(i);
+        int k = Arrays.binarySearch(colIdx, s, e, j);
+        return k >= 0 ? values[k] : 0.0;
+    }
+
+    @Override public void copyRow(int i, double[] dst, int off) {
+        Arrays.fill(dst, off, off + cols, 0.0);
+        for (int k=start(i), e=end(i); k<e; k++) dst[off + colIdx[k]] = values[k];
+    }
+
+    @Override public double[] column(int j) {
+        int m = rows();
+        double[] v = new double[m];
+        for (int i=0; i<m; i++) {
+            int k = Arrays.binarySearch(colIdx, start(i), end(i), j);
+            if (k >= 0) v[i] = values[k];
+        }
+        return v;
+    }
+
+    /** Rows rows[0..k) as a CSR view sharing the nonzero arrays. */
+    @Override public DataView select(int[] rows) {
+        int[] idx = new int[rows.length];
+        for (int i=0; i<idx.length; i++) idx[i] = rowIdx == null ? rows[i] : rowIdx[rows[i]];
+        return new CsrMatrix(cols, rowPtr, colIdx, values, idx);
+    }
+
+    /** Appends rows one at a time; arrays grow geometrically, so building is O(nnz). */
+    public static final class Builder {
+        private int cols;
+        private final boolean fixedCols;
+        private int rows;
+        private int nnz;
+        private int[] rowPtr = new int[1024];
+        private int[] colIdx = new int[4096];
+        private double[] values = new double[4096];
+
+        /** Builder for exactly {@code cols} columns. */
+        public Builder(int cols) {
+            this.cols = cols;
+            this.fixedCols = true;
+        }
+
+        /** Builder whose column count is the largest index seen plus one. */
+        public Builder() {
+            this.fixedCols = false;
+        }
+
+        /** Appends a row given as a dense array (cols() values from {@code off}); zeros are skipped. */
+        public void addDenseRow(double[] row, int off) {
+            for (int j=0; j<cols; j++) {
+                double v = row[off + j];
+                if (v != 0.0) put(j, v);
+            }
+            endRow();
+        }
+
+        /** Appends a row from its first {@code k} (column, value) pairs; columns must increase. */
+        public void addRow(int[] idx, double[] val, int k) {
+            int last = -1;
+            for (int t=0; t<k; t++) {
+                int c = idx[t];
+                if (c <= last) throw new IllegalArgumentException("Row " + rows + ": column indices must be increasing");
+                last = c;
+                if (fixedCols && c >= cols) throw new IllegalArgumentException("Row " + rows + ": column " + c + " out of range");
+                if (!fixedCols && c >= cols) cols = c + 1;
+                if (val[t] != 0.0) put(c, val[t]);
+            }
+            endRow();
+        }
+
+        public int rows() { return rows; }
+
+        public CsrMatrix build() {
+            return new CsrMatrix(cols, Arrays.copyOf(rowPtr, rows + 1), Arrays.copyOf(colIdx, nnz),
+                                 Arrays.copyOf(values, nnz), null);
+        }
+
+        private void put(int c, double v) {
+            if (nnz == colIdx.length) {
+                int cap = colIdx.length * 2;
+                if (cap < 0) throw new IllegalStateException("Too many nonzeros");
+                colIdx = Arrays.copyOf(colIdx, cap);
+                values = Arrays.copyOf(values, cap);
+            }
+            colIdx[nnz] = c;
+            values[nnz++] = v;
+        }
+
+        private void endRow() {
+            if (rows + 1 == rowPtr.length) rowPtr = Arrays.copyOf(rowPtr, rowPtr.length * 2);
+            rowPtr[++rows] = nnz;
+        }
+    }
+}
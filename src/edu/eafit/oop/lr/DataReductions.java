@@ -0,0 +1,78 @@
+package edu.eafit.oop.lr;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The whole-dataset sums that the full-batch trainers (normal equation, gradient descent,
+ * conjugate gradient) need, one full pass each. Because every result is a plain sum over
+ * rows, it can be computed wherever the rows live: {@link #of(RowBlockSource)} runs the
+ * passes block by block in this process, {@link ShardCoordinator} adds up the partial sums
+ * of worker processes that each hold one shard.
+ */
+interface DataReductions {
+
+    /** Number of features per row. */
+    int cols();
+
+    /** X^T X, X^T y and the sums of the normal equation. */
+    GramAccumulator gram() throws IOException;
+
+    /**
+     * Adds the unscaled gradient sum at {@code theta} (bias first) to {@code grad} and
+     * {sse, rows} to {@code sums}.
+     */
+    void gradient(double[] theta, double[] grad, double[] sums) throws IOException;
+
+    /** Adds {sse, rows} at {@code theta} to {@code sums}. */
+    void sse(double[] theta, double[] sums) throws IOException;
+
+    /** Adds Xb^T y to {@code b} and the diagonal of Xb^T Xb to {@code diag}. */
+    void rhsAndDiagonal(double[] b, double[] diag) throws IOException;
+
+    /** Writes Xb^T Xb p into {@code out}; p and out include the bias slot. */
+    void gramProduct(double[] p, double[] out) throws IOException;
+
+    /** The passes done in this process over {@code src}, block by block. */
+    static DataReductions of(RowBlockSource src) {
+        int n = src.cols();
+        return new DataReductions() {
+            @Override public int cols() { return n; }
+
+            @Override public GramAccumulator gram() throws IOException {
+                GramAccumulator acc = new GramAccumulator(n);
+                src.forEach((x, y, rows) -> acc.addBlock(x, rows, y, 0));
+                return acc;
+            }
+
+            @Override public void gradient(double[] theta, double[] grad, double[] sums) throws IOException {
+                src.forEach((x, y, rows) -> {
+                    sums[0] += LinearRegression.blockSse(x, y, n, null, 0, rows, theta, grad);
+                    sums[1] += rows;
+                });
+            }
+
+            @Override public void sse(double[] theta, double[] sums) throws IOException {
+                src.forEach((x, y, rows) -> {
+                    sums[0] += LinearRegression.blockSse(x, y, n, null, 0, rows, theta, null);
+                    sums[1] += rows;
+                });
+            }
+
+            @Override public void rhsAndDiagonal(double[] b, double[] diag) throws IOException {
+                src.forEach((x, y, rows) -> LinearRegression.addRhsAndDiagonal(x, y, 0, n, rows, b, diag));
+            }
+
+            @Override public void gramProduct(double[] p, double[] out) throws IOException {
+                Arrays.fill(out, 0.0);
+                src.forEach((x, y, rows) -> {
+                    for (int i=0, o=0; i<rows; i++, o+=n) {
+                        double e = p[0] + Kernels.dot(p, 1, x, o, n);
+                        out[0] += e;
+                        Kernels.axpy(e, x, o, out, 1, n);
+                    }
+                });
+            }
+        };
+    }
+}
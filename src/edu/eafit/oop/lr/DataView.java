@@ -0,0 +1,57 @@
+package edu.eafit.oop.lr;
+
+/**
+ * Read-only m x n matrix of doubles that may be backed by row arrays, columns of a
+ * {@link CSVReader.DataFrame} or a lazily transformed view of another matrix.
+ *
+ * Consumers read it in row blocks ({@link #copyRows}/{@link #gatherRows}) into a small
+ * row-major scratch buffer, so views can be projected, permuted and scaled without
+ * materializing a copy of the data.
+ */
+public interface DataView {
+
+    int rows();
+
+    int cols();
+
+    double get(int i, int j);
+
+    /** Copies row {@code i} into dst[off .. off+cols()). */
+    void copyRow(int i, double[] dst, int off);
+
+    /** Copies rows [from, to) into {@code dst}, row-major. */
+    default void copyRows(int from, int to, double[] dst) {
+        int n = cols();
+        for (int i=from; i<to; i++) copyRow(i, dst, (i - from) * n);
+    }
+
+    /** Copies rows idx[from..to) into {@code dst}, row-major. */
+    default void gatherRows(int[] idx, int from, int to, double[] dst) {
+        int n = cols();
+        for (int r=from; r<to; r++) copyRow(idx[r], dst, (r - from) * n);
+    }
+
+    /** Materializes column {@code j}. */
+    default double[] column(int j) {
+        double[] v = new double[rows()];
+        for (int i=0; i<v.length; i++) v[i] = get(i, j);
+        return v;
+    }
+
+    /** Rows rows[0..k) of this view, in that order, as a view (no copy). */
+    default DataView select(int[] rows) {
+        return new RowSubsetView(this, rows);
+    }
+
+    /** Materializes the view as a jagged array (may return the backing array for array views). */
+    default double[][] toArray() {
+        double[][] A = new double[rows()][cols()];
+        for (int i=0; i<A.length; i++) copyRow(i, A[i], 0);
+        return A;
+    }
+
+    /** Wraps a jagged row-major array without copying. */
+    static DataView of(double[][] X) {
+        return new RowArrayView(X);
+    }
+}
@@ -0,0 +1,84 @@
+package edu.eafit.oop.lr;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Allocation-free decimal parser for ASCII bytes.
+ *
+ * Plain decimals with at most 15 significant digits and a power of ten within
+ * [-22, 22] are exact in double arithmetic (Clinger's fast path), so they come out
+ * bit-identical to {@link Double#parseDouble}. Anything else (long mantissas, large
+ * exponents, Infinity, hex, malformed input) falls back to Double.parseDouble,
+ * which also gives the same NumberFormatException as before.
+ */
+final class FastDoubleParser {
+
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int MAX_DIGITS = 15;
+
+    private FastDoubleParser() {}
+
+    /** Parses bytes [from, to) of {@code b}; the range must already be trimmed. */
+    static double parse(ByteBuffer b, int from, int to) {
+        int i = from;
+        boolean neg = false;
+        byte c = b.get(i);
+        if (c == '-' || c == '+') { neg = c == '-'; i++; }
+        long mant = 0;
+        int digits = 0, exp = 0;
+        boolean any = false;
+        for (; i < to; i++) {
+            c = b.get(i);
+            if (c < '0' || c > '9') break;
+            any = true;
+            if (mant == 0 && c == '0') continue;
+            if (++digits > MAX_DIGITS) return slow(b, from, to);
+            mant = mant * 10 + (c - '0');
+        }
+        if (i < to && b.get(i) == '.') {
+            for (i++; i < to; i++) {
+                c = b.get(i);
+                if (c < '0' || c > '9') break;
+                any = true;
+                if (mant == 0 && c == '0') { exp--; continue; }
+                if (++digits > MAX_DIGITS) return slow(b, from, to);
+                mant = mant * 10 + (c - '0');
+                exp--;
+            }
+        }
+        if (!any) return slow(b, from, to);
+        if (i < to && (b.get(i) | 0x20) == 'e') {
+            i++;
+            boolean eneg = false;
+            if (i < to && (b.get(i) == '-' || b.get(i) == '+')) { eneg = b.get(i) == '-'; i++; }
+            if (i == to) return slow(b, from, to);
+            int e = 0;
+            for (; i < to; i++) {
+                c = b.get(i);
+                if (c < '0' || c > '9') return slow(b, from, to);
+                if (e < 10000) e = e * 10 + (c - '0');
+            }
+            exp += eneg ? -e : e;
+        }
+        if (i != to) return slow(b, from, to);
+        if (mant == 0) return neg ? -0.0 : 0.0;
+        double v;
+        if (exp >= 0 && exp <= 22) v = mant * POW10[exp];
+        else if (exp < 0 && exp >= -22) v = mant / POW10[-exp];
+        else return slow(b, from, to);
+        return neg ? -v : v;
+    }
+
+    /** Rare path: builds the String (minus any '"') and defers to the JDK parser. */
+    private static double slow(ByteBuffer b, int from, int to) {
+        StringBuilder sb = new StringBuilder(to - from);
+        for (int i=from; i<to; i++) {
+            char ch = (char) (b.get(i) & 0xff);
+            if (ch != '"') sb.append(ch);
+        }
+        return Double.parseDouble(sb.toString());
+    }
+}
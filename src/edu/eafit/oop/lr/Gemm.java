@@ -0,0 +1,220 @@
+package edu.eafit.oop.lr;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Cache-blocked, multi-threaded matrix multiply on flat row-major arrays.
+ *
+ * All matrices are stored as a single double[] where element (i, j) of an
+ * r x c matrix lives at index i*c + j. Work is split over row blocks and run
+ * on the common fork-join pool; small problems run on the calling thread.
+ */
+public final class Gemm {
+
+    /** Rows of A handled together by the 4-row register tile. */
+    private static final int TILE_I = 4;
+    /** Depth of the k-panel kept hot in L1/L2. */
+    private static final int BLOCK_K = 256;
+    /** Width of the B/C column panel kept hot in L2. */
+    private static final int BLOCK_J = 512;
+    /** Below this many multiply-adds the fork-join overhead is not worth it. */
+    private static final long PARALLEL_FLOPS = 1L << 18;
+
+    private Gemm() {}
+
+    /** C = A*B, where A is m x n, B is n x p and C is m x p (overwritten). */
+    public static void multiply(double[] a, double[] b, double[] c, int m, int n, int p) {
+        if (a.length < (long) m * n || b.length < (long) n * p || c.length < (long) m * p) {
+            throw new IllegalArgumentException("buffer too small for " + m + "x" + n + " * " + n + "x" + p);
+        }
+        Arrays.fill(c, 0, m * p, 0.0);
+        if ((long) m * n * p < PARALLEL_FLOPS) {
+            multiplyRows(a, b, c, n, p, 0, m);
+        } else {
+            ForkJoinPool.commonPool().invoke(new MultiplyTask(a, b, c, n, p, 0, m, grain(m)));
+        }
+    }
+
+    /** y = A*x, where A is m x n. */
+    public static void gemv(double[] a, double[] x, double[] y, int m, int n) {
+        gemv(new double[][] { a }, true, x, y, m, n);
+    }
+
+    /** Same as {@link #gemv(double[], double[], double[], int, int)} for a jagged m x n matrix. */
+    public static void gemv(double[][] rows, double[] x, double[] y) {
+        gemv(rows, false, x, y, rows.length, x.length);
+    }
+
+    private static void gemv(double[][] src, boolean flat, double[] x, double[] y, int m, int n) {
+        if ((long) m * n < PARALLEL_FLOPS) {
+            gemvRows(src, flat, x, y, n, 0, m);
+        } else {
+            ForkJoinPool.commonPool().invoke(new GemvTask(src, flat, x, y, n, 0, m, grain(m)));
+        }
+    }
+
+    /**
+     * C = A^T A for an m x n matrix A, without forming A^T. Only the upper
+     * triangle is accumulated; it is mirrored into the lower one at the end.
+     */
+    public static void syrk(double[] a, int m, int n, double[] c) {
+        syrk(new double[][] { a }, m, n, c, true);
+    }
+
+    /** Same as {@link #syrk(double[], int, int, double[])} for a jagged m x n matrix. */
+    public static void syrk(double[][] rows, int n, double[] c) {
+        syrk(rows, rows.length, n, c, false);
+    }
+
+    private static void syrk(double[][] src, int m, int n, double[] c, boolean flat) {
+        if (c.length < (long) n * n) throw new IllegalArgumentException("C must hold n*n values");
+        Arrays.fill(c, 0, n * n, 0.0);
+        if ((long) m * n * n / 2 < PARALLEL_FLOPS) {
+            syrkRows(src, flat, n, 0, m, c);
+        } else {
+            // Each leaf accumulates a private upper triangle; partials are summed on join.
+            int grain = Math.max(64, m / ForkJoinPool.getCommonPoolParallelism());
+            double[] r = ForkJoinPool.commonPool().invoke(new SyrkTask(src, flat, n, 0, m, grain));
+            System.arraycopy(r, 0, c, 0, n * n);
+        }
+        for (int j=0; j<n; j++)
+            for (int l=j+1; l<n; l++)
+                c[l*n + j] = c[j*n + l];
+    }
+
+    /**
+     * Adds rows [from, to) of a jagged matrix into the upper triangle of the n x n
+     * accumulator {@code c}; the lower triangle is left untouched.
+     */
+    static void syrkAccumulate(double[][] rows, int from, int to, int n, double[] c) {
+        syrkRows(rows, false, n, from, to, c);
+    }
+
+    /** Same as {@link #syrkAccumulate(double[][], int, int, int, double[])} for a flat block of rows. */
+    static void syrkAccumulate(double[] flat, int rows, int n, double[] c) {
+        syrkRows(new double[][] { flat }, true, n, 0, rows, c);
+    }
+
+    private static int grain(int rows) {
+        int parts = ForkJoinPool.getCommonPoolParallelism() * 4;
+        return Math.max(TILE_I * 8, rows / Math.max(1, parts));
+    }
+
+    // ---- kernels ----
+
+    private static void multiplyRows(double[] a, double[] b, double[] c, int n, int p, int i0, int i1) {
+        for (int j0=0; j0<p; j0+=BLOCK_J) {
+            int j1 = Math.min(p, j0 + BLOCK_J);
+            for (int k0=0; k0<n; k0+=BLOCK_K) {
+                int k1 = Math.min(n, k0 + BLOCK_K);
+                int i = i0;
+                for (; i + TILE_I <= i1; i += TILE_I) {
+                    int c0 = i*p, c1 = c0 + p, c2 = c1 + p, c3 = c2 + p;
+                    int a0 = i*n, a1 = a0 + n, a2 = a1 + n, a3 = a2 + n;
+                    for (int k=k0; k<k1; k++) {
+                        double v0 = a[a0+k], v1 = a[a1+k], v2 = a[a2+k], v3 = a[a3+k];
+                        int bk = k*p;
+                        for (int j=j0; j<j1; j++) {
+                            double bv = b[bk+j];
+                            c[c0+j] += v0 * bv;
+                            c[c1+j] += v1 * bv;
+                            c[c2+j] += v2 * bv;
+                            c[c3+j] += v3 * bv;
+                        }
+                    }
+                }
+                for (; i<i1; i++) {
+                    int ci = i*p, ai = i*n;
+                    for (int k=k0; k<k1; k++) {
+                        double v = a[ai+k];
+                        int bk = k*p;
+                        for (int j=j0; j<j1; j++) c[ci+j] += v * b[bk+j];
+                    }
+                }
+            }
+        }
+    }
+
+    private static void gemvRows(double[][] src, boolean flat, double[] x, double[] y, int n, int i0, int i1) {
+        for (int i=i0; i<i1; i++) {
+            double[] a = flat ? src[0] : src[i];
+            y[i] = Kernels.dot(a, flat ? i*n : 0, x, 0, n);
+        }
+    }
+
+    private static void syrkRows(double[][] src, boolean flat, int n, int i0, int i1, double[] c) {
+        for (int l0=0; l0<n; l0+=BLOCK_J) {
+            int l1 = Math.min(n, l0 + BLOCK_J);
+            for (int j0=0; j0<l1; j0+=BLOCK_J) {
+                int j1 = Math.min(l1, j0 + BLOCK_J);
+                for (int i=i0; i<i1; i++) {
+                    double[] row = flat ? src[0] : src[i];
+                    int off = flat ? i*n : 0;
+                    for (int j=j0; j<j1; j++) {
+                        double v = row[off+j];
+                        if (v == 0.0) continue;
+                        int cj = j*n;
+                        for (int l=Math.max(j, l0); l<l1; l++) c[cj+l] += v * row[off+l];
+                    }
+                }
+            }
+        }
+    }
+
+    // ---- fork-join tasks ----
+
+    private static final class MultiplyTask extends RecursiveAction {
+        final double[] a, b, c; final int n, p, i0, i1, grain;
+        MultiplyTask(double[] a, double[] b, double[] c, int n, int p, int i0, int i1, int grain) {
+            this.a = a; this.b = b; this.c = c; this.n = n; this.p = p;
+            this.i0 = i0; this.i1 = i1; this.grain = grain;
+        }
+        @Override protected void compute() {
+            if (i1 - i0 <= grain) { multiplyRows(a, b, c, n, p, i0, i1); return; }
+            int mid = i0 + ((i1 - i0) / 2 / TILE_I) * TILE_I;
+            invokeAll(new MultiplyTask(a, b, c, n, p, i0, mid, grain),
+                      new MultiplyTask(a, b, c, n, p, mid, i1, grain));
+        }
+    }
+
+    private static final class GemvTask extends RecursiveAction {
+        final double[][] src; final boolean flat; final double[] x, y; final int n, i0, i1, grain;
+        GemvTask(double[][] src, boolean flat, double[] x, double[] y, int n, int i0, int i1, int grain) {
+            this.src = src; this.flat = flat; this.x = x; this.y = y; this.n = n;
+            this.i0 = i0; this.i1 = i1; this.grain = grain;
+        }
+        @Override protected void compute() {
+            if (i1 - i0 <= grain) { gemvRows(src, flat, x, y, n, i0, i1); return; }
+            int mid = (i0 + i1) >>> 1;
+            invokeAll(new GemvTask(src, flat, x, y, n, i0, mid, grain),
+                      new GemvTask(src, flat, x, y, n, mid, i1, grain));
+        }
+    }
+
+    private static final class SyrkTask extends RecursiveTask<double[]> {
+        final double[][] src; final boolean flat; final int n, i0, i1, grain;
+        SyrkTask(double[][] src, boolean flat, int n, int i0, int i1, int grain) {
+            this.src = src; this.flat = flat; this.n = n;
+            this.i0 = i0; this.i1 = i1; this.grain = grain;
+        }
+        @Override protected double[] compute() {
+            if (i1 - i0 <= grain) {
+                double[] c = new double[n * n];
+                syrkRows(src, flat, n, i0, i1, c);
+                return c;
+            }
+            int mid = (i0 + i1) >>> 1;
+            SyrkTask left = new SyrkTask(src, flat, n, i0, mid, grain);
+            left.fork();
+            double[] r = new SyrkTask(src, flat, n, mid, i1, grain).compute();
+            double[] l = left.join();
+            for (int j=0; j<n; j++)
+                for (int k=j; k<n; k++)
+                    r[j*n + k] += l[j*n + k];
+            return r;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package edu.eafit.oop.lr;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Mean-squared-error loss and gradient over a subset of rows, split across row shards.
+ * Parameters are a single vector theta = [bias, w_1..w_n]. Row arrays and sparse
+ * {@link CsrMatrix} rows are read in place (the latter touching only nonzeros); any
+ * other {@link DataView} is gathered in blocks into a per-shard buffer.
+ *
+ * Shard tasks and their partial-gradient buffers are allocated once; each call only
+ * re-initializes the tasks, so an epoch loop built on it does not allocate.
+ */
+final class GradientEvaluator implements Optimizer.Objective {
+
+    /** Smallest shard worth handing to another worker (rows * features). */
+    private static final int MIN_SHARD_WORK = 1 << 14;
+
+    private final double[][] X;   // non-null when rows can be read in place
+    private final CsrMatrix csr;  // non-null for sparse rows
+    private final DataView view;
+    private final double[] y;
+    private final int n;
+    private final Shard[] shards;
+    private final Join join;
+
+    // Per-call inputs, read by the shard tasks
+    private int[] idx;
+    private int from, to;
+    private double[] theta;
+    private boolean withGrad;
+    private double sse;
+
+    GradientEvaluator(DataView X, double[] y, int maxRows) {
+        this.view = X;
+        this.X = X instanceof RowArrayView ? ((RowArrayView) X).array() : null;
+        this.csr = X instanceof CsrMatrix ? (CsrMatrix) X : null;
+        this.y = y;
+        this.n = X.cols();
+        int byWork = (int) Math.max(1, (long) maxRows * n / MIN_SHARD_WORK);
+        int p = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), byWork));
+        this.shards = new Shard[p];
+        for (int s=0; s<p; s++) shards[s] = new Shard();
+        this.join = new Join(shards);
+    }
+
+    /**
+     * Loss (1/2k)*sum(e^2) over the k rows idx[from..to) (or rows from..to when {@code idx}
+     * is null); its gradient w.r.t. theta is written into {@code grad}.
+     */
+    double compute(int[] idx, int from, int to, double[] theta, double[] grad) {
+        this.idx = idx; this.from = from; this.to = to;
+        int p = run(theta, true);
+        Arrays.fill(grad, 0.0);
+        for (int s=0; s<p; s++) {
+            Shard sh = shards[s];
+            grad[0] += sh.gb;
+            for (int j=0; j<n; j++) grad[j+1] += sh.gw[j];
+        }
+        double inv = 1.0 / (to - from);
+        for (int j=0; j<=n; j++) grad[j] *= inv;
+        return sse * inv / 2;
+    }
+
+    /** Loss at {@code theta} on the same rows as the last {@link #compute} call (no gradient). */
+    @Override
+    public double loss(double[] theta) {
+        run(theta, false);
+        return sse / (to - from) / 2;
+    }
+
+    /** Sum of squared errors of the last evaluation. */
+    double lastSse() { return sse; }
+
+    private int run(double[] theta, boolean withGrad) {
+        this.theta = theta;
+        this.withGrad = withGrad;
+        int k = to - from;
+        int p = (int) Math.min(shards.length, Math.max(1, (long) k * n / MIN_SHARD_WORK));
+        if (p == 1) {
+            shards[0].run(from, to);
+        } else {
+            for (int s=0; s<p; s++) {
+                shards[s].reinitialize();
+                shards[s].setRange(from + (int) ((long) k * s / p), from + (int) ((long) k * (s + 1) / p));
+            }
+            join.reinitialize();
+            join.p = p;
+            ForkJoinPool.commonPool().invoke(join);
+        }
+        sse = 0;
+        for (int s=0; s<p; s++) sse += shards[s].sse;
+        return p;
+    }
+
+    private final class Shard extends RecursiveAction {
+        final double[] gw = new double[n];
+        final double[] buf = X == null && csr == null ? new double[GramAccumulator.BLOCK * n] : null;
+        double gb, sse;
+        int lo, hi;
+
+        void setRange(int lo, int hi) { this.lo = lo; this.hi = hi; }
+
+        @Override protected void compute() { run(lo, hi); }
+
+        void run(int lo, int hi) {
+            double[] t = theta;
+            boolean g = withGrad;
+            if (g) Arrays.fill(gw, 0.0);
+            double gbl = 0, s2 = 0;
+            if (X != null) {
+                for (int r=lo; r<hi; r++) {
+                    int i = idx == null ? r : idx[r];
+                    double[] row = X[i];
+                    double e = t[0] + Kernels.dot(t, 1, row, 0, n) - y[i];
+                    s2 += e * e;
+                    if (!g) continue;
+                    gbl += e;
+                    Kernels.axpy(e, row, 0, gw, 0, n);
+                }
+            } else if (csr != null) {
+                for (int r=lo; r<hi; r++) {
+                    int i = idx == null ? r : idx[r];
+                    double e = t[0] + csr.dotRow(i, t, 1) - y[i];
+                    s2 += e * e;
+                    if (!g) continue;
+                    gbl += e;
+                    csr.axpyRow(i, e, gw, 0);
+                }
+            } else {
+                for (int b0=lo; b0<hi; b0+=GramAccumulator.BLOCK) {
+                    int b1 = Math.min(hi, b0 + GramAccumulator.BLOCK);
+                    if (idx == null) view.copyRows(b0, b1, buf);
+                    else view.gatherRows(idx, b0, b1, buf);
+                    for (int r=b0; r<b1; r++) {
+                        int o = (r - b0) * n;
+                        double e = t[0] + Kernels.dot(t, 1, buf, o, n) - y[idx == null ? r : idx[r]];
+                        s2 += e * e;
+                        if (!g) continue;
+                        gbl += e;
+                        Kernels.axpy(e, buf, o, gw, 0, n);
+                    }
+                }
+            }
+            gb = gbl;
+            sse = s2;
+        }
+    }
+
+    /** Forks shards 1..p-1 and runs shard 0 on the joining thread. */
+    private static final class Join extends RecursiveAction {
+        final Shard[] shards;
+        int p;
+        Join(Shard[] shards) { this.shards = shards; }
+        @Override protected void compute() {
+            for (int s=1; s<p; s++) shards[s].fork();
+            shards[0].compute();
+            for (int s=1; s<p; s++) shards[s].join();
+        }
+    }
+}
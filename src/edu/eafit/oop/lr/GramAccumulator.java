@@ -0,0 +1,335 @@
+package edu.eafit.oop.lr;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Streaming sufficient statistics for least squares: X^T X, X^T y, column sums,
+ * sum(y), sum(y^2) and the row count. Rows are added one at a time or in blocks
+ * and partial accumulators can be merged, so training memory is O(n^2) no matter
+ * how many rows are seen. The intercept is handled implicitly: X never gets a
+ * column of ones, the bias row/column is rebuilt from the sums on demand.
+ */
+public class GramAccumulator {
+
+    /** Rows gathered per block when reading from a {@link DataView}. */
+    static final int BLOCK = 256;
+
+    private final int n;
+    private final double[] xtx;   // n x n, upper triangle only
+    private final double[] xty;   // n
+    private final double[] colSums;
+    private double sumY;
+    private double sumYY;
+    private long count;
+
+    public GramAccumulator(int nFeatures) {
+        if (nFeatures <= 0) throw new IllegalArgumentException("nFeatures must be > 0");
+        this.n = nFeatures;
+        this.xtx = new double[n * n];
+        this.xty = new double[n];
+        this.colSums = new double[n];
+    }
+
+    /** Accumulates all rows of (X, y) in parallel over row shards and merges the partials. */
+    public static GramAccumulator of(double[][] X, double[] y) {
+        int m = X.length;
+        if (m == 0) throw new IllegalArgumentException("Empty X");
+        if (y.length != m) throw new IllegalArgumentException("X.rows != y.length");
+        int n = X[0].length;
+        int grain = Math.max(1024, m / ForkJoinPool.getCommonPoolParallelism());
+        if (m <= grain) {
+            GramAccumulator acc = new GramAccumulator(n);
+            acc.addRows(X, y, 0, m);
+            return acc;
+        }
+        return ForkJoinPool.commonPool().invoke(new ShardTask(X, y, n, 0, m, grain));
+    }
+
+    /**
+     * Same as {@link #of(double[][], double[])} for any {@link DataView}; rows are read in
+     * blocks into a small per-shard buffer, so the view is never materialized.
+     */
+    public static GramAccumulator of(DataView X, double[] y) {
+        if (X instanceof RowArrayView) return of(((RowArrayView) X).array(), y);
+        int m = X.rows();
+        if (m == 0) throw new IllegalArgumentException("Empty X");
+        if (y.length != m) throw new IllegalArgumentException("X.rows != y.length");
+        int grain = Math.max(1024, m / ForkJoinPool.getCommonPoolParallelism());
+        if (m <= grain) {
+            GramAccumulator acc = new GramAccumulator(X.cols());
+            acc.addRows(X, y, 0, m);
+            return acc;
+        }
+        return ForkJoinPool.commonPool().invoke(new ViewShardTask(X, y, 0, m, grain));
+    }
+
+    public int features() { return n; }
+    public long count() { return count; }
+    public double sumY() { return sumY; }
+    public double sumYY() { return sumYY; }
+    public double[] columnSums() { return Arrays.copyOf(colSums, n); }
+    public double[] xty() { return Arrays.copyOf(xty, n); }
+
+    /** Full symmetric X^T X as a flat row-major n x n array. */
+    public double[] gram() {
+        double[] g = new double[n * n];
+        for (int j=0; j<n; j++) {
+            for (int l=j; l<n; l++) {
+                double v = xtx[j*n + l];
+                g[j*n + l] = v;
+                g[l*n + j] = v;
+            }
+        }
+        return g;
+    }
+
+    /** Adds a single row. */
+    public void add(double[] x, double y) {
+        if (x.length != n) throw new IllegalArgumentException("Row has " + x.length + " features, expected " + n);
+        for (int j=0; j<n; j++) {
+            double v = x[j];
+            colSums[j] += v;
+            xty[j] += v * y;
+            if (v == 0.0) continue;
+            int rj = j*n;
+            for (int l=j; l<n; l++) xtx[rj + l] += v * x[l];
+        }
+        sumY += y;
+        sumYY += y * y;
+        count++;
+    }
+
+    /** Adds rows [from, to) of (X, y). */
+    public void addRows(double[][] X, double[] y, int from, int to) {
+        for (int i=from; i<to; i++) {
+            double[] row = X[i];
+            if (row.length != n) throw new IllegalArgumentException("Row " + i + " has " + row.length + " features, expected " + n);
+            double yi = y[i];
+            for (int j=0; j<n; j++) {
+                colSums[j] += row[j];
+                xty[j] += row[j] * yi;
+            }
+            sumY += yi;
+            sumYY += yi * yi;
+        }
+        Gemm.syrkAccumulate(X, from, to, n, xtx);
+        count += to - from;
+    }
+
+    /** Adds rows [from, to) of a {@link DataView}, gathered in blocks of {@link #BLOCK} rows. */
+    public void addRows(DataView X, double[] y, int from, int to) {
+        if (X.cols() != n) throw new IllegalArgumentException("View has " + X.cols() + " features, expected " + n);
+        if (X instanceof CsrMatrix) { addSparseRows((CsrMatrix) X, y, from, to); return; }
+        double[] buf = new double[Math.min(BLOCK, Math.max(1, to - from)) * n];
+        for (int b0=from; b0<to; b0+=BLOCK) {
+            int b1 = Math.min(to, b0 + BLOCK);
+            X.copyRows(b0, b1, buf);
+            addBlock(buf, b1 - b0, y, b0);
+        }
+    }
+
+    /**
+     * Adds rows [from, to) of a sparse matrix from its nonzeros only: O(sum of nnz_i^2)
+     * instead of O(rows * n^2). Column indices increase within a row, so each pair lands
+     * in the upper triangle.
+     */
+    private void addSparseRows(CsrMatrix X, double[] y, int from, int to) {
+        int[] col = X.colIdx();
+        double[] val = X.values();
+        for (int i=from; i<to; i++) {
+            double yi = y[i];
+            int s = X.start(i), e = X.end(i);
+            for (int k=s; k<e; k++) {
+                int j = col[k];
+                double v = val[k];
+                colSums[j] += v;
+                xty[j] += v * yi;
+                int rj = j*n;
+                for (int l=k; l<e; l++) xtx[rj + col[l]] += v * val[l];
+            }
+            sumY += yi;
+            sumYY += yi * yi;
+        }
+        count += to - from;
+    }
+
+    /** Adds {@code rows} rows stored row-major in {@code flat}; targets are y[yOff ..]. */
+    void addBlock(double[] flat, int rows, double[] y, int yOff) {
+        for (int r=0; r<rows; r++) {
+            int o = r*n;
+            double yi = y[yOff + r];
+            for (int j=0; j<n; j++) {
+                double v = flat[o + j];
+                colSums[j] += v;
+                xty[j] += v * yi;
+            }
+            sumY += yi;
+            sumYY += yi * yi;
+        }
+        Gemm.syrkAccumulate(flat, rows, n, xtx);
+        count += rows;
+    }
+
+    /** Adds the statistics of {@code other} into this accumulator. */
+    public void merge(GramAccumulator other) {
+        if (other.n != n) throw new IllegalArgumentException("Feature count mismatch: " + other.n + " vs " + n);
+        for (int j=0; j<n; j++) {
+            int rj = j*n;
+            for (int l=j; l<n; l++) xtx[rj + l] += other.xtx[rj + l];
+            xty[j] += other.xty[j];
+            colSums[j] += other.colSums[j];
+        }
+        sumY += other.sumY;
+        sumYY += other.sumYY;
+        count += other.count;
+    }
+
+    /**
+     * All statistics in one array: count, sum(y), sum(y^2), column sums, X^T y and the
+     * upper triangle of X^T X row by row, e.g. to send to another process.
+     */
+    double[] pack() {
+        double[] a = new double[3 + 2 * n + n * (n + 1) / 2];
+        a[0] = count; a[1] = sumY; a[2] = sumYY;
+        System.arraycopy(colSums, 0, a, 3, n);
+        System.arraycopy(xty, 0, a, 3 + n, n);
+        int k = 3 + 2 * n;
+        for (int j=0; j<n; j++) {
+            System.arraycopy(xtx, j*n + j, a, k, n - j);
+            k += n - j;
+        }
+        return a;
+    }
+
+    /** Inverse of {@link #pack()}. */
+    static GramAccumulator unpack(int n, double[] a) {
+        GramAccumulator g = new GramAccumulator(n);
+        if (a.length != 3 + 2 * n + n * (n + 1) / 2) throw new IllegalArgumentException("Packed statistics for " + n + " features have the wrong length " + a.length);
+        g.count = (long) a[0]; g.sumY = a[1]; g.sumYY = a[2];
+        System.arraycopy(a, 3, g.colSums, 0, n);
+        System.arraycopy(a, 3 + n, g.xty, 0, n);
+        int k = 3 + 2 * n;
+        for (int j=0; j<n; j++) {
+            System.arraycopy(a, k, g.xtx, j*n + j, n - j);
+            k += n - j;
+        }
+        return g;
+    }
+
+    /** Independent copy of this accumulator. */
+    public GramAccumulator copy() {
+        GramAccumulator c = new GramAccumulator(n);
+        c.merge(this);
+        return c;
+    }
+
+    /**
+     * Removes the statistics of {@code other}, which must have been merged into this one
+     * earlier (e.g. the totals minus one cross-validation fold).
+     */
+    public void subtract(GramAccumulator other) {
+        if (other.n != n) throw new IllegalArgumentException("Feature count mismatch: " + other.n + " vs " + n);
+        if (other.count > count) throw new IllegalArgumentException("Cannot remove " + other.count + " rows from " + count);
+        for (int j=0; j<n; j++) {
+            int rj = j*n;
+            for (int l=j; l<n; l++) xtx[rj + l] -= other.xtx[rj + l];
+            xty[j] -= other.xty[j];
+            colSums[j] -= other.colSums[j];
+        }
+        sumY -= other.sumY;
+        sumYY -= other.sumYY;
+        count -= other.count;
+    }
+
+    /**
+     * Statistics of the standardized features z = (x - mean) / std, derived from these
+     * (no pass over the rows): Z^T Z = D^-1 (X^T X - m mean mean^T) D^-1 and
+     * Z^T y = D^-1 (X^T y - mean sum(y)), with D = diag(std); column sums become 0.
+     * The subtraction cancels when mean is large next to std, so accumulate rows already
+     * centred near their mean (e.g. minus the global mean) and pass the mean of those rows.
+     */
+    GramAccumulator standardized(double[] mean, double[] std) {
+        GramAccumulator z = new GramAccumulator(n);
+        double m = count;
+        for (int j=0; j<n; j++) {
+            int rj = j*n;
+            for (int l=j; l<n; l++) z.xtx[rj + l] = (xtx[rj + l] - m * mean[j] * mean[l]) / (std[j] * std[l]);
+            z.xty[j] = (xty[j] - mean[j] * sumY) / std[j];
+        }
+        z.sumY = sumY;
+        z.sumYY = sumYY;
+        z.count = count;
+        return z;
+    }
+
+    /**
+     * The (n+1) x (n+1) normal matrix of [1 | X] with {@code ridge} added to the diagonal,
+     * bias at index 0. Equivalent to building Xb and computing Xb^T Xb.
+     */
+    public double[] augmentedGram(double ridge) {
+        int d = n + 1;
+        double[] a = new double[d * d];
+        a[0] = count + ridge;
+        for (int j=0; j<n; j++) {
+            a[j+1] = colSums[j];
+            a[(j+1)*d] = colSums[j];
+            for (int l=j; l<n; l++) {
+                double v = xtx[j*n + l];
+                a[(j+1)*d + l+1] = v;
+                a[(l+1)*d + j+1] = v;
+            }
+            a[(j+1)*d + j+1] += ridge;
+        }
+        return a;
+    }
+
+    /** Xb^T y for Xb = [1 | X], bias at index 0. */
+    public double[] augmentedXty() {
+        double[] b = new double[n + 1];
+        b[0] = sumY;
+        System.arraycopy(xty, 0, b, 1, n);
+        return b;
+    }
+
+    private static final class ViewShardTask extends RecursiveTask<GramAccumulator> {
+        final DataView X; final double[] y; final int from, to, grain;
+        ViewShardTask(DataView X, double[] y, int from, int to, int grain) {
+            this.X = X; this.y = y; this.from = from; this.to = to; this.grain = grain;
+        }
+        @Override protected GramAccumulator compute() {
+            if (to - from <= grain) {
+                GramAccumulator acc = new GramAccumulator(X.cols());
+                acc.addRows(X, y, from, to);
+                return acc;
+            }
+            int mid = (from + to) >>> 1;
+            ViewShardTask left = new ViewShardTask(X, y, from, mid, grain);
+            left.fork();
+            GramAccumulator r = new ViewShardTask(X, y, mid, to, grain).compute();
+            r.merge(left.join());
+            return r;
+        }
+    }
+
+    private static final class ShardTask extends RecursiveTask<GramAccumulator> {
+        final double[][] X; final double[] y; final int n, from, to, grain;
+        ShardTask(double[][] X, double[] y, int n, int from, int to, int grain) {
+            this.X = X; this.y = y; this.n = n; this.from = from; this.to = to; this.grain = grain;
+        }
+        @Override protected GramAccumulator compute() {
+            if (to - from <= grain) {
+                GramAccumulator acc = new GramAccumulator(n);
+                acc.addRows(X, y, from, to);
+                return acc;
+            }
+            int mid = (from + to) >>> 1;
+            ShardTask left = new ShardTask(X, y, n, from, mid, grain);
+            left.fork();
+            GramAccumulator r = new ShardTask(X, y, n, mid, to, grain).compute();
+            r.merge(left.join());
+            return r;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package edu.eafit.oop.lr;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Per-stage timings for the training pipeline. Code wraps a stage as
+ * <pre>
+ *   try (Instrumentation.Stage s = Instrumentation.stage("read")) { ...; s.rows(n); }
+ * </pre>
+ * (or as {@code Instrumentation.time("solve", () -> ...)} when there are no rows to report),
+ * and GD/SGD report each epoch's loss and gradient norm. Each stage is aggregated into an
+ * in-process registry (wall time, bytes allocated by the calling thread, rows and rows/s),
+ * exported with {@link #summaryTable()} or {@link #toJson()}, and emitted as a JFR event
+ * ({@code edu.eafit.oop.lr.Stage}, {@code edu.eafit.oop.lr.Epoch}) when a recording is running.
+ *
+ * The registry is off unless {@link #setEnabled} is called or {@code -Dlr.metrics=true} is
+ * set; with it off and no recording, {@link #stage} returns a shared no-op and
+ * {@link #tracingEpochs()} is false, so instrumented code pays one branch per stage.
+ */
+public final class Instrumentation {
+
+    @Name("edu.eafit.oop.lr.Stage")
+    @Label("Pipeline Stage")
+    @Category("Linear Regression")
+    @Description("One stage of the training pipeline (read, split, scale, fit, ...)")
+    static final class StageEvent extends Event {
+        @Label("Stage") String stage;
+        @Label("Rows") long rows;
+        @Label("Allocated") @DataAmount @Description("Bytes allocated by the thread that ran the stage") long allocated;
+    }
+
+    @Name("edu.eafit.oop.lr.Epoch")
+    @Label("Training Epoch")
+    @Category("Linear Regression")
+    static final class EpochEvent extends Event {
+        @Label("Run") int run;
+        @Label("Epoch") int epoch;
+        @Label("Loss") @Description("Mean squared error over the epoch") double loss;
+        @Label("Gradient Norm") @Description("L2 norm of the last gradient of the epoch") double gradNorm;
+    }
+
+    /** Aggregate of every call to one stage name. */
+    static final class StageStats {
+        long calls, wallNanos, allocated, rows;
+    }
+
+    /** Epochs kept for the export; later ones still go to JFR. */
+    static final int MAX_EPOCHS = 100_000;
+
+    private static volatile boolean enabled = Boolean.getBoolean("lr.metrics");
+    private static final Map<String,StageStats> stages = new LinkedHashMap<>();
+    private static final List<double[]> epochs = new ArrayList<>(); // {run, epoch, loss, gradNorm}
+    private static long droppedEpochs;
+    private static final AtomicInteger runs = new AtomicInteger();
+    private static final Stage NOOP = new Stage(null, null);
+
+    private Instrumentation() {}
+
+    public static void setEnabled(boolean on) { enabled = on; }
+    public static boolean isEnabled() { return enabled; }
+
+    /** Starts timing {@code name}; close the returned stage when it ends. */
+    public static Stage stage(String name) {
+        StageEvent ev = jfrStarted() ? new StageEvent() : null;
+        boolean jfr = ev != null && ev.isEnabled();
+        if (!enabled && !jfr) return NOOP;
+        return new Stage(name, jfr ? ev : null);
+    }
+
+    /** Body of a stage timed with {@link #time}; may throw a checked exception. */
+    public interface Body<T, E extends Exception> {
+        T get() throws E;
+    }
+
+    /** {@link Body} without a result. */
+    public interface VoidBody<E extends Exception> {
+        void run() throws E;
+    }
+
+    /** Runs {@code body} as stage {@code name} and returns its result. */
+    public static <T, E extends Exception> T time(String name, Body<T, E> body) throws E {
+        Stage s = stage(name);
+        try {
+            return body.get();
+        } finally {
+            s.close();
+        }
+    }
+
+    /** Runs {@code body} as stage {@code name}. */
+    public static <E extends Exception> void time(String name, VoidBody<E> body) throws E {
+        Stage s = stage(name);
+        try {
+            body.run();
+        } finally {
+            s.close();
+        }
+    }
+
+    /** True when epoch traces are being collected (registry on or JFR recording the event). */
+    public static boolean tracingEpochs() {
+        return enabled || jfrStarted() && new EpochEvent().isEnabled();
+    }
+
+    /**
+     * Event classes are only touched once Flight Recorder is up (-XX:StartFlightRecording or
+     * jcmd JFR.start): loading them earlier initializes JFR and costs ~0.3 s of startup.
+     */
+    private static boolean jfrStarted() {
+        return FlightRecorder.isInitialized();
+    }
+
+    /** Identifier grouping the epochs of one training run (runs may overlap, e.g. under cross-validation). */
+    public static int newRun() {
+        return runs.incrementAndGet();
+    }
+
+    public static void epoch(int run, int epoch, double loss, double gradNorm) {
+        EpochEvent ev = jfrStarted() ? new EpochEvent() : null;
+        if (ev != null && ev.shouldCommit()) {
+            ev.run = run; ev.epoch = epoch; ev.loss = loss; ev.gradNorm = gradNorm;
+            ev.commit();
+        }
+        if (!enabled) return;
+        synchronized (stages) {
+            if (epochs.size() < MAX_EPOCHS) epochs.add(new double[]{ run, epoch, loss, gradNorm });
+            else droppedEpochs++;
+        }
+    }
+
+    public static void reset() {
+        synchronized (stages) {
+            stages.clear();
+            epochs.clear();
+            droppedEpochs = 0;
+        }
+    }
+
+    /**
+     * Timed region returned by {@link #stage}. Wall time and allocated bytes are taken at
+     * construction and at {@link #close()} on the calling thread.
+     */
+    public static final class Stage implements AutoCloseable {
+        private final String name;
+        private final StageEvent event;
+        private final long t0, alloc0;
+        private long rows;
+
+        private Stage(String name, StageEvent event) {
+            this.name = name;
+            this.event = event;
+            if (event != null) event.begin();
+            this.alloc0 = name == null ? 0 : Allocation.current();
+            this.t0 = name == null ? 0 : System.nanoTime();
+        }
+
+        /** Rows processed by this stage, for the rows/s column. */
+        public Stage rows(long n) {
+            rows = n;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (name == null) return;
+            long wall = System.nanoTime() - t0;
+            long alloc = alloc0 < 0 ? -1 : Allocation.current() - alloc0;
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.stage = name; event.rows = rows; event.allocated = alloc;
+                    event.commit();
+                }
+            }
+            if (!enabled) return;
+            synchronized (stages) {
+                StageStats s = stages.computeIfAbsent(name, k -> new StageStats());
+                s.calls++;
+                s.wallNanos += wall;
+                s.rows += rows;
+                s.allocated = alloc < 0 || s.allocated < 0 ? -1 : s.allocated + alloc;
+            }
+        }
+    }
+
+    /** Stage statistics in first-seen order. */
+    static Map<String,StageStats> stages() {
+        synchronized (stages) {
+            Map<String,StageStats> copy = new LinkedHashMap<>();
+            for (Map.Entry<String,StageStats> e : stages.entrySet()) {
+                StageStats s = new StageStats(), o = e.getValue();
+                s.calls = o.calls; s.wallNanos = o.wallNanos; s.allocated = o.allocated; s.rows = o.rows;
+                copy.put(e.getKey(), s);
+            }
+            return copy;
+        }
+    }
+
+    public static String summaryTable() {
+        StringBuilder sb = new StringBuilder("== Pipeline metrics ==\n");
+        sb.append(String.format(Locale.US, "%-16s %6s %12s %14s %12s %14s%n", "stage", "calls", "wall ms", "alloc MB", "rows", "rows/s"));
+        for (Map.Entry<String,StageStats> e : stages().entrySet()) {
+            StageStats s = e.getValue();
+            sb.append(String.format(Locale.US, "%-16s %6d %12.3f %14s %12d %14s%n", e.getKey(), s.calls, s.wallNanos / 1e6,
+                    s.allocated < 0 ? "n/a" : String.format(Locale.US, "%.3f", s.allocated / 1048576.0),
+                    s.rows, s.rows > 0 && s.wallNanos > 0 ? String.format(Locale.US, "%.0f", s.rows * 1e9 / s.wallNanos) : "-"));
+        }
+        synchronized (stages) {
+            if (!epochs.isEmpty()) {
+                double[] first = epochs.get(0), last = epochs.get(epochs.size() - 1);
+                sb.append(String.format(Locale.US, "epochs traced: %d%s (loss %.6g -> %.6g, last gradient norm %.3g)%n",
+                        epochs.size(), droppedEpochs > 0 ? " + " + droppedEpochs + " dropped" : "",
+                        first[2], last[2], last[3]));
+            }
+        }
+        return sb.append("(alloc MB counts the thread that ran the stage only)\n").toString();
+    }
+
+    /** {"stages": [...], "epochs": [...], "droppedEpochs": n}; non-finite numbers are written as null. */
+    public static String toJson() {
+        StringBuilder sb = new StringBuilder("{\n  \"stages\": [");
+        boolean first = true;
+        for (Map.Entry<String,StageStats> e : stages().entrySet()) {
+            StageStats s = e.getValue();
+            sb.append(first ? "\n" : ",\n").append("    {\"name\": \"").append(escape(e.getKey()))
+              .append("\", \"calls\": ").append(s.calls)
+              .append(", \"wallNanos\": ").append(s.wallNanos)
+              .append(", \"allocatedBytes\": ").append(s.allocated < 0 ? "null" : Long.toString(s.allocated))
+              .append(", \"rows\": ").append(s.rows)
+              .append(", \"rowsPerSec\": ").append(number(s.wallNanos > 0 ? s.rows * 1e9 / s.wallNanos : Double.NaN))
+              .append('}');
+            first = false;
+        }
+        sb.append(first ? "],\n" : "\n  ],\n").append("  \"epochs\": [");
+        synchronized (stages) {
+            for (int i=0; i<epochs.size(); i++) {
+                double[] r = epochs.get(i);
+                sb.append(i == 0 ? "\n" : ",\n").append("    {\"run\": ").append((int) r[0])
+                  .append(", \"epoch\": ").append((int) r[1])
+                  .append(", \"loss\": ").append(number(r[2]))
+                  .append(", \"gradNorm\": ").append(number(r[3])).append('}');
+            }
+            sb.append(epochs.isEmpty() ? "],\n" : "\n  ],\n");
+            sb.append("  \"droppedEpochs\": ").append(droppedEpochs).append("\n}\n");
+        }
+        return sb.toString();
+    }
+
+    private static String number(double v) {
+        return Double.isFinite(v) ? Double.toString(v) : "null";
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /** Bytes allocated so far by the current thread, or -1 when the JVM cannot tell. */
+    private static final class Allocation {
+        static final com.sun.management.ThreadMXBean BEAN;
+        static {
+            java.lang.management.ThreadMXBean b = ManagementFactory.getThreadMXBean();
+            com.sun.management.ThreadMXBean sun = b instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) b : null;
+            if (sun != null && sun.isThreadAllocatedMemorySupported() && !sun.isThreadAllocatedMemoryEnabled()) {
+                sun.setThreadAllocatedMemoryEnabled(true);
+            }
+            BEAN = sun != null && sun.isThreadAllocatedMemorySupported() ? sun : null;
+        }
+
+        static long current() {
+            return BEAN == null ? -1 : BEAN.getCurrentThreadAllocatedBytes();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package edu.eafit.oop.lr;
+
+/**
+ * Dense vector kernels behind predict, gradients, scaling and metrics. The
+ * implementation is chosen once at class initialization: {@link VectorKernels}
+ * (jdk.incubator.vector, preferred species) when that module is in the boot layer,
+ * otherwise plain scalar loops. {@code -Dlr.kernels=scalar} forces the fallback.
+ */
+final class Kernels {
+
+    /** One implementation of the kernels; offsets index into the given arrays. */
+    interface Impl {
+        /** sum a[ao+i] * b[bo+i] for i in [0, n). */
+        double dot(double[] a, int ao, double[] b, int bo, int n);
+        /** y[yo+i] += alpha * x[xo+i] for i in [0, n). */
+        void axpy(double alpha, double[] x, int xo, double[] y, int yo, int n);
+        /** dst[do+i] = (src[so+i] - mean[i]) / std[i] for i in [0, n); src and dst may alias. */
+        void standardize(double[] src, int so, double[] dst, int dOff, double[] mean, double[] std, int n);
+        /** sum (a[i] - b[i])^2 over [0, n). */
+        double sumSquaredDiff(double[] a, double[] b, int n);
+        /** sum |a[i] - b[i]| over [0, n). */
+        double sumAbsDiff(double[] a, double[] b, int n);
+        /** sum (a[i] - c)^2 over [0, n). */
+        double sumSquaredDev(double[] a, double c, int n);
+        /** sum a[i] over [0, n). */
+        double sum(double[] a, int n);
+    }
+
+    private static final Impl IMPL = select();
+
+    private Kernels() {}
+
+    private static Impl select() {
+        if (!"scalar".equals(System.getProperty("lr.kernels"))
+            && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (Impl) Class.forName("edu.eafit.oop.lr.VectorKernels").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // fall through to the scalar loops
+            }
+        }
+        return new Scalar();
+    }
+
+    /** "vector(N lanes)" or "scalar", for diagnostics. */
+    static String name() { return IMPL.toString(); }
+
+    static double dot(double[] a, int ao, double[] b, int bo, int n) { return IMPL.dot(a, ao, b, bo, n); }
+    static void axpy(double alpha, double[] x, int xo, double[] y, int yo, int n) { IMPL.axpy(alpha, x, xo, y, yo, n); }
+    static void standardize(double[] src, int so, double[] dst, int dOff, double[] mean, double[] std, int n) {
+        IMPL.standardize(src, so, dst, dOff, mean, std, n);
+    }
+    static double sumSquaredDiff(double[] a, double[] b, int n) { return IMPL.sumSquaredDiff(a, b, n); }
+    static double sumAbsDiff(double[] a, double[] b, int n) { return IMPL.sumAbsDiff(a, b, n); }
+    static double sumSquaredDev(double[] a, double c, int n) { return IMPL.sumSquaredDev(a, c, n); }
+    static double sum(double[] a, int n) { return IMPL.sum(a, n); }
+
+    /** Plain loops; the JIT may still auto-vectorize the simple ones. */
+    static final class Scalar implements Impl {
+        @Override public double dot(double[] a, int ao, double[] b, int bo, int n) {
+            double s = 0;
+            for (int i=0; i<n; i++) s += a[ao+i] * b[bo+i];
+            return s;
+        }
+        @Override public void axpy(double alpha, double[] x, int xo, double[] y, int yo, int n) {
+            for (int i=0; i<n; i++) y[yo+i] += alpha * x[xo+i];
+        }
+        @Override public void standardize(double[] src, int so, double[] dst, int dOff, double[] mean, double[] std, int n) {
+            for (int i=0; i<n; i++) dst[dOff+i] = (src[so+i] - mean[i]) / std[i];
+        }
+        @Override public double sumSquaredDiff(double[] a, double[] b, int n) {
+            double s = 0;
+            for (int i=0; i<n; i++) {
+                double d = a[i] - b[i];
+                s += d*d;
+            }
+            return s;
+        }
+        @Override public double sumAbsDiff(double[] a, double[] b, int n) {
+            double s = 0;
+            for (int i=0; i<n; i++) s += Math.abs(a[i] - b[i]);
+            return s;
+        }
+        @Override public double sumSquaredDev(double[] a, double c, int n) {
+            double s = 0;
+            for (int i=0; i<n; i++) {
+                double d = a[i] - c;
+                s += d*d;
+            }
+            return s;
+        }
+        @Override public double sum(double[] a, int n) {
+            double s = 0;
+            for (int i=0; i<n; i++) s += a[i];
+            return s;
+        }
+        @Override public String toString() { return "scalar"; }
+    }
+}
@@ -0,0 +1,64 @@
+package edu.eafit.oop.lr;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram over nanoseconds. Buckets are log-linear (8 per power of
+ * two), so any percentile is reported within 12.5% using a fixed 4 KB of counters,
+ * whatever the number of samples. Safe to record from many threads.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3, SUB = 1 << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BITS + 1) * SUB);
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucket(nanos));
+        long m;
+        while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos)) { }
+    }
+
+    long count() {
+        long c = 0;
+        for (int i=0; i<counts.length(); i++) c += counts.get(i);
+        return c;
+    }
+
+    long max() { return max.get(); }
+
+    /** Upper bound of the bucket holding the q-quantile (0 < q <= 1), capped at the max; 0 if empty. */
+    long percentile(double q) {
+        long total = count();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i=0; i<counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    void reset() {
+        for (int i=0; i<counts.length(); i++) counts.set(i, 0);
+        max.set(0);
+    }
+
+    private static int bucket(long v) {
+        if (v < SUB) return (int) v;
+        int e = 63 - Long.numberOfLeadingZeros(v);
+        int mant = (int) (v >>> (e - SUB_BITS)) & (SUB - 1);
+        return (e - SUB_BITS + 1) * SUB + mant;
+    }
+
+    private static long upperBound(int idx) {
+        if (idx < SUB) return idx;
+        int e = idx / SUB + SUB_BITS - 1, mant = idx % SUB;
+        long lo = (long) (SUB + mant) << (e - SUB_BITS);
+        return lo + (1L << (e - SUB_BITS)) - 1;
+    }
+}
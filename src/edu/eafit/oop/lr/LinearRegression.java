@@ -1,12 +1,21 @@
 package edu.eafit.oop.lr;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.Locale;
+import java.util.Random;
 
-/** Linear Regression model with two training methods (Normal Equation / Gradient Descent). */
+/**
+ * Linear Regression model trained with the Normal Equation, full-batch Gradient Descent,
+ * mini-batch SGD or (for many features) preconditioned Conjugate Gradient.
+ */
 public class LinearRegression implements RegressionModel {
 
-    public enum TrainingMethod { NORMAL_EQUATION, GRADIENT_DESCENT }
+    public enum TrainingMethod { NORMAL_EQUATION, GRADIENT_DESCENT, MINI_BATCH_SGD, CONJUGATE_GRADIENT }
+
+    /** Default relative residual for {@link TrainingMethod#CONJUGATE_GRADIENT} when no tolerance is set. */
+    private static final double CG_TOLERANCE = 1e-10;
 
     private final TrainingMethod method;
     private double[] weights; // size = n_features
@@ -15,6 +24,24 @@ public class LinearRegression implements RegressionModel {
     private double learningRate = 0.01;
     private int epochs = 10000;
     private double ridge = 1e-8; // small L2 for numerical stability in normal equation
+    // Mini-batch SGD params
+    private int batchSize = 32;
+    private boolean shuffle = true;
+    private long seed = 42L;
+    // Iterative training: update rule and stopping criteria
+    private Optimizer optimizer = Optimizer.sgd();
+    private double tolerance = 0.0;   // relative loss improvement; 0 = disabled
+    private DataView valX;            // optional validation set for plateau stopping
+    private double[] valY;
+    private int patience = 10;
+    private long timeBudgetNanos = 0; // 0 = unlimited
+    private int epochsRun;
+    // Recursive least squares state for partialFit: theta = [bias, w], P ~ (Xb^T Xb + ridge*I)^-1
+    private double forgetting = 1.0;
+    private double[] rlsTheta;
+    private double[] rlsP;
+    // Conjugate gradient: Jacobi (diagonal) preconditioner on/off
+    private boolean jacobi = true;
 
     public LinearRegression(TrainingMethod method) {
         this.method = method;
@@ -23,77 +50,696 @@ public class LinearRegression implements RegressionModel {
     public void setLearningRate(double lr) { this.learningRate = lr; }
     public void setEpochs(int e) { this.epochs = e; }
     public void setRidge(double lambda) { this.ridge = lambda; }
+    public void setBatchSize(int b) {
+        if (b <= 0) throw new IllegalArgumentException("batchSize must be > 0");
+        this.batchSize = b;
+    }
+    public void setShuffle(boolean s) { this.shuffle = s; }
+    public void setSeed(long s) { this.seed = s; }
+    public void setOptimizer(Optimizer o) { this.optimizer = o; }
+    /** Stop when the epoch loss improves by less than {@code relTol} (relative). 0 disables. */
+    public void setTolerance(double relTol) { this.tolerance = relTol; }
+    /** Stop when the validation MSE has not improved for {@code patience} epochs; keeps the best parameters. */
+    public void setValidation(double[][] X, double[] y, int patience) {
+        setValidation(DataView.of(X), y, patience);
+    }
+    public void setValidation(DataView X, double[] y, int patience) {
+        if (patience <= 0) throw new IllegalArgumentException("patience must be > 0");
+        this.valX = X;
+        this.valY = y;
+        this.patience = patience;
+    }
+    /** Wall-clock budget for iterative training; 0 means unlimited. */
+    public void setTimeBudgetMillis(long ms) { this.timeBudgetNanos = ms * 1_000_000L; }
+    /**
+     * Exponential forgetting for {@link #partialFit}: every new row multiplies the weight of
+     * the rows seen so far by {@code lambda} (1 = no forgetting, e.g. 0.999 = ~1000-row memory).
+     */
+    public void setForgettingFactor(double lambda) {
+        if (!(lambda > 0 && lambda <= 1)) throw new IllegalArgumentException("forgetting factor must be in (0, 1]");
+        this.forgetting = lambda;
+    }
+    /** Jacobi preconditioning for {@link TrainingMethod#CONJUGATE_GRADIENT} (default on). */
+    public void setPreconditioner(boolean jacobi) { this.jacobi = jacobi; }
+    /** Epochs (for CG: iterations, one pass over the rows each) actually run by the last iterative fit. */
+    public int getEpochsRun() { return epochsRun; }
 
-    public double[] getWeights() { return Arrays.copyOf(weights, weights.length); }
+    public double[] getWeights() {
+        if (weights == null) throw new IllegalStateException("Model not fitted.");
+        return Arrays.copyOf(weights, weights.length);
+    }
     public double getBias() { return bias; }
+    public TrainingMethod getMethod() { return method; }
 
     @Override
     public void fit(double[][] X, double[] y) {
+        fit(DataView.of(X), y);
+    }
+
+    /**
+     * Recursive least squares: absorbs the rows of (X, y) in O(rows * n^2), independent of
+     * how many rows came before. Without forgetting it tracks the ridge solution of everything
+     * seen so far. A normal-equation fit leaves theta and P = (Xb^T Xb + ridge*I)^-1 of its
+     * rows, so a fit on the history followed by partialFit on new rows equals one fit on all
+     * of them ({@link #foldScaling} carries the state over to raw features). After any other
+     * fit, or none, it starts from theta = 0 and P = I/ridge.
+     */
+    public void partialFit(double[][] X, double[] y) {
         int m = X.length;
+        if (m == 0) return;
+        if (y.length != m) throw new IllegalArgumentException("X.rows != y.length");
+        int n = X[0].length, d = n + 1;
+        if (rlsP == null) {
+            if (!(ridge > 0)) throw new IllegalStateException("partialFit needs ridge > 0 for its initial P = I/ridge");
+            rlsTheta = new double[d];
+            rlsP = new double[d * d];
+            for (int j=0; j<d; j++) rlsP[j*d + j] = 1.0 / ridge;
+        } else if (rlsTheta.length != d) {
+            throw new IllegalArgumentException("Expected " + (rlsTheta.length - 1) + " features, got " + n);
+        }
+        double[] th = rlsTheta, P = rlsP;
+        double[] u = new double[d];
+        double lam = forgetting;
+        for (int i=0; i<m; i++) {
+            double[] x = X[i];
+            if (x.length != n) throw new IllegalArgumentException("Row " + i + " has " + x.length + " features, expected " + n);
+            // u = P xb with xb = [1, x]
+            double pred = th[0];
+            for (int j=0; j<n; j++) pred += th[j+1] * x[j];
+            double denom = lam;
+            for (int a=0; a<d; a++) {
+                int ra = a*d;
+                double s = P[ra];
+                for (int j=0; j<n; j++) s += P[ra + j+1] * x[j];
+                u[a] = s;
+                denom += (a == 0 ? 1.0 : x[a-1]) * s;
+            }
+            double e = y[i] - pred;
+            double g = e / denom;
+            for (int a=0; a<d; a++) th[a] += g * u[a];
+            // P = (P - u u^T / denom) / lambda, kept exactly symmetric
+            double inv = 1.0 / denom, il = 1.0 / lam;
+            for (int a=0; a<d; a++) {
+                int ra = a*d;
+                double ua = u[a] * inv;
+                for (int b=a; b<d; b++) {
+                    double v = (P[ra + b] - ua * u[b]) * il;
+                    P[ra + b] = v;
+                    P[b*d + a] = v;
+                }
+            }
+        }
+        setTheta(th, n);
+    }
+
+    /** Trains on any {@link DataView} (e.g. a DataFrame projection or a scaled view) without copying it. */
+    @Override
+    public void fit(DataView X, double[] y) {
+        rlsP = null;
+        int m = X.rows();
         if (m == 0) throw new IllegalArgumentException("Empty X");
-        int n = X[0].length;
+        int n = X.cols();
 
         if (method == TrainingMethod.NORMAL_EQUATION) {
-            // Add bias column of ones
-            double[][] Xb = new double[m][n+1];
-            for (int i=0; i<m; i++) {
-                Xb[i][0] = 1.0;
-                for (int j=0; j<n; j++) Xb[i][j+1] = X[i][j];
-            }
-            double[][] Xt = Matrix.transpose(Xb);
-            double[][] XtX = Matrix.dot(Xt, Xb);
-            // Add tiny ridge term to diagonal for stability
-            for (int i=0; i<XtX.length; i++) XtX[i][i] += ridge;
-            double[][] XtXinv = Matrix.inverse(XtX);
-            double[] Xty = Matrix.dot(Xt, y);
-            double[] theta = Matrix.dot(XtXinv, Xty);
-            bias = theta[0];
-            weights = new double[n];
-            for (int j=0; j<n; j++) weights[j] = theta[j+1];
-        } else {
+            // Sufficient statistics only: no Xb copy and no transpose
+            GramAccumulator acc;
+            try (Instrumentation.Stage st = Instrumentation.stage("normal.gram")) {
+                acc = GramAccumulator.of(X, y);
+                st.rows(m);
+            }
+            double[] theta = Instrumentation.time("normal.solve", () -> solveNormal(acc, X, y));
+            setTheta(theta, n);
+            seedRls(acc, theta);
+        } else if (method == TrainingMethod.CONJUGATE_GRADIENT) {
+            fitConjugateGradient(X, y);
+        } else if (method == TrainingMethod.GRADIENT_DESCENT) {
             // Gradient Descent (assumes X is already scaled for best results)
-            weights = new double[n];
-            bias = 0.0;
-            double lr = learningRate;
-            for (int epoch = 0; epoch < epochs; epoch++) {
-                // Predictions
-                double[] yhat = predict(X);
-                // Gradients
-                double gradB = 0.0;
-                double[] gradW = new double[n];
-                for (int i=0; i<m; i++) {
-                    double e = yhat[i] - y[i];
-                    gradB += e;
-                    for (int j=0; j<n; j++) gradW[j] += e * X[i][j];
+            fitIterative(X, y, m, false);
+        } else {
+            // Mini-batch SGD: one epoch = one pass over a (re)shuffled index permutation
+            fitIterative(X, y, Math.min(batchSize, m), shuffle);
+        }
+    }
+
+    /** Shared GD/SGD loop; full-batch GD is the case batch == m with no shuffling. */
+    private void fitIterative(DataView X, double[] y, int batch, boolean shuffleRows) {
+        int m = X.rows(), n = X.cols(), d = n + 1;
+        boolean fullBatch = batch == m;
+        double[] theta = new double[d];
+        double[] grad = new double[d];
+        int[] order = null;
+        Random rnd = new Random(seed);
+        if (!fullBatch || shuffleRows) {
+            // SGD with batchSize >= rows is one full batch per epoch, still over shuffled rows
+            order = new int[m];
+            for (int i=0; i<m; i++) order[i] = i;
+        }
+        GradientEvaluator eval = new GradientEvaluator(X, y, batch);
+        Optimizer opt = optimizer;
+        opt.reset(d);
+        double[] best = valX != null ? new double[d] : null;
+        double bestVal = Double.POSITIVE_INFINITY;
+        int sinceBest = 0;
+        double prevLoss = Double.POSITIVE_INFINITY;
+        long deadline = timeBudgetNanos > 0 ? System.nanoTime() + timeBudgetNanos : Long.MAX_VALUE;
+        double lr = learningRate;
+        int run = Instrumentation.tracingEpochs() ? Instrumentation.newRun() : 0;
+
+        int epoch = 0;
+        while (epoch < epochs) {
+            epoch++;
+            if (shuffleRows) shuffle(order, rnd);
+            double sse = 0, gradNorm = 0;
+            for (int from = 0; from < m; from += batch) {
+                int to = Math.min(m, from + batch);
+                double loss = eval.compute(order, from, to, theta, grad);
+                sse += eval.lastSse();
+                opt.step(theta, grad, loss, lr, eval);
+                if (fullBatch) for (int j=0; j<d; j++) gradNorm += Math.abs(grad[j]);
+            }
+            double loss = sse / m;
+            if (!Double.isFinite(loss)) {
+                throw new IllegalStateException("Training diverged at epoch " + epoch + "; lower the learning rate.");
+            }
+            if (run != 0) Instrumentation.epoch(run, epoch, loss, Math.sqrt(Kernels.dot(grad, 0, grad, 0, d)));
+            // (Optional) simple early stopping on tiny gradient
+            if (fullBatch && gradNorm < 1e-8) break;
+            if (tolerance > 0 && epoch > 1 && Math.abs(prevLoss - loss) <= tolerance * prevLoss) break;
+            prevLoss = loss;
+            if (best != null) {
+                double v = validationMse(theta);
+                if (v < bestVal) {
+                    bestVal = v;
+                    sinceBest = 0;
+                    System.arraycopy(theta, 0, best, 0, d);
+                } else if (++sinceBest >= patience) {
+                    break;
                 }
-                gradB /= m;
-                for (int j=0; j<n; j++) gradW[j] /= m;
+            }
+            if (System.nanoTime() > deadline) break;
+        }
+        epochsRun = epoch;
+        setTheta(best != null && bestVal < Double.POSITIVE_INFINITY ? best : theta, n);
+    }
 
-                // Update params
-                bias   -= lr * gradB;
-                for (int j=0; j<n; j++) weights[j] -= lr * gradW[j];
+    /**
+     * Out-of-core training: rows are read block by block from {@code src} and never held
+     * all at once. The normal equation takes one pass (statistics go into a
+     * {@link GramAccumulator}); GD takes one pass per epoch; mini-batch SGD takes its
+     * batches inside each block, shuffled within the block. Stopping follows the in-memory
+     * loop (tolerance, time budget, divergence); a validation set is not used here.
+     */
+    public void fit(RowBlockSource src) throws IOException {
+        if (method == TrainingMethod.MINI_BATCH_SGD) fitStreamingSgd(src);
+        else fit(DataReductions.of(src));
+    }
 
-                // (Optional) simple early stopping on tiny gradient
-                double gradNorm = Math.abs(gradB);
-                for (int j=0; j<n; j++) gradNorm += Math.abs(gradW[j]);
-                if (gradNorm < 1e-8) break;
+    /**
+     * Normal equation, CG or full-batch GD from whole-dataset passes, whether they run in
+     * this process or are summed over worker processes by a {@link ShardCoordinator}.
+     */
+    void fit(DataReductions data) throws IOException {
+        if (method == TrainingMethod.MINI_BATCH_SGD) throw new IllegalStateException("Mini-batch SGD needs the rows themselves, not full-pass sums");
+        rlsP = null;
+        int n = data.cols();
+        if (method == TrainingMethod.NORMAL_EQUATION) {
+            GramAccumulator acc;
+            try (Instrumentation.Stage st = Instrumentation.stage("normal.gram")) {
+                acc = data.gram();
+                st.rows(acc.count());
             }
+            fit(acc);
+            return;
+        }
+        if (method == TrainingMethod.CONJUGATE_GRADIENT) {
+            // Right-hand side and diagonal in one pass, then one pass per product
+            double[] b = new double[n + 1], diag = new double[n + 1];
+            data.rhsAndDiagonal(b, diag);
+            try {
+                conjugateGradient(n, b, diag, (p, out) -> {
+                    try {
+                        data.gramProduct(p, out);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return;
+        }
+        int d = n + 1;
+        double[] theta = new double[d];
+        double[] grad = new double[d];
+        Optimizer opt = optimizer;
+        opt.reset(d);
+        // Line search re-reads the whole data set
+        Optimizer.Objective fullLoss = t -> {
+            double[] acc = new double[2];
+            try {
+                data.sse(t, acc);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return acc[0] / acc[1] / 2;
+        };
+        double[] sums = new double[3]; // sse, rows, L1 norm of the gradient
+        double prevLoss = Double.POSITIVE_INFINITY;
+        long deadline = timeBudgetNanos > 0 ? System.nanoTime() + timeBudgetNanos : Long.MAX_VALUE;
+        double lr = learningRate;
+        int run = Instrumentation.tracingEpochs() ? Instrumentation.newRun() : 0;
+
+        try {
+            int epoch = 0;
+            while (epoch < epochs) {
+                epoch++;
+                Arrays.fill(sums, 0.0);
+                Arrays.fill(grad, 0.0);
+                data.gradient(theta, grad, sums);
+                if (sums[1] == 0) throw new IllegalArgumentException("Empty X");
+                for (int j=0; j<d; j++) {
+                    grad[j] /= sums[1];
+                    sums[2] += Math.abs(grad[j]);
+                }
+                opt.step(theta, grad, sums[0] / sums[1] / 2, lr, fullLoss);
+                double loss = sums[0] / sums[1];
+                if (!Double.isFinite(loss)) {
+                    throw new IllegalStateException("Training diverged at epoch " + epoch + "; lower the learning rate.");
+                }
+                if (run != 0) Instrumentation.epoch(run, epoch, loss, Math.sqrt(Kernels.dot(grad, 0, grad, 0, d)));
+                if (sums[2] < 1e-8) break;
+                if (tolerance > 0 && epoch > 1 && Math.abs(prevLoss - loss) <= tolerance * prevLoss) break;
+                prevLoss = loss;
+                if (System.nanoTime() > deadline) break;
+            }
+            epochsRun = epoch;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        setTheta(theta, n);
+    }
+
+    /** Mini-batch SGD over a block source: batches are taken inside each block, shuffled within it. */
+    private void fitStreamingSgd(RowBlockSource src) throws IOException {
+        rlsP = null;
+        int n = src.cols(), d = n + 1;
+        double[] theta = new double[d];
+        double[] grad = new double[d];
+        Optimizer opt = optimizer;
+        opt.reset(d);
+        Random rnd = new Random(seed);
+        StreamBatch sb = new StreamBatch(n);
+        double[] sums = new double[2]; // sse, rows
+        double prevLoss = Double.POSITIVE_INFINITY;
+        long deadline = timeBudgetNanos > 0 ? System.nanoTime() + timeBudgetNanos : Long.MAX_VALUE;
+        double lr = learningRate;
+        int run = Instrumentation.tracingEpochs() ? Instrumentation.newRun() : 0;
+
+        int epoch = 0;
+        while (epoch < epochs) {
+            epoch++;
+            Arrays.fill(sums, 0.0);
+            src.forEach((x, y, rows) -> {
+                int[] order = sb.order(rows);
+                for (int i=rows-1; i>0; i--) {
+                    int k = rnd.nextInt(i + 1);
+                    int t = order[i]; order[i] = order[k]; order[k] = t;
+                }
+                sb.x = x; sb.y = y;
+                for (int from=0; from<rows; from+=batchSize) {
+                    sb.from = from;
+                    sb.to = Math.min(rows, from + batchSize);
+                    double loss = sb.compute(theta, grad);
+                    sums[0] += sb.sse;
+                    opt.step(theta, grad, loss, lr, sb);
+                }
+                sums[1] += rows;
+            });
+            if (sums[1] == 0) throw new IllegalArgumentException("Empty X");
+            double loss = sums[0] / sums[1];
+            if (!Double.isFinite(loss)) {
+                throw new IllegalStateException("Training diverged at epoch " + epoch + "; lower the learning rate.");
+            }
+            if (run != 0) Instrumentation.epoch(run, epoch, loss, Math.sqrt(Kernels.dot(grad, 0, grad, 0, d)));
+            if (tolerance > 0 && epoch > 1 && Math.abs(prevLoss - loss) <= tolerance * prevLoss) break;
+            prevLoss = loss;
+            if (System.nanoTime() > deadline) break;
+        }
+        epochsRun = epoch;
+        setTheta(theta, n);
+    }
+
+    /** Xb^T Xb p written into {@code out} (length n+1); p and out include the bias slot. */
+    private interface GramProduct {
+        void apply(double[] p, double[] out);
+    }
+
+    /**
+     * Conjugate gradient on (Xb^T Xb + ridge*I) theta = Xb^T y using only products with X
+     * (each one a parallel pass through {@link GradientEvaluator} on a zero target), so no
+     * n x n matrix is formed. Stops at ||r|| <= tolerance * ||Xb^T y|| (default 1e-10) or
+     * after {@code epochs} iterations.
+     */
+    private void fitConjugateGradient(DataView X, double[] y) {
+        int m = X.rows(), n = X.cols();
+        double[] b = new double[n + 1], diag = new double[n + 1];
+        if (X instanceof CsrMatrix) {
+            CsrMatrix S = (CsrMatrix) X;
+            int[] col = S.colIdx();
+            double[] val = S.values();
+            for (int i=0; i<m; i++) {
+                b[0] += y[i];
+                diag[0] += 1;
+                for (int k=S.start(i), e=S.end(i); k<e; k++) {
+                    b[col[k] + 1] += val[k] * y[i];
+                    diag[col[k] + 1] += val[k] * val[k];
+                }
+            }
+        } else {
+            double[] buf = new double[GramAccumulator.BLOCK * n];
+            for (int b0=0; b0<m; b0+=GramAccumulator.BLOCK) {
+                int b1 = Math.min(m, b0 + GramAccumulator.BLOCK);
+                X.copyRows(b0, b1, buf);
+                addRhsAndDiagonal(buf, y, b0, n, b1 - b0, b, diag);
+            }
+        }
+        GradientEvaluator gram = new GradientEvaluator(X, new double[m], m);
+        conjugateGradient(n, b, diag, (p, out) -> {
+            gram.compute(null, 0, m, p, out);
+            for (int j=0; j<=n; j++) out[j] *= m;
+        });
+    }
+
+    /** Adds Xb^T y and the diagonal of Xb^T Xb for a row-major block (targets from y[yOff]). */
+    static void addRhsAndDiagonal(double[] x, double[] y, int yOff, int n, int rows, double[] b, double[] diag) {
+        for (int i=0, o=0; i<rows; i++, o+=n) {
+            double yi = y[yOff + i];
+            b[0] += yi;
+            diag[0] += 1;
+            for (int j=0; j<n; j++) {
+                double v = x[o + j];
+                b[j+1] += v * yi;
+                diag[j+1] += v * v;
+            }
+        }
+    }
+
+    /**
+     * Adds the errors of theta = [bias, w] over a row-major block to {@code sums} =
+     * {sse, sum |e|, mean y, sum (y - mean)^2, rows}, from which R^2, MSE and MAE follow.
+     * The moments of y are updated as in Welford's method, so R^2 keeps its digits when
+     * y has a large mean (sum y^2 - (sum y)^2 / m would cancel).
+     */
+    static void addErrorSums(double[] x, double[] y, int n, int rows, double[] theta, double[] sums) {
+        double count = sums[4];
+        for (int i=0, o=0; i<rows; i++, o+=n) {
+            double e = theta[0] + Kernels.dot(theta, 1, x, o, n) - y[i];
+            sums[0] += e * e;
+            sums[1] += Math.abs(e);
+            count++;
+            double d = y[i] - sums[2];
+            sums[2] += d / count;
+            sums[3] += d * (y[i] - sums[2]);
         }
+        sums[4] = count;
+    }
+
+    /** Adds error sums from another part of the rows, merging the moments of y as in Chan et al. */
+    static void mergeErrorSums(double[] sums, double[] part) {
+        double a = sums[4], b = part[4], count = a + b;
+        if (b == 0) return;
+        double d = part[2] - sums[2];
+        sums[0] += part[0];
+        sums[1] += part[1];
+        sums[2] += d * b / count;
+        sums[3] += part[3] + d * d * a * b / count;
+        sums[4] = count;
+    }
+
+    /** {R^2, MSE, MAE} from {@link #addErrorSums error sums}; R^2 is 0 when y is constant. */
+    static double[] scores(double[] sums) {
+        double m = sums[4], sst = sums[3];
+        return new double[] { sst == 0 ? 0.0 : 1.0 - sums[0] / sst, sums[0] / m, sums[1] / m };
+    }
+
+    private void conjugateGradient(int n, double[] b, double[] diag, GramProduct gram) {
+        int d = n + 1;
+        double[] theta = new double[d], r = b.clone(), z = new double[d], p = new double[d], ap = new double[d];
+        double[] inv = new double[d];
+        for (int j=0; j<d; j++) inv[j] = jacobi && diag[j] + ridge > 0 ? 1.0 / (diag[j] + ridge) : 1.0;
+        for (int j=0; j<d; j++) p[j] = z[j] = inv[j] * r[j];
+        double rz = Kernels.dot(r, 0, z, 0, d);
+        double stop = (tolerance > 0 ? tolerance : CG_TOLERANCE) * Math.sqrt(Kernels.dot(b, 0, b, 0, d));
+        long deadline = timeBudgetNanos > 0 ? System.nanoTime() + timeBudgetNanos : Long.MAX_VALUE;
+
+        int it = 0;
+        while (it < epochs && Math.sqrt(Kernels.dot(r, 0, r, 0, d)) > stop) {
+            it++;
+            gram.apply(p, ap);
+            Kernels.axpy(ridge, p, 0, ap, 0, d);
+            double pap = Kernels.dot(p, 0, ap, 0, d);
+            if (!(pap > 0)) {
+                if (!Double.isFinite(pap)) throw new IllegalStateException("Conjugate gradient diverged at iteration " + it);
+                break; // p is in the null space: nothing left to reduce
+            }
+            double alpha = rz / pap;
+            Kernels.axpy(alpha, p, 0, theta, 0, d);
+            Kernels.axpy(-alpha, ap, 0, r, 0, d);
+            for (int j=0; j<d; j++) z[j] = inv[j] * r[j];
+            double rzNext = Kernels.dot(r, 0, z, 0, d);
+            double beta = rzNext / rz;
+            rz = rzNext;
+            for (int j=0; j<d; j++) p[j] = z[j] + beta * p[j];
+            if (System.nanoTime() > deadline) break;
+        }
+        epochsRun = it;
+        setTheta(theta, n);
+    }
+
+    /**
+     * Sum of squared errors over rows idx[from..to) (or from..to) of a row-major block;
+     * when {@code grad} is non-null, the unscaled gradient sum is added to it.
+     */
+    static double blockSse(double[] x, double[] y, int n, int[] idx, int from, int to,
+                                   double[] theta, double[] grad) {
+        double s2 = 0;
+        for (int r=from; r<to; r++) {
+            int i = idx == null ? r : idx[r];
+            int o = i * n;
+            double e = theta[0] + Kernels.dot(theta, 1, x, o, n) - y[i];
+            s2 += e * e;
+            if (grad == null) continue;
+            grad[0] += e;
+            Kernels.axpy(e, x, o, grad, 1, n);
+        }
+        return s2;
+    }
+
+    /** One SGD batch of the current block; also the objective line search re-evaluates. */
+    private static final class StreamBatch implements Optimizer.Objective {
+        final int n;
+        double[] x, y;
+        int[] idx = new int[0];
+        int from, to;
+        double sse;
+
+        StreamBatch(int n) { this.n = n; }
+
+        /** Identity permutation of length {@code rows}, reusing the buffer when possible. */
+        int[] order(int rows) {
+            if (idx.length < rows) idx = new int[rows];
+            for (int i=0; i<rows; i++) idx[i] = i;
+            return idx;
+        }
+
+        double compute(double[] theta, double[] grad) {
+            Arrays.fill(grad, 0.0);
+            sse = blockSse(x, y, n, idx, from, to, theta, grad);
+            double inv = 1.0 / (to - from);
+            for (int j=0; j<grad.length; j++) grad[j] *= inv;
+            return sse * inv / 2;
+        }
+
+        @Override
+        public double loss(double[] theta) {
+            return blockSse(x, y, n, idx, from, to, theta, null) / (to - from) / 2;
+        }
+    }
+
+    private double validationMse(double[] theta) {
+        int m = valX.rows(), n = theta.length - 1;
+        double[] buf = new double[Math.min(m, GramAccumulator.BLOCK) * n];
+        double s = 0;
+        for (int b0=0; b0<m; b0+=GramAccumulator.BLOCK) {
+            int b1 = Math.min(m, b0 + GramAccumulator.BLOCK);
+            valX.copyRows(b0, b1, buf);
+            for (int i=b0; i<b1; i++) {
+                double e = theta[0] + Kernels.dot(theta, 1, buf, (i - b0) * n, n) - valY[i];
+                s += e * e;
+            }
+        }
+        return s / m;
+    }
+
+    /** In-place Fisher-Yates shuffle. */
+    private static void shuffle(int[] a, Random rnd) {
+        for (int i=a.length-1; i>0; i--) {
+            int k = rnd.nextInt(i + 1);
+            int t = a[i]; a[i] = a[k]; a[k] = t;
+        }
+    }
+
+    /**
+     * Fits with the normal equation from accumulated statistics alone (no access to the rows).
+     * The intercept is recovered from the column sums kept by the accumulator.
+     */
+    public void fit(GramAccumulator acc) {
+        if (acc.count() == 0) throw new IllegalArgumentException("Empty accumulator");
+        rlsP = null;
+        double[] theta = Instrumentation.time("normal.solve", () -> solveNormal(acc));
+        setTheta(theta, acc.features());
+        seedRls(acc, theta);
+    }
+
+    /** Leaves the {@link #partialFit} state of a normal-equation fit: theta and (Xb^T Xb + ridge*I)^-1. */
+    private void seedRls(GramAccumulator acc, double[] theta) {
+        int d = acc.features() + 1;
+        double[] l = acc.augmentedGram(ridge);
+        if (!LinearSolver.cholesky(l, d)) {
+            rlsP = null;
+            return;
+        }
+        double[] P = new double[d * d], e = new double[d];
+        for (int j=0; j<d; j++) {
+            Arrays.fill(e, 0.0);
+            e[j] = 1.0;
+            LinearSolver.solveLower(l, d, e);
+            LinearSolver.solveLowerTransposed(l, d, e);
+            System.arraycopy(e, 0, P, j*d, d);
+        }
+        // Kept exactly symmetric, as partialFit does
+        for (int a=0; a<d; a++) {
+            for (int b=a+1; b<d; b++) P[a*d + b] = P[b*d + a] = 0.5 * (P[a*d + b] + P[b*d + a]);
+        }
+        rlsTheta = theta.clone();
+        rlsP = P;
+    }
+
+    /**
+     * Takes the coefficients of {@code path} at {@code lambda} (intercept not penalized,
+     * unlike {@link #setRidge}). Any training method; nothing is re-solved.
+     */
+    public void fit(RidgePath path, double lambda) {
+        rlsP = null;
+        setTheta(path.coefficients(lambda), path.features());
+    }
+
+    /**
+     * Solves (Xb^T Xb + ridge*I) theta = Xb^T y from the accumulated statistics alone: Cholesky,
+     * or QR of the square system when it is not SPD / ill-conditioned. The rows are never read,
+     * so that QR works on the same squared condition number Cholesky rejected: it only keeps
+     * a singular system solvable and gives no accuracy benefit.
+     */
+    private double[] solveNormal(GramAccumulator acc) {
+        int d = acc.features() + 1;
+        double[] theta = LinearSolver.trySolveSPD(acc.augmentedGram(ridge), d, acc.augmentedXty());
+        if (theta == null) {
+            double[][] A = Matrix.unflatten(acc.augmentedGram(ridge), d, d);
+            theta = LinearSolver.leastSquaresQR(A, acc.augmentedXty(), 0.0);
+        }
+        return theta;
+    }
+
+    /**
+     * Same as {@link #solveNormal(GramAccumulator)} when the rows are at hand: if Cholesky
+     * rejects the statistics, QR runs on the rows [Xb; sqrt(ridge)*I] themselves (streamed,
+     * X is not copied), which avoids squaring the condition number. An exactly rank-deficient
+     * X still ends in the QR of the square system.
+     */
+    private double[] solveNormal(GramAccumulator acc, DataView X, double[] y) {
+        int d = acc.features() + 1;
+        double[] theta = LinearSolver.trySolveSPD(acc.augmentedGram(ridge), d, acc.augmentedXty());
+        if (theta != null) return theta;
+        try {
+            return LinearSolver.leastSquaresQR(X, y, ridge);
+        } catch (IllegalArgumentException singular) {
+            return solveNormal(acc);
+        }
+    }
+
+    /**
+     * Rewrites the fitted parameters so the model takes raw features: a model trained on
+     * z = (x - mean) / std gives w_j' = w_j / std_j and b' = b - sum(w_j * mean_j / std_j),
+     * so inference needs no transform. Call once, after fit. A {@link #partialFit} state is
+     * rewritten the same way (P' = T^T P T for the map zb = T xb), so later rows come in raw.
+     */
+    public void foldScaling(StandardScaler scaler) {
+        if (weights == null) throw new IllegalStateException("Model not fitted.");
+        double[] mu = scaler.getMeans(), sd = scaler.getStds();
+        if (mu.length != weights.length) throw new IllegalArgumentException("Scaler has " + mu.length + " features, model has " + weights.length);
+        for (int j=0; j<weights.length; j++) {
+            weights[j] /= sd[j];
+            bias -= weights[j] * mu[j];
+        }
+        if (rlsP != null && rlsTheta.length == weights.length + 1) {
+            int n = weights.length, d = n + 1;
+            double[] P = rlsP;
+            // Columns, then rows: (P T)[a][0] = P[a][0] - sum_j P[a][j+1] * mu_j / sd_j, (P T)[a][j+1] = P[a][j+1] / sd_j
+            for (int a=0; a<d; a++) {
+                int ra = a*d;
+                for (int j=0; j<n; j++) {
+                    P[ra + j+1] /= sd[j];
+                    P[ra] -= P[ra + j+1] * mu[j];
+                }
+            }
+            for (int b=0; b<d; b++) {
+                for (int j=0; j<n; j++) {
+                    P[(j+1)*d + b] /= sd[j];
+                    P[b] -= P[(j+1)*d + b] * mu[j];
+                }
+            }
+            rlsTheta[0] = bias;
+            System.arraycopy(weights, 0, rlsTheta, 1, n);
+        } else {
+            rlsP = null;
+        }
+    }
+
+    private void setTheta(double[] theta, int n) {
+        bias = theta[0];
+        weights = new double[n];
+        for (int j=0; j<n; j++) weights[j] = theta[j+1];
     }
 
     @Override
     public double[] predict(double[][] X) {
-        int m = X.length;
+        return predict(DataView.of(X));
+    }
+
+    @Override
+    public double[] predict(DataView X) {
+        int m = X.rows();
         if (m == 0) return new double[0];
-        int n = X[0].length;
+        int n = X.cols();
         if (weights == null || weights.length != n) {
             throw new IllegalStateException("Model not fitted or feature size mismatch.");
         }
         double[] yhat = new double[m];
-        for (int i=0; i<m; i++) {
-            double s = bias;
-            for (int j=0; j<n; j++) s += weights[j] * X[i][j];
-            yhat[i] = s;
+        if (X instanceof RowArrayView) {
+            double[][] A = ((RowArrayView) X).array();
+            for (int i=0; i<m; i++) yhat[i] = bias + Kernels.dot(weights, 0, A[i], 0, n);
+            return yhat;
+        }
+        if (X instanceof CsrMatrix) {
+            CsrMatrix S = (CsrMatrix) X;
+            for (int i=0; i<m; i++) yhat[i] = bias + S.dotRow(i, weights, 0);
+            return yhat;
+        }
+        double[] buf = new double[Math.min(m, GramAccumulator.BLOCK) * n];
+        for (int b0=0; b0<m; b0+=GramAccumulator.BLOCK) {
+            int b1 = Math.min(m, b0 + GramAccumulator.BLOCK);
+            X.copyRows(b0, b1, buf);
+            for (int i=b0; i<b1; i++) yhat[i] = bias + Kernels.dot(weights, 0, buf, (i - b0) * n, n);
         }
         return yhat;
     }
@@ -104,6 +750,11 @@ public class LinearRegression implements RegressionModel {
         return VectorStats.r2(y, yhat);
     }
 
+    @Override
+    public double score(DataView X, double[] y) {
+        return VectorStats.r2(y, predict(X));
+    }
+
     // Convenience overload used internally
     private static double[] dot(double[][] A, double[] v) {
         return Matrix.dot(A, v);
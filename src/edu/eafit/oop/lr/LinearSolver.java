@@ -0,0 +1,242 @@
+package edu.eafit.oop.lr;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Factor-and-solve routines for the normal equations, so no explicit inverse is formed.
+ *
+ * Square matrices are flat row-major n x n arrays (same layout as {@link Gemm}).
+ * The Cholesky factor overwrites the lower triangle of its input.
+ */
+public final class LinearSolver {
+
+    /** If (max L_ii / min L_ii)^2 exceeds this, the system is treated as ill-conditioned. */
+    private static final double MAX_CONDITION = 1e10;
+    /** Rows below which the Cholesky column update stays on the calling thread. */
+    private static final int PARALLEL_ROWS = 256;
+    /** Rows stacked under the triangular factor per step of the streamed QR. */
+    private static final int QR_BLOCK = 256;
+
+    private LinearSolver() {}
+
+    /**
+     * In-place Cholesky factorization A = L*L^T of a symmetric positive definite matrix.
+     * Only the lower triangle of {@code a} is read and it is replaced by L.
+     * Returns false if a non-positive pivot is found (matrix not SPD).
+     */
+    public static boolean cholesky(double[] a, int n) {
+        for (int j=0; j<n; j++) {
+            int rj = j*n;
+            double d = a[rj + j];
+            for (int k=0; k<j; k++) d -= a[rj + k] * a[rj + k];
+            if (!(d > 0)) return false;
+            double ljj = Math.sqrt(d);
+            a[rj + j] = ljj;
+            final int col = j;
+            if (n - j > PARALLEL_ROWS) {
+                IntStream.range(j+1, n).parallel().forEach(i -> choleskyRow(a, n, col, i, ljj));
+            } else {
+                for (int i=j+1; i<n; i++) choleskyRow(a, n, col, i, ljj);
+            }
+        }
+        return true;
+    }
+
+    private static void choleskyRow(double[] a, int n, int j, int i, double ljj) {
+        int ri = i*n, rj = j*n;
+        double s = a[ri + j];
+        for (int k=0; k<j; k++) s -= a[ri + k] * a[rj + k];
+        a[ri + j] = s / ljj;
+    }
+
+    /** Solves L*z = b in place, with L lower triangular. */
+    public static void solveLower(double[] l, int n, double[] b) {
+        for (int i=0; i<n; i++) {
+            int ri = i*n;
+            double s = b[i];
+            for (int k=0; k<i; k++) s -= l[ri + k] * b[k];
+            b[i] = s / l[ri + i];
+        }
+    }
+
+    /** Solves L^T*x = b in place, reading L from the lower triangle (row-wise, no transpose). */
+    public static void solveLowerTransposed(double[] l, int n, double[] b) {
+        for (int i=n-1; i>=0; i--) {
+            int ri = i*n;
+            double xi = b[i] / l[ri + i];
+            b[i] = xi;
+            for (int k=0; k<i; k++) b[k] -= l[ri + k] * xi;
+        }
+    }
+
+    /** Solves R*x = b in place, with R upper triangular stored with row stride {@code stride}. */
+    public static void solveUpper(double[] r, int n, int stride, double[] b) {
+        for (int i=n-1; i>=0; i--) {
+            int ri = i*stride;
+            double s = b[i];
+            for (int k=i+1; k<n; k++) s -= r[ri + k] * b[k];
+            double d = r[ri + i];
+            if (Math.abs(d) < 1e-12) throw new IllegalArgumentException("Singular matrix (or near-singular).");
+            b[i] = s / d;
+        }
+    }
+
+    /**
+     * Factors {@code a} in place with Cholesky and solves A*x = b.
+     * Returns null if A is not SPD or the factor indicates it is ill-conditioned.
+     */
+    public static double[] trySolveSPD(double[] a, int n, double[] b) {
+        if (!cholesky(a, n)) return null;
+        double min = Double.POSITIVE_INFINITY, max = 0;
+        for (int i=0; i<n; i++) {
+            double d = a[i*n + i];
+            min = Math.min(min, d);
+            max = Math.max(max, d);
+        }
+        double ratio = max / min;
+        if (ratio * ratio > MAX_CONDITION) return null;
+        double[] x = b.clone();
+        solveLower(a, n, x);
+        solveLowerTransposed(a, n, x);
+        return x;
+    }
+
+    /**
+     * Ridge least squares min ||X*theta - y||^2 + lambda*||theta||^2 via Householder QR
+     * of the stacked system [X; sqrt(lambda)*I], which avoids squaring the condition number.
+     */
+    public static double[] leastSquaresQR(double[][] X, double[] y, double lambda) {
+        int m = X.length, n = X[0].length;
+        int rows = lambda > 0 ? m + n : m;
+        if (rows < n) throw new IllegalArgumentException("Underdetermined system: " + m + " rows, " + n + " columns");
+        int w = n + 1; // y rides along as the last column
+        double[] a = new double[rows * w];
+        for (int i=0; i<m; i++) {
+            System.arraycopy(X[i], 0, a, i*w, n);
+            a[i*w + n] = y[i];
+        }
+        if (lambda > 0) {
+            double s = Math.sqrt(lambda);
+            for (int j=0; j<n; j++) a[(m + j)*w + j] = s;
+        }
+        householder(a, rows, w, n);
+        double[] theta = new double[n];
+        for (int i=0; i<n; i++) theta[i] = a[i*w + n];
+        solveUpper(a, n, w, theta);
+        return theta;
+    }
+
+    /**
+     * Ridge least squares with an intercept, min ||b + X*w - y||^2 + lambda*||[b, w]||^2, by
+     * Householder QR of [1 | X | y] stacked on [sqrt(lambda)*I | 0]. The rows are read in
+     * blocks of {@code QR_BLOCK}: each block is stacked under the current triangular factor
+     * and reduced again, so only (n + 1 + QR_BLOCK) rows are ever held and X is not copied.
+     * Returns theta = [b, w].
+     */
+    public static double[] leastSquaresQR(DataView X, double[] y, double lambda) {
+        int m = X.rows(), n = X.cols(), d = n + 1, w = d + 1;
+        if (y.length != m) throw new IllegalArgumentException("X.rows != y.length");
+        if (lambda <= 0 && m < d) throw new IllegalArgumentException("Underdetermined system: " + m + " rows, " + d + " columns");
+        double[] a = new double[(d + QR_BLOCK) * w];
+        double[] buf = new double[Math.min(QR_BLOCK, Math.max(1, m)) * n];
+        if (lambda > 0) {
+            double s = Math.sqrt(lambda);
+            for (int j=0; j<d; j++) a[j*w + j] = s;
+        }
+        for (int b0=0; b0<m; b0+=QR_BLOCK) {
+            int b1 = Math.min(m, b0 + QR_BLOCK), rows = b1 - b0;
+            X.copyRows(b0, b1, buf);
+            for (int r=0; r<rows; r++) {
+                int o = (d + r) * w;
+                a[o] = 1.0;
+                System.arraycopy(buf, r * n, a, o + 1, n);
+                a[o + d] = y[b0 + r];
+            }
+            householder(a, d + rows, w, d);
+        }
+        double[] theta = new double[d];
+        for (int i=0; i<d; i++) theta[i] = a[i*w + d];
+        solveUpper(a, d, w, theta);
+        return theta;
+    }
+
+    /**
+     * Symmetric eigendecomposition A = V diag(w) V^T by cyclic Jacobi rotations.
+     * {@code a} (n x n) is overwritten; eigenvalues go to {@code w} and the orthonormal
+     * eigenvectors to the columns of {@code v} (n x n). Accurate to working precision
+     * even for tiny eigenvalues, at O(n^3) per sweep (typically under 10 sweeps).
+     */
+    public static void symmetricEigen(double[] a, int n, double[] w, double[] v) {
+        Arrays.fill(v, 0, n * n, 0.0);
+        for (int i=0; i<n; i++) v[i*n + i] = 1.0;
+        double norm2 = 0;
+        for (int i=0; i<n*n; i++) norm2 += a[i] * a[i];
+        for (int sweep=0; sweep<64; sweep++) {
+            double off = 0;
+            for (int p=0; p<n; p++)
+                for (int q=p+1; q<n; q++) off += a[p*n + q] * a[p*n + q];
+            if (off <= 1e-30 * norm2) break;
+            for (int p=0; p<n; p++) {
+                for (int q=p+1; q<n; q++) {
+                    double apq = a[p*n + q];
+                    if (apq == 0.0) continue;
+                    double theta = (a[q*n + q] - a[p*n + p]) / (2 * apq);
+                    double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+                    if (theta == 0.0) t = 1.0;
+                    double c = 1 / Math.sqrt(t * t + 1), s = t * c;
+                    // A = J^T A J: columns p, q then rows p, q; V = V J
+                    for (int k=0; k<n; k++) {
+                        double akp = a[k*n + p], akq = a[k*n + q];
+                        a[k*n + p] = c * akp - s * akq;
+                        a[k*n + q] = s * akp + c * akq;
+                    }
+                    for (int k=0; k<n; k++) {
+                        double apk = a[p*n + k], aqk = a[q*n + k];
+                        a[p*n + k] = c * apk - s * aqk;
+                        a[q*n + k] = s * apk + c * aqk;
+                    }
+                    for (int k=0; k<n; k++) {
+                        double vkp = v[k*n + p], vkq = v[k*n + q];
+                        v[k*n + p] = c * vkp - s * vkq;
+                        v[k*n + q] = s * vkp + c * vkq;
+                    }
+                }
+            }
+        }
+        for (int i=0; i<n; i++) w[i] = a[i*n + i];
+    }
+
+    /** Reduces the first {@code k} columns of the rows x w matrix to upper triangular form. */
+    private static void householder(double[] a, int rows, int w, int k) {
+        double[] v = new double[rows];
+        double[] s = new double[w];
+        for (int c=0; c<k; c++) {
+            double norm2 = 0;
+            for (int i=c; i<rows; i++) { double t = a[i*w + c]; norm2 += t*t; }
+            if (norm2 == 0) continue;
+            double akk = a[c*w + c];
+            double alpha = akk > 0 ? -Math.sqrt(norm2) : Math.sqrt(norm2);
+            v[c] = akk - alpha;
+            for (int i=c+1; i<rows; i++) v[i] = a[i*w + c];
+            double vnorm2 = norm2 - akk*akk + v[c]*v[c];
+            double tau = 2.0 / vnorm2;
+            // s = v^T * A[c:, c+1:], accumulated row by row to stay contiguous
+            Arrays.fill(s, c+1, w, 0.0);
+            for (int i=c; i<rows; i++) {
+                double vi = v[i];
+                if (vi == 0) continue;
+                int ri = i*w;
+                for (int j=c+1; j<w; j++) s[j] += vi * a[ri + j];
+            }
+            for (int i=c; i<rows; i++) {
+                double f = tau * v[i];
+                if (f == 0) continue;
+                int ri = i*w;
+                for (int j=c+1; j<w; j++) a[ri + j] -= f * s[j];
+            }
+            a[c*w + c] = alpha;
+            for (int i=c+1; i<rows; i++) a[i*w + c] = 0.0;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package edu.eafit.oop.lr;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator for {@link ScoringServer}: {@code --concurrency} workers each
+ * send single-row requests back to back until {@code --requests} have been sent, then
+ * the client-side throughput and latency percentiles are printed together with the
+ * server's {@code /stats}.
+ *
+ * Example:
+ *   java -cp out edu.eafit.oop.lr.LoadClient --url http://localhost:8080 --features 4 --concurrency 64 --requests 200000
+ */
+public final class LoadClient {
+
+    private LoadClient() {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String,String> flags = App.parseArgs(args);
+        String url = flags.getOrDefault("--url", "http://localhost:8080");
+        int features = Integer.parseInt(flags.getOrDefault("--features", "0"));
+        int concurrency = Integer.parseInt(flags.getOrDefault("--concurrency", "32"));
+        long total = Long.parseLong(flags.getOrDefault("--requests", "100000"));
+        boolean binary = flags.containsKey("--binary");
+        if (features <= 0 || concurrency <= 0) {
+            System.err.println("Usage: LoadClient --features <n> [--url <base>] [--concurrency <c>] [--requests <N>] [--binary]");
+            return;
+        }
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(5)).build();
+        System.out.println(run(client, url, features, concurrency, total, binary));
+        HttpResponse<String> stats = client.send(HttpRequest.newBuilder(URI.create(url + "/stats")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        System.out.println("server /stats: " + stats.body());
+    }
+
+    /** Runs the load and returns a one-paragraph report. */
+    static String run(HttpClient client, String url, int features, int concurrency, long total, boolean binary) throws Exception {
+        URI predict = URI.create(url + "/predict");
+        LatencyHistogram hist = new LatencyHistogram();
+        AtomicLong sent = new AtomicLong(), failed = new AtomicLong();
+        ExecutorService vt = ScoringServer.newVirtualThreadExecutor();
+        ExecutorService pool = vt != null ? vt : Executors.newFixedThreadPool(concurrency);
+        long t0 = System.nanoTime();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int w=0; w<concurrency; w++) {
+                long seed = w;
+                workers.add(pool.submit(() -> {
+                    Random r = new Random(seed);
+                    double[] row = new double[features];
+                    while (sent.getAndIncrement() < total) {
+                        for (int j=0; j<features; j++) row[j] = r.nextGaussian();
+                        HttpRequest.Builder req = HttpRequest.newBuilder(predict).timeout(Duration.ofSeconds(30));
+                        if (binary) {
+                            ByteBuffer b = ByteBuffer.allocate(8 * features).order(ByteOrder.LITTLE_ENDIAN);
+                            b.asDoubleBuffer().put(row);
+                            req.header("Content-Type", "application/octet-stream")
+                               .POST(HttpRequest.BodyPublishers.ofByteArray(b.array()));
+                        } else {
+                            StringBuilder sb = new StringBuilder("[");
+                            for (int j=0; j<features; j++) sb.append(j == 0 ? "" : ",").append(row[j]);
+                            req.header("Content-Type", "application/json")
+                               .POST(HttpRequest.BodyPublishers.ofString(sb.append(']').toString()));
+                        }
+                        long s = System.nanoTime();
+                        try {
+                            HttpResponse<byte[]> res = client.send(req.build(), HttpResponse.BodyHandlers.ofByteArray());
+                            if (res.statusCode() != 200) failed.incrementAndGet();
+                        } catch (java.io.IOException e) {
+                            failed.incrementAndGet();
+                        }
+                        hist.record(System.nanoTime() - s);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : workers) f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        double secs = (System.nanoTime() - t0) / 1e9;
+        long done = hist.count();
+        return String.format(Locale.US,
+                "%d requests (%d failed) in %.2f s from %d %s workers: %.0f req/s%n"
+                + "client latency us: p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f",
+                done, failed.get(), secs, concurrency, vt != null ? "virtual" : "platform", done / secs,
+                hist.percentile(0.50) / 1e3, hist.percentile(0.90) / 1e3, hist.percentile(0.99) / 1e3,
+                hist.percentile(0.999) / 1e3, hist.max() / 1e3);
+    }
+}
@@ -0,0 +1,402 @@
+package edu.eafit.oop.lr;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Zero-copy CSV parser: the file is memory-mapped and scanned byte by byte for
+ * delimiters and line ends, numbers are parsed in place and written straight into
+ * one primitive buffer per column. Semantics match the original line-based reader:
+ * ',' or ';' detected from the header, fields trimmed and stripped of '"',
+ * empty/NA fields read as NaN, rows containing NaN dropped, and a column-count
+ * mismatch reported with its line number.
+ *
+ * The data section is cut into byte ranges that start on a line boundary. Ranges
+ * are parsed independently (in parallel when asked) and stitched back in file
+ * order; line numbers in errors are rebased once the line count of every earlier
+ * range is known.
+ */
+final class MappedCSVParser {
+
+    /** Largest range mapped at once. */
+    private static final long MAX_CHUNK = 1L << 30;
+    /** Smallest range worth handing to another worker. */
+    private static final long MIN_PARALLEL_CHUNK = 1L << 22;
+    /** Window mapped at once by {@link #stream}. */
+    private static final long STREAM_WINDOW = 1L << 26;
+
+    /** Parsed columns, each exactly {@code rows} long. */
+    static final class Result {
+        final String[] headers;
+        final double[][] columns;
+        final int rows;
+        Result(String[] headers, double[][] columns, int rows) {
+            this.headers = headers;
+            this.columns = columns;
+            this.rows = rows;
+        }
+    }
+
+    private MappedCSVParser() {}
+
+    static Result parse(Path path) throws IOException {
+        return parse(path, false);
+    }
+
+    /** Parses {@code path}; with {@code parallel} the ranges run on the common fork-join pool. */
+    static Result parse(Path path, boolean parallel) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            Header h = readHeader(ch, size);
+
+            // ---- data ranges ----
+            long target = MAX_CHUNK;
+            if (parallel) {
+                long perWorker = (size - h.dataStart) / (ForkJoinPool.getCommonPoolParallelism() * 4L);
+                target = Math.max(MIN_PARALLEL_CHUNK, Math.min(MAX_CHUNK, perWorker));
+            }
+            List<Chunk> chunks = new ArrayList<>();
+            long start = h.dataStart;
+            while (start < size) {
+                long end = start + target >= size ? size : alignToLine(ch, start + target, size);
+                if (end - start > MAX_CHUNK) throw new IOException("A single row is longer than " + MAX_CHUNK + " bytes");
+                chunks.add(new Chunk(ch, start, end, h.delim, h.names.length));
+                start = end;
+            }
+            if (parallel && chunks.size() > 1) {
+                ForkJoinPool.commonPool().invoke(new ParseAll(chunks.toArray(new Chunk[0])));
+            } else {
+                for (Chunk c : chunks) {
+                    c.compute();
+                    if (c.failed()) break;
+                }
+            }
+            return stitch(h.names, chunks);
+        }
+    }
+
+    /** Receives the rows of {@link #stream}, in file order. */
+    interface RowSink {
+        /** {@code row} is reused between calls; {@code index} counts the rows kept so far (0-based). */
+        void accept(double[] row, long index) throws IOException;
+    }
+
+    /** Column names of {@code path} without reading the data section. */
+    static String[] headers(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readHeader(ch, ch.size()).names;
+        }
+    }
+
+    /**
+     * Streams the rows of {@code path} to {@code sink} with the same semantics as
+     * {@link #parse}, without keeping them: the file is mapped one line-aligned window of
+     * at most {@code STREAM_WINDOW} bytes at a time and rows are handed over one by one,
+     * so heap use does not depend on the file size.
+     */
+    static void stream(Path path, RowSink sink) throws IOException {
+        stream(path, 0, 1, sink);
+    }
+
+    /**
+     * {@link #stream(Path, RowSink)} restricted to shard {@code shard} of {@code shards}: the
+     * data section is cut into that many equal byte ranges moved forward to line starts, so
+     * the shards cover every row exactly once. Row indexes and error line numbers count from
+     * the start of the shard.
+     */
+    static void stream(Path path, int shard, int shards, RowSink sink) throws IOException {
+        if (shards <= 0 || shard < 0 || shard >= shards) throw new IllegalArgumentException("Bad shard " + shard + " of " + shards);
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            Header h = readHeader(ch, size);
+            LineParser lp = new LineParser(h.delim, h.names.length);
+            long span = size - h.dataStart;
+            long start = shard == 0 ? h.dataStart : alignToLine(ch, h.dataStart + span * shard / shards, size);
+            long stop = shard == shards - 1 ? size : alignToLine(ch, h.dataStart + span * (shard + 1) / shards, size);
+            String where = shards == 1 ? "Row " : "Shard " + shard + " row ";
+            long lines = shards == 1 ? 1 : 0; // the header counts as line 1 of the file
+            long kept = 0;
+            while (start < stop) {
+                long end = start + STREAM_WINDOW >= stop ? stop : alignToLine(ch, start + STREAM_WINDOW, stop);
+                if (end - start > MAX_CHUNK) throw new IOException("A single row is longer than " + MAX_CHUNK + " bytes");
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                int lim = buf.limit();
+                int pos = 0;
+                while (pos < lim) {
+                    int eol = lineEnd(buf, pos);
+                    lines++;
+                    int st = lp.parse(buf, pos, eol);
+                    pos = skipTerminator(buf, eol);
+                    if (st == LineParser.BAD_COUNT) {
+                        throw new IOException(where + lines + " has " + lp.counted + " columns, expected " + h.names.length);
+                    }
+                    if (st == LineParser.BAD_NUMBER) throw lp.error;
+                    if (st == LineParser.OK) sink.accept(lp.row, kept++);
+                }
+                start = end;
+            }
+        }
+    }
+
+    /** Header names, delimiter and the offset of the first data line. */
+    private static final class Header {
+        final String[] names;
+        final byte delim;
+        final long dataStart;
+        Header(String[] names, byte delim, long dataStart) {
+            this.names = names; this.delim = delim; this.dataStart = dataStart;
+        }
+    }
+
+    private static Header readHeader(FileChannel ch, long size) throws IOException {
+        if (size == 0) throw new IOException("Empty file");
+        long headerEnd = scanToTerminator(ch, 0, size);
+        if (headerEnd > Integer.MAX_VALUE - 8) throw new IOException("Header line too long");
+        byte[] hb = new byte[(int) headerEnd];
+        ByteBuffer b = ByteBuffer.wrap(hb);
+        while (b.hasRemaining()) {
+            if (ch.read(b, b.position()) < 0) throw new IOException("Unexpected end of file");
+        }
+        String headerLine = new String(hb, StandardCharsets.UTF_8);
+        byte delim = headerLine.indexOf(';') >= 0 ? (byte) ';' : (byte) ',';
+        String[] names = headerLine.trim().split("\\s*" + (delim == ';' ? ";" : ",") + "\\s*");
+        return new Header(names, delim, alignToLine(ch, headerEnd + 1, size));
+    }
+
+    /** Concatenates the chunks in file order, or rethrows the first error with its absolute line number. */
+    private static Result stitch(String[] headers, List<Chunk> chunks) throws IOException {
+        int linesBefore = 1; // header
+        long total = 0;
+        for (Chunk c : chunks) {
+            if (c.ioError != null) throw c.ioError;
+            if (c.parseError != null) throw c.parseError;
+            if (c.counted >= 0) {
+                throw new IOException("Row " + (linesBefore + c.lines) + " has " + c.counted +
+                    " columns, expected " + headers.length);
+            }
+            linesBefore += c.lines;
+            total += c.rows;
+        }
+        if (total > Integer.MAX_VALUE - 8) throw new IOException("Too many rows: " + total);
+        int rows = (int) total;
+        double[][] cols = new double[headers.length][];
+        for (int j=0; j<cols.length; j++) {
+            if (chunks.size() == 1) {
+                cols[j] = Arrays.copyOf(chunks.get(0).cols[j], rows);
+                continue;
+            }
+            double[] col = new double[rows];
+            int at = 0;
+            for (Chunk c : chunks) {
+                System.arraycopy(c.cols[j], 0, col, at, c.rows);
+                at += c.rows;
+            }
+            cols[j] = col;
+        }
+        return new Result(headers, cols, rows);
+    }
+
+    /** One line-aligned byte range [start, end) of the data section. */
+    private static final class Chunk extends RecursiveAction {
+        final FileChannel ch;
+        final long start, end;
+        final byte delim;
+        final int expected;
+        double[][] cols;
+        int rows;
+        /** Lines consumed so far; on an error, the 1-based line of the error within the range. */
+        int lines;
+        int counted = -1;
+        NumberFormatException parseError;
+        IOException ioError;
+
+        Chunk(FileChannel ch, long start, long end, byte delim, int expected) {
+            this.ch = ch; this.start = start; this.end = end;
+            this.delim = delim; this.expected = expected;
+        }
+
+        boolean failed() { return counted >= 0 || parseError != null || ioError != null; }
+
+        @Override protected void compute() {
+            MappedByteBuffer buf;
+            try {
+                buf = ch.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            } catch (IOException e) {
+                ioError = e;
+                return;
+            }
+            int lim = buf.limit();
+            int cap = (int) Math.max(16, Math.min(lim / (8L * expected), 1 << 20));
+            cols = new double[expected][cap];
+            LineParser lp = new LineParser(delim, expected);
+            int pos = 0;
+            while (pos < lim) {
+                int eol = lineEnd(buf, pos);
+                lines++;
+                int st = lp.parse(buf, pos, eol);
+                pos = skipTerminator(buf, eol);
+                if (st == LineParser.BAD_COUNT) {
+                    counted = lp.counted;
+                    return;
+                }
+                if (st == LineParser.BAD_NUMBER) {
+                    parseError = lp.error;
+                    return;
+                }
+                if (st != LineParser.OK) continue;
+                if (rows == cap) {
+                    cap = cap + (cap >> 1);
+                    for (int c=0; c<expected; c++) cols[c] = Arrays.copyOf(cols[c], cap);
+                }
+                for (int c=0; c<expected; c++) cols[c][rows] = lp.row[c];
+                rows++;
+            }
+        }
+    }
+
+    /** Splits one line into fields and parses them into {@link #row}. */
+    private static final class LineParser {
+        static final int OK = 0, BLANK = 1, HAS_NAN = 2, BAD_COUNT = 3, BAD_NUMBER = 4;
+
+        final byte delim;
+        final int expected;
+        final double[] row;
+        /** Non-empty field count of the last BAD_COUNT line. */
+        int counted;
+        NumberFormatException error;
+
+        LineParser(byte delim, int expected) {
+            this.delim = delim;
+            this.expected = expected;
+            this.row = new double[expected];
+        }
+
+        /** Parses the line [s, e) (terminator excluded) and returns one of the status codes. */
+        int parse(MappedByteBuffer buf, int s, int e) {
+            while (s < e && (buf.get(s) & 0xff) <= ' ') s++;
+            while (e > s && (buf.get(e-1) & 0xff) <= ' ') e--;
+            if (s == e) return BLANK;
+
+            int fields = 0, nonEmpty = 0;
+            boolean nan = false;
+            NumberFormatException bad = null;
+            int fs = s;
+            for (int i=s; ; i++) {
+                if (i < e && buf.get(i) != delim) continue;
+                // field [fs, i)
+                if (fields < expected && bad == null) {
+                    try {
+                        double v = parseField(buf, fs, i);
+                        row[fields] = v;
+                        if (v != v) nan = true;
+                    } catch (NumberFormatException ex) {
+                        bad = ex; // reported only if the column count is right, as before
+                    }
+                }
+                fields++;
+                if (i > fs) nonEmpty = fields; // String.split drops trailing empty fields
+                if (i >= e) break;
+                fs = i + 1;
+            }
+            if (nonEmpty != expected) {
+                counted = nonEmpty;
+                return BAD_COUNT;
+            }
+            if (bad != null) {
+                error = bad;
+                return BAD_NUMBER;
+            }
+            return nan ? HAS_NAN : OK;
+        }
+    }
+
+    private static final class ParseAll extends RecursiveAction {
+        final Chunk[] chunks;
+        ParseAll(Chunk[] chunks) { this.chunks = chunks; }
+        @Override protected void compute() { invokeAll(chunks); }
+    }
+
+    /** Position of the first '\n' or '\r' at or after {@code from}, or {@code size}. */
+    private static long scanToTerminator(FileChannel ch, long from, long size) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(1 << 16);
+        long pos = from;
+        while (pos < size) {
+            b.clear();
+            int n = ch.read(b, pos);
+            if (n <= 0) break;
+            for (int i=0; i<n; i++) {
+                byte c = b.get(i);
+                if (c == '\n' || c == '\r') return pos + i;
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    /**
+     * Smallest q >= p that starts a line: the byte before q ends a line and q is not
+     * the '\n' of a "\r\n" pair. Returns {@code size} if there is none.
+     */
+    private static long alignToLine(FileChannel ch, long p, long size) throws IOException {
+        if (p >= size) return size;
+        ByteBuffer b = ByteBuffer.allocate(1 << 16);
+        long pos = p - 1; // the byte before p decides whether p itself is a line start
+        byte prev = 0;
+        boolean first = true;
+        while (pos < size) {
+            b.clear();
+            int n = ch.read(b, pos);
+            if (n <= 0) break;
+            for (int i=0; i<n; i++) {
+                byte c = b.get(i);
+                if (!first && (prev == '\n' || (prev == '\r' && c != '\n'))) return pos + i;
+                first = false;
+                prev = c;
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    /** Index of the first '\n' or '\r' at or after {@code pos}, or the buffer limit. */
+    static int lineEnd(MappedByteBuffer buf, int pos) {
+        int lim = buf.limit();
+        while (pos < lim) {
+            byte b = buf.get(pos);
+            if (b == '\n' || b == '\r') return pos;
+            pos++;
+        }
+        return lim;
+    }
+
+    /** Skips a "\n", "\r" or "\r\n" terminator at {@code end}. */
+    static int skipTerminator(MappedByteBuffer buf, int end) {
+        int lim = buf.limit();
+        if (end >= lim) return end;
+        if (buf.get(end) == '\r') {
+            end++;
+            if (end < lim && buf.get(end) == '\n') end++;
+            return end;
+        }
+        return end + 1;
+    }
+
+    /** Trims, ignores '"', maps empty/NA to NaN and parses the rest as a double. */
+    static double parseField(MappedByteBuffer buf, int from, int to) {
+        while (from < to && ((buf.get(from) & 0xff) <= ' ' || buf.get(from) == '"')) from++;
+        while (to > from && ((buf.get(to-1) & 0xff) <= ' ' || buf.get(to-1) == '"')) to--;
+        if (from == to) return Double.NaN;
+        if (to - from == 2 && (buf.get(from) | 0x20) == 'n' && (buf.get(from+1) | 0x20) == 'a') return Double.NaN;
+        return FastDoubleParser.parse(buf, from, to);
+    }
+}
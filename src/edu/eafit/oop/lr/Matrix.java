@@ -17,29 +17,55 @@ public class Matrix {
     public static double[][] dot(double[][] A, double[][] B) {
         int m = A.length, n = A[0].length, p = B[0].length;
         if (B.length != n) throw new IllegalArgumentException("A.cols != B.rows");
-        double[][] C = new double[m][p];
-        for (int i=0; i<m; i++) {
-            for (int k=0; k<p; k++) {
-                double s = 0;
-                for (int j=0; j<n; j++) s += A[i][j] * B[j][k];
-                C[i][k] = s;
-            }
-        }
-        return C;
+        double[] c = new double[m * p];
+        Gemm.multiply(flatten(A), flatten(B), c, m, n, p);
+        return unflatten(c, m, p);
     }
 
     public static double[] dot(double[][] A, double[] v) {
         int m = A.length, n = A[0].length;
         if (v.length != n) throw new IllegalArgumentException("A.cols != v.length");
         double[] r = new double[m];
+        Gemm.gemv(A, v, r);
+        return r;
+    }
+
+    /** A^T A computed directly from the rows of A (symmetric, transpose never built). */
+    public static double[][] gram(double[][] A) {
+        int n = A[0].length;
+        double[] c = new double[n * n];
+        Gemm.syrk(A, n, c);
+        return unflatten(c, n, n);
+    }
+
+    /** A^T v without forming A^T. */
+    public static double[] transposeDot(double[][] A, double[] v) {
+        int m = A.length, n = A[0].length;
+        if (v.length != m) throw new IllegalArgumentException("A.rows != v.length");
+        double[] r = new double[n];
         for (int i=0; i<m; i++) {
-            double s = 0;
-            for (int j=0; j<n; j++) s += A[i][j] * v[j];
-            r[i] = s;
+            double s = v[i];
+            double[] row = A[i];
+            for (int j=0; j<n; j++) r[j] += s * row[j];
         }
         return r;
     }
 
+    /** Copies a jagged matrix into a flat row-major array. */
+    public static double[] flatten(double[][] A) {
+        int m = A.length, n = A[0].length;
+        double[] f = new double[m * n];
+        for (int i=0; i<m; i++) System.arraycopy(A[i], 0, f, i*n, n);
+        return f;
+    }
+
+    /** Copies a flat row-major array back into a jagged m x n matrix. */
+    public static double[][] unflatten(double[] f, int m, int n) {
+        double[][] A = new double[m][n];
+        for (int i=0; i<m; i++) System.arraycopy(f, i*n, A[i], 0, n);
+        return A;
+    }
+
     public static double[][] add(double[][] A, double[][] B) {
         int m = A.length, n = A[0].length;
         if (B.length != m || B[0].length != n) throw new IllegalArgumentException("size mismatch");
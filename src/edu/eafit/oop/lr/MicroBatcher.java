@@ -0,0 +1,122 @@
+package edu.eafit.oop.lr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces concurrent single-row requests into batches. One worker thread takes the
+ * first pending row, keeps collecting until {@code windowNanos} have passed or
+ * {@code maxBatch} rows are queued, then scores them all with one
+ * {@link Predictor#predictInto} call. The predictor is read once per batch from the
+ * shared reference, so a model swap takes effect at the next batch boundary.
+ */
+final class MicroBatcher implements AutoCloseable {
+
+    private static final class Pending {
+        final double[] row;
+        final CompletableFuture<Double> result = new CompletableFuture<>();
+        Pending(double[] row) { this.row = row; }
+    }
+
+    private final AtomicReference<Predictor> model;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread worker;
+    private volatile boolean running = true;
+    final LongAdder batches = new LongAdder();
+    final LongAdder batchedRows = new LongAdder();
+
+    MicroBatcher(AtomicReference<Predictor> model, long windowNanos, int maxBatch) {
+        if (maxBatch <= 0) throw new IllegalArgumentException("maxBatch must be > 0");
+        this.model = model;
+        this.windowNanos = Math.max(0, windowNanos);
+        this.maxBatch = maxBatch;
+        this.worker = new Thread(this::run, "lr-micro-batcher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Queues one row; the future completes with its prediction, an IllegalArgumentException,
+     * or an IllegalStateException once the batcher is closed.
+     */
+    CompletableFuture<Double> submit(double[] row) {
+        Pending p = new Pending(row);
+        if (!running) {
+            p.result.completeExceptionally(closed());
+            return p.result;
+        }
+        queue.add(p);
+        // Closed in between: the worker may already have drained the queue for the last time.
+        // Whoever removes the row completes it, so it is failed here or scored there, never lost.
+        if (!running && queue.remove(p)) p.result.completeExceptionally(closed());
+        return p.result;
+    }
+
+    private static IllegalStateException closed() {
+        return new IllegalStateException("Batcher closed");
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        double[] flat = new double[0], out = new double[maxBatch];
+        while (running) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    long left = deadline - System.nanoTime();
+                    Pending p = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : null;
+                    if (p == null) break;
+                    batch.add(p);
+                }
+                queue.drainTo(batch, maxBatch - batch.size());
+
+                Predictor pr = model.get();
+                int n = pr.features(), k = 0;
+                if (flat.length < maxBatch * n) flat = new double[maxBatch * n];
+                // Rows of the wrong width fail individually; the rest are packed and scored together
+                for (int i=0; i<batch.size(); i++) {
+                    Pending p = batch.get(i);
+                    if (p.row.length != n) {
+                        p.result.completeExceptionally(new IllegalArgumentException("Expected " + n + " features, got " + p.row.length));
+                        batch.set(i, null);
+                        continue;
+                    }
+                    System.arraycopy(p.row, 0, flat, k++ * n, n);
+                }
+                pr.predictInto(flat, k, out);
+                for (int i=0, j=0; i<batch.size(); i++) {
+                    if (batch.get(i) != null) batch.get(i).result.complete(out[j++]);
+                }
+                batches.increment();
+                batchedRows.add(k);
+            } catch (InterruptedException e) {
+                // Closed while collecting: the rows already taken off the queue are failed here
+                for (Pending p : batch) p.result.completeExceptionally(closed());
+                break;
+            } catch (RuntimeException e) {
+                for (Pending p : batch) if (p != null) p.result.completeExceptionally(e);
+            } finally {
+                batch.clear();
+            }
+        }
+        Pending p;
+        while ((p = queue.poll()) != null) p.result.completeExceptionally(closed());
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+    }
+}
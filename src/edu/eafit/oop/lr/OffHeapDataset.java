@@ -0,0 +1,252 @@
+package edu.eafit.oop.lr;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dataset stored outside the Java heap, row-major, in fixed-size chunks of native memory
+ * ({@link ByteBuffer#allocateDirect}) or of a scratch file mapped read-write. The heap only
+ * holds one small buffer object per chunk, so GC pauses do not grow with the data; the
+ * views returned by {@link #view()} and {@link #featureView(int)} copy rows out with bulk
+ * buffer reads, and every {@link DataView} consumer ({@link StandardScaler},
+ * {@link GramAccumulator}, {@link LinearRegression} fit/predict) reads from them as usual.
+ *
+ * The memory is released by {@link #close()} (the file-backed variant also deletes its file),
+ * not by the garbage collector. Reads after close throw {@link IllegalStateException}; close
+ * must not run while another thread is still reading.
+ */
+public final class OffHeapDataset implements AutoCloseable {
+
+    /** Doubles per chunk (8 MB), rounded down to whole rows. */
+    static final int CHUNK_DOUBLES = 1 << 20;
+
+    public final String[] headers;
+    private final int cols, rowsPerChunk;
+    private final Path file;           // null = native memory
+    private final FileChannel channel;
+    private final List<ByteBuffer> raw = new ArrayList<>();
+    private DoubleBuffer[] chunks = new DoubleBuffer[4];
+    private int rows;
+    private boolean closed;
+
+    private OffHeapDataset(String[] headers, Path file, FileChannel channel) {
+        if (headers.length == 0) throw new IllegalArgumentException("Dataset needs at least one column");
+        this.headers = headers;
+        this.cols = headers.length;
+        this.rowsPerChunk = Math.max(1, CHUNK_DOUBLES / cols);
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /** Empty dataset in native memory. */
+    public static OffHeapDataset allocate(String[] headers) {
+        return new OffHeapDataset(headers, null, null);
+    }
+
+    /** Empty dataset backed by {@code file} (created or truncated, deleted on close). */
+    public static OffHeapDataset create(String[] headers, Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new OffHeapDataset(headers, file, ch);
+    }
+
+    /**
+     * Parses {@code csv} straight into a new dataset (native memory, or {@code file} when it is
+     * not null): rows are streamed by {@link MappedCSVParser} and appended one by one, so the
+     * text is never materialized on the heap.
+     */
+    public static OffHeapDataset readCsv(Path csv, Path file) throws IOException {
+        String[] headers = MappedCSVParser.headers(csv);
+        OffHeapDataset ds = file == null ? allocate(headers) : create(headers, file);
+        try {
+            MappedCSVParser.stream(csv, (row, index) -> ds.addRow(row));
+        } catch (IOException | RuntimeException e) {
+            ds.close();
+            throw e;
+        }
+        return ds;
+    }
+
+    public int rows() { return rows; }
+    public int cols() { return cols; }
+
+    /** Whether the rows live in a mapped file rather than in native memory. */
+    public boolean isFileBacked() { return file != null; }
+
+    /** Off-heap bytes reserved so far (whole chunks). */
+    public long reservedBytes() { return (long) raw.size() * rowsPerChunk * cols * 8; }
+
+    public int indexOfColumn(String name) {
+        for (int j=0; j<headers.length; j++) if (headers[j].equalsIgnoreCase(name)) return j;
+        return -1;
+    }
+
+    /** Appends {@code row} (its first {@link #cols()} values). */
+    public void addRow(double[] row) throws IOException {
+        checkOpen();
+        if (row.length < cols) throw new IllegalArgumentException("Row has " + row.length + " values, expected " + cols);
+        if (rows == Integer.MAX_VALUE - 8) throw new IllegalStateException("Too many rows");
+        int c = rows / rowsPerChunk;
+        if (c == raw.size()) addChunk();
+        chunks[c].put((rows % rowsPerChunk) * cols, row, 0, cols);
+        rows++;
+    }
+
+    private void addChunk() throws IOException {
+        int bytes = rowsPerChunk * cols * 8;
+        ByteBuffer b = channel == null ? ByteBuffer.allocateDirect(bytes)
+                : channel.map(FileChannel.MapMode.READ_WRITE, (long) raw.size() * bytes, bytes);
+        b.order(ByteOrder.nativeOrder());
+        if (raw.size() == chunks.length) chunks = Arrays.copyOf(chunks, 2 * chunks.length);
+        chunks[raw.size()] = b.asDoubleBuffer();
+        raw.add(b);
+    }
+
+    public double get(int i, int j) {
+        checkOpen();
+        if (i < 0 || i >= rows) throw new IndexOutOfBoundsException("Row " + i + " of " + rows);
+        return chunks[i / rowsPerChunk].get((i % rowsPerChunk) * cols + j);
+    }
+
+    /** Column {@code j} copied onto the heap. */
+    public double[] column(int j) {
+        return view(new int[] { j }).column(0);
+    }
+
+    /** All columns as a view (no copy). */
+    public DataView view() {
+        int[] all = new int[cols];
+        for (int j=0; j<cols; j++) all[j] = j;
+        return view(all);
+    }
+
+    /** Every column except {@code skipCol} as a view (no copy). */
+    public DataView featureView(int skipCol) {
+        if (skipCol < 0 || skipCol >= cols) throw new IllegalArgumentException("Column out of range: " + skipCol);
+        int[] keep = new int[cols - 1];
+        for (int j=0, t=0; j<cols; j++) if (j != skipCol) keep[t++] = j;
+        return view(keep);
+    }
+
+    /** The given columns, in the given order, as a view (no copy). */
+    public DataView view(int[] select) {
+        for (int j : select) if (j < 0 || j >= cols) throw new IllegalArgumentException("Column out of range: " + j);
+        return new RowMajorView(select);
+    }
+
+    /** Releases the memory now; the file-backed variant is unmapped and its file deleted. */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        chunks = null;
+        for (ByteBuffer b : raw) free(b);
+        raw.clear();
+        if (channel != null) {
+            try {
+                channel.close();
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) throw new IllegalStateException("Dataset is closed");
+    }
+
+    /**
+     * Direct and mapped buffers are normally freed when the GC finds them unreachable; the
+     * JDK's {@code Unsafe.invokeCleaner} frees one at once. Without it, memory goes back at
+     * the next GC after close.
+     */
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+    static {
+        Object u = null;
+        Method m = null;
+        try {
+            Class<?> c = Class.forName("sun.misc.Unsafe");
+            Field f = c.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            u = f.get(null);
+            m = c.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            m = null; // not available: memory is returned by the GC
+        }
+        UNSAFE = u;
+        INVOKE_CLEANER = m;
+    }
+
+    private static void free(ByteBuffer b) {
+        if (INVOKE_CLEANER == null) return;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, b);
+        } catch (ReflectiveOperationException e) {
+            // left to the GC
+        }
+    }
+
+    /**
+     * Row-major view of selected columns. Consecutive selected columns form runs copied with
+     * one bulk read per row; the full view copies whole chunk ranges at once.
+     */
+    private final class RowMajorView implements DataView {
+        private final int[] select;
+        private final int[] runSrc, runLen; // runs of consecutive source columns
+        private final boolean all;
+
+        RowMajorView(int[] select) {
+            this.select = select;
+            int runs = 0;
+            for (int k=0; k<select.length; k++) if (k == 0 || select[k] != select[k-1] + 1) runs++;
+            runSrc = new int[runs];
+            runLen = new int[runs];
+            for (int k=0, r=-1; k<select.length; k++) {
+                if (k == 0 || select[k] != select[k-1] + 1) runSrc[++r] = select[k];
+                runLen[r]++;
+            }
+            all = runs == 1 && runSrc[0] == 0 && runLen[0] == cols;
+        }
+
+        @Override public int rows() { return rows; }
+        @Override public int cols() { return select.length; }
+        @Override public double get(int i, int j) { return OffHeapDataset.this.get(i, select[j]); }
+
+        @Override public void copyRow(int i, double[] dst, int off) {
+            checkOpen();
+            DoubleBuffer c = chunks[i / rowsPerChunk];
+            int base = (i % rowsPerChunk) * cols;
+            for (int r=0; r<runSrc.length; r++) {
+                c.get(base + runSrc[r], dst, off, runLen[r]);
+                off += runLen[r];
+            }
+        }
+
+        @Override public void copyRows(int from, int to, double[] dst) {
+            if (!all) {
+                DataView.super.copyRows(from, to, dst);
+                return;
+            }
+            checkOpen();
+            for (int i=from, o=0; i<to; ) {
+                int k = i / rowsPerChunk, r0 = i % rowsPerChunk;
+                int r1 = Math.min(rowsPerChunk, r0 + (to - i));
+                chunks[k].get(r0 * cols, dst, o, (r1 - r0) * cols);
+                o += (r1 - r0) * cols;
+                i += r1 - r0;
+            }
+        }
+    }
+}
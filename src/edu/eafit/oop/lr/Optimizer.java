@@ -0,0 +1,49 @@
+package edu.eafit.oop.lr;
+
+/**
+ * Update rule used by the iterative training methods (GD and mini-batch SGD).
+ * Parameters are a single vector theta = [bias, w_1..w_n]; implementations keep
+ * their own state (velocity, moments) sized in {@link #reset(int)}.
+ */
+public interface Optimizer {
+
+    /** Loss at a trial parameter vector, on the rows of the current batch. */
+    interface Objective {
+        double loss(double[] theta);
+    }
+
+    /** Clears internal state before a new training run. */
+    void reset(int size);
+
+    /** Updates {@code theta} in place from the batch gradient and loss. */
+    void step(double[] theta, double[] grad, double loss, double learningRate, Objective f);
+
+    /** Plain gradient step: theta -= lr * g. */
+    static Optimizer sgd() { return new Optimizers.Plain(); }
+
+    /** Heavy-ball momentum with coefficient {@code mu} (e.g. 0.9). */
+    static Optimizer momentum(double mu) { return new Optimizers.Momentum(mu, false); }
+
+    /** Nesterov accelerated gradient with coefficient {@code mu} (e.g. 0.9). */
+    static Optimizer nesterov(double mu) { return new Optimizers.Momentum(mu, true); }
+
+    /** Adam with the usual defaults (beta1=0.9, beta2=0.999, eps=1e-8). */
+    static Optimizer adam() { return new Optimizers.Adam(0.9, 0.999, 1e-8); }
+
+    static Optimizer adam(double beta1, double beta2, double eps) { return new Optimizers.Adam(beta1, beta2, eps); }
+
+    /** Armijo backtracking line search along -g; the learning rate is the first trial step. */
+    static Optimizer lineSearch() { return new Optimizers.LineSearch(); }
+
+    /** Looks up an optimizer by CLI name: sgd, momentum, nesterov, adam or linesearch. */
+    static Optimizer byName(String name) {
+        switch (name) {
+            case "sgd":        return sgd();
+            case "momentum":   return momentum(0.9);
+            case "nesterov":   return nesterov(0.9);
+            case "adam":       return adam();
+            case "linesearch": return lineSearch();
+            default: throw new IllegalArgumentException("Unknown optimizer: " + name);
+        }
+    }
+}
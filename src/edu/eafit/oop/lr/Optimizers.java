@@ -0,0 +1,101 @@
+package edu.eafit.oop.lr;
+
+/** Built-in {@link Optimizer} implementations; create them through the factories on Optimizer. */
+final class Optimizers {
+
+    private Optimizers() {}
+
+    static final class Plain implements Optimizer {
+        @Override public void reset(int size) {}
+        @Override public void step(double[] theta, double[] grad, double loss, double lr, Objective f) {
+            for (int j=0; j<theta.length; j++) theta[j] -= lr * grad[j];
+        }
+    }
+
+    /** Heavy-ball momentum, or Nesterov in the "look-ahead on the velocity" form (one gradient per step). */
+    static final class Momentum implements Optimizer {
+        private final double mu;
+        private final boolean nesterov;
+        private double[] v;
+
+        Momentum(double mu, boolean nesterov) {
+            if (mu < 0 || mu >= 1) throw new IllegalArgumentException("momentum must be in [0, 1)");
+            this.mu = mu;
+            this.nesterov = nesterov;
+        }
+
+        @Override public void reset(int size) { v = new double[size]; }
+
+        @Override public void step(double[] theta, double[] grad, double loss, double lr, Objective f) {
+            for (int j=0; j<theta.length; j++) {
+                double prev = v[j];
+                v[j] = mu * prev - lr * grad[j];
+                theta[j] += nesterov ? -mu * prev + (1 + mu) * v[j] : v[j];
+            }
+        }
+    }
+
+    static final class Adam implements Optimizer {
+        private final double beta1, beta2, eps;
+        private double[] m, v;
+        private double p1, p2; // beta1^t, beta2^t
+
+        Adam(double beta1, double beta2, double eps) {
+            this.beta1 = beta1;
+            this.beta2 = beta2;
+            this.eps = eps;
+        }
+
+        @Override public void reset(int size) {
+            m = new double[size];
+            v = new double[size];
+            p1 = 1.0;
+            p2 = 1.0;
+        }
+
+        @Override public void step(double[] theta, double[] grad, double loss, double lr, Objective f) {
+            p1 *= beta1;
+            p2 *= beta2;
+            double c1 = 1.0 / (1 - p1), c2 = 1.0 / (1 - p2);
+            for (int j=0; j<theta.length; j++) {
+                double g = grad[j];
+                m[j] = beta1 * m[j] + (1 - beta1) * g;
+                v[j] = beta2 * v[j] + (1 - beta2) * g * g;
+                theta[j] -= lr * (m[j] * c1) / (Math.sqrt(v[j] * c2) + eps);
+            }
+        }
+    }
+
+    /**
+     * Backtracking (Armijo) line search: halves the step until
+     * f(theta - t*g) <= f(theta) - C*t*||g||^2. The accepted step is doubled
+     * as the next starting guess so it can grow again.
+     */
+    static final class LineSearch implements Optimizer {
+        private static final double C = 1e-4;
+        private static final int MAX_HALVINGS = 40;
+        private double[] trial;
+        private double t;
+
+        @Override public void reset(int size) {
+            trial = new double[size];
+            t = 0;
+        }
+
+        @Override public void step(double[] theta, double[] grad, double loss, double lr, Objective f) {
+            double g2 = 0;
+            for (double g : grad) g2 += g * g;
+            if (g2 == 0) return;
+            double step = t > 0 ? 2 * t : lr;
+            for (int h=0; h<MAX_HALVINGS; h++, step *= 0.5) {
+                for (int j=0; j<theta.length; j++) trial[j] = theta[j] - step * grad[j];
+                if (f.loss(trial) <= loss - C * step * g2) {
+                    System.arraycopy(trial, 0, theta, 0, theta.length);
+                    t = step;
+                    return;
+                }
+            }
+            t = 0; // no acceptable step: leave theta unchanged and restart from lr
+        }
+    }
+}
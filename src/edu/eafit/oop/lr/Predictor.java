@@ -0,0 +1,173 @@
+package edu.eafit.oop.lr;
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Immutable scoring function y = b + w.x frozen from a fitted {@link LinearRegression}.
+ * A {@link StandardScaler} is folded into w and b when the predictor is built, so rows
+ * are scored in their raw units with one dot product and nothing else.
+ *
+ * No method allocates and no state is shared between calls, so one instance can serve
+ * any number of threads concurrently.
+ */
+public final class Predictor {
+
+    private final double[] w;
+    private final double b;
+    private final int n;
+
+    private Predictor(double[] w, double b) {
+        this.w = w;
+        this.b = b;
+        this.n = w.length;
+    }
+
+    /** Snapshot of {@code model}'s parameters; later changes to the model do not affect it. */
+    public static Predictor of(LinearRegression model) {
+        return of(model, null);
+    }
+
+    /**
+     * Snapshot of {@code model}, which was trained on rows transformed by {@code scaler}
+     * (null = no scaling): w_j' = w_j / std_j and b' = b - sum(w_j' * mean_j).
+     */
+    public static Predictor of(LinearRegression model, StandardScaler scaler) {
+        double[] w = model.getWeights();
+        double b = model.getBias();
+        if (scaler != null) {
+            double[] mu = scaler.getMeans(), sd = scaler.getStds();
+            if (mu.length != w.length) throw new IllegalArgumentException("Scaler has " + mu.length + " features, model has " + w.length);
+            for (int j=0; j<w.length; j++) {
+                w[j] /= sd[j];
+                b -= w[j] * mu[j];
+            }
+        }
+        return new Predictor(w, b);
+    }
+
+    /**
+     * Plain-text model file: {@code features <n>}, {@code bias <b>} and {@code weights <w_1 .. w_n>}
+     * lines (values in Double.toString form, so they round-trip exactly); {@code #} starts a comment.
+     */
+    public String toText() {
+        StringBuilder sb = new StringBuilder("# edu.eafit.oop.lr linear model: y = bias + weights . x\n");
+        sb.append("features ").append(n).append('\n');
+        sb.append("bias ").append(b).append('\n');
+        sb.append("weights");
+        for (double v : w) sb.append(' ').append(v);
+        return sb.append('\n').toString();
+    }
+
+    /** Parses the format written by {@link #toText()}. */
+    public static Predictor fromText(String text) {
+        int n = -1;
+        double b = Double.NaN;
+        double[] w = null;
+        for (String line : text.split("\r?\n")) {
+            int hash = line.indexOf('#');
+            if (hash >= 0) line = line.substring(0, hash);
+            String[] tok = line.trim().split("\\s+");
+            if (tok[0].isEmpty()) continue;
+            try {
+                switch (tok[0]) {
+                    case "features": n = Integer.parseInt(tok[1]); break;
+                    case "bias": b = Double.parseDouble(tok[1]); break;
+                    case "weights":
+                        w = new double[tok.length - 1];
+                        for (int j=0; j<w.length; j++) w[j] = Double.parseDouble(tok[j+1]);
+                        break;
+                    default: throw new IllegalArgumentException("Unknown model field '" + tok[0] + "'");
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Bad model line: " + line.trim());
+            }
+        }
+        if (w == null || Double.isNaN(b)) throw new IllegalArgumentException("Model needs 'bias' and 'weights' lines");
+        if (n >= 0 && n != w.length) throw new IllegalArgumentException("Model declares " + n + " features but has " + w.length + " weights");
+        return new Predictor(w, b);
+    }
+
+    /** Writes {@link #toText()} next to {@code path} and moves it into place atomically. */
+    public void save(Path path) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, toText().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static Predictor load(Path path) throws IOException {
+        try {
+            return fromText(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(path + ": " + e.getMessage());
+        }
+    }
+
+    public int features() { return n; }
+    public double bias() { return b; }
+    public double[] weights() { return w.clone(); }
+
+    /** Prediction for one row of exactly {@link #features()} values. */
+    public double predict(double[] row) {
+        if (row.length != n) throw new IllegalArgumentException("Expected " + n + " features, got " + row.length);
+        return b + Kernels.dot(w, 0, row, 0, n);
+    }
+
+    /** Prediction for the row stored at x[off .. off+features()). */
+    public double predict(double[] x, int off) {
+        if (off < 0 || off + n > x.length) throw new IndexOutOfBoundsException("Row at " + off + " exceeds array of " + x.length);
+        return b + Kernels.dot(w, 0, x, off, n);
+    }
+
+    /**
+     * Predictions for {@code rows} rows stored row-major in {@code flatRows}, written to
+     * out[0 .. rows).
+     */
+    public void predictInto(double[] flatRows, int rows, double[] out) {
+        if ((long) rows * n > flatRows.length) throw new IllegalArgumentException(rows + " rows of " + n + " features exceed the input array");
+        if (rows > out.length) throw new IllegalArgumentException("Output holds " + out.length + " values, need " + rows);
+        for (int i=0, o=0; i<rows; i++, o+=n) out[i] = b + Kernels.dot(w, 0, flatRows, o, n);
+    }
+
+    /**
+     * Prediction for the row starting at the buffer's position (heap, direct or mapped).
+     * Reads are absolute: the buffer's position is not changed.
+     */
+    public double predict(DoubleBuffer row) {
+        int p = row.position();
+        if (row.remaining() < n) throw new IllegalArgumentException("Expected " + n + " features, got " + row.remaining());
+        if (row.hasArray()) return b + Kernels.dot(w, 0, row.array(), row.arrayOffset() + p, n);
+        double s = b;
+        for (int j=0; j<n; j++) s += w[j] * row.get(p + j);
+        return s;
+    }
+
+    /** {@link #predictInto(double[], int, double[])} for rows read from the buffer's position onwards. */
+    public void predictInto(DoubleBuffer flatRows, int rows, double[] out) {
+        int p = flatRows.position();
+        if ((long) rows * n > flatRows.remaining()) throw new IllegalArgumentException(rows + " rows of " + n + " features exceed the buffer");
+        if (rows > out.length) throw new IllegalArgumentException("Output holds " + out.length + " values, need " + rows);
+        if (flatRows.hasArray()) {
+            double[] a = flatRows.array();
+            int base = flatRows.arrayOffset() + p;
+            for (int i=0, o=base; i<rows; i++, o+=n) out[i] = b + Kernels.dot(w, 0, a, o, n);
+            return;
+        }
+        for (int i=0, o=p; i<rows; i++, o+=n) {
+            double s = b;
+            for (int j=0; j<n; j++) s += w[j] * flatRows.get(o + j);
+            out[i] = s;
+        }
+    }
+
+    /** Prediction for a sparse row given by its first {@code k} (column, value) pairs. */
+    public double predictSparse(int[] idx, double[] val, int k) {
+        double s = b;
+        for (int t=0; t<k; t++) s += w[idx[t]] * val[t];
+        return s;
+    }
+}
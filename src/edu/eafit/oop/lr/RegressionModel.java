@@ -10,5 +10,14 @@ public interface RegressionModel {
     /** Score the model on (X, y). Returns R^2 for regression. */
     double score(double[][] X, double[] y);
 
+    /** Train on a {@link DataView}; the default materializes it, implementations may read it in place. */
+    default void fit(DataView X, double[] y) { fit(X.toArray(), y); }
+
+    /** Predict outputs for the rows of a {@link DataView}. */
+    default double[] predict(DataView X) { return predict(X.toArray()); }
+
+    /** Score on a {@link DataView}. Returns R^2 for regression. */
+    default double score(DataView X, double[] y) { return score(X.toArray(), y); }
+
     /** Optional utility to expose scaled data (handled by StandardScaler class in this project). */
 }
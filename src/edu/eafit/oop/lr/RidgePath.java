@@ -0,0 +1,223 @@
+package edu.eafit.oop.lr;
+
+/**
+ * Ridge solutions for many penalties from one factorization. The centered Gram matrix
+ * C = Xc^T Xc is diagonalized once (C = V diag(d) V^T, O(n^3)); afterwards
+ * <pre>
+ *   w(lambda) = V diag(1 / (d + lambda)) z,   z = V^T Xc^T yc
+ * </pre>
+ * costs O(n^2) per lambda, and the generalized cross-validation score is O(n) per
+ * lambda from the same quantities. The intercept is not penalized: it is
+ * mean(y) - mean(x).w, as usual for ridge regression (LinearRegression's own ridge term,
+ * a stabilizer, also touches the bias).
+ *
+ * Built from rows, the path keeps the lazily centered view of X (no copy) and y - mean(y)
+ * for exact leave-one-out errors via the hat-matrix diagonal: e_loo = e / (1 - h). The
+ * first {@link #loo} call materializes U = Xc V (m x n doubles, as large as X itself),
+ * after which each lambda is O(m n); coefficients and GCV never build it.
+ */
+public final class RidgePath {
+
+    private final int n;
+    private final long m;
+    private final double[] mean;   // feature means
+    private final double yMean;
+    private final double syy;      // sum (y - yMean)^2
+    private final double[] d;      // eigenvalues of C (clamped at 0)
+    private final double[] v;      // eigenvectors, columns of an n x n row-major array
+    private final double[] z;      // V^T Xc^T yc
+    private final double tol;      // eigenvalues below this count as 0 when lambda = 0
+    private final DataView xc;     // X - mean, lazily; null without rows
+    private final double[] yc;     // y - yMean; null without rows
+    private double[] u;            // Xc V, m x n row-major; built by the first loo() call
+
+    private RidgePath(GramAccumulator centered, double[] mean, double yMean, double[] yc, DataView Xc) {
+        this.n = centered.features();
+        this.m = centered.count();
+        this.mean = mean;
+        this.yMean = yMean;
+        this.syy = centered.sumYY() - centered.sumY() * centered.sumY() / m;
+        double[] c = centered.gram();
+        double[] s = centered.columnSums();
+        double[] xty = centered.xty();
+        double sy = centered.sumY();
+        // Remove what is left of the means (exactly 0 when the rows were centered)
+        for (int j=0; j<n; j++) {
+            for (int l=0; l<n; l++) c[j*n + l] -= s[j] * s[l] / m;
+            xty[j] -= s[j] * sy / m;
+        }
+        this.d = new double[n];
+        this.v = new double[n * n];
+        LinearSolver.symmetricEigen(c, n, d, v);
+        double dmax = 0;
+        for (int k=0; k<n; k++) {
+            if (d[k] < 0) d[k] = 0;
+            dmax = Math.max(dmax, d[k]);
+        }
+        this.tol = dmax * n * 1e-14;
+        this.z = new double[n];
+        for (int k=0; k<n; k++) {
+            double t = 0;
+            for (int j=0; j<n; j++) t += v[j*n + k] * xty[j];
+            z[k] = t;
+        }
+        this.yc = yc;
+        this.xc = Xc;
+    }
+
+    /** Path from sufficient statistics only (no rows): coefficients and GCV, no LOO. */
+    public static RidgePath of(GramAccumulator acc) {
+        if (acc.count() < 2) throw new IllegalArgumentException("Need at least 2 rows");
+        double[] s = acc.columnSums();
+        double[] mean = new double[s.length];
+        for (int j=0; j<s.length; j++) mean[j] = s[j] / acc.count();
+        return new RidgePath(acc, mean, acc.sumY() / acc.count(), null, null);
+    }
+
+    /**
+     * Path from the rows of (X, y). The Gram matrix is accumulated on centered rows (a
+     * lazily centered view, no copy) to avoid cancellation; enables {@link #loo}.
+     */
+    public static RidgePath fit(DataView X, double[] y) {
+        int rows = X.rows(), n = X.cols();
+        if (rows < 2) throw new IllegalArgumentException("Need at least 2 rows");
+        if (y.length != rows) throw new IllegalArgumentException("X.rows != y.length");
+        double[] mean = new double[n];
+        double[] row = new double[n];
+        for (int i=0; i<rows; i++) {
+            X.copyRow(i, row, 0);
+            for (int j=0; j<n; j++) mean[j] += row[j];
+        }
+        for (int j=0; j<n; j++) mean[j] /= rows;
+        double[] ones = new double[n];
+        java.util.Arrays.fill(ones, 1.0);
+        DataView Xc = StandardScaler.of(mean, ones).transformView(X);
+        double ym = VectorStats.mean(y);
+        double[] yc = new double[rows];
+        for (int i=0; i<rows; i++) yc[i] = y[i] - ym;
+        return new RidgePath(GramAccumulator.of(Xc, yc), mean, ym, yc, Xc);
+    }
+
+    public static RidgePath fit(double[][] X, double[] y) {
+        return fit(DataView.of(X), y);
+    }
+
+    public int features() { return n; }
+
+    /** Eigenvalues of the centered Gram matrix. */
+    public double[] eigenvalues() { return d.clone(); }
+
+    /** theta = [bias, w] minimizing ||y - b - X w||^2 + lambda ||w||^2, in O(n^2). */
+    public double[] coefficients(double lambda) {
+        if (lambda < 0) throw new IllegalArgumentException("lambda must be >= 0");
+        double[] g = shrunk(lambda);
+        double[] theta = new double[n + 1];
+        double b = yMean;
+        for (int j=0; j<n; j++) {
+            double w = 0;
+            for (int k=0; k<n; k++) w += v[j*n + k] * g[k];
+            theta[j+1] = w;
+            b -= mean[j] * w;
+        }
+        theta[0] = b;
+        return theta;
+    }
+
+    /** {@link #coefficients} for every lambda; row i belongs to lambdas[i]. */
+    public double[][] path(double[] lambdas) {
+        double[][] out = new double[lambdas.length][];
+        for (int i=0; i<lambdas.length; i++) out[i] = coefficients(lambdas[i]);
+        return out;
+    }
+
+    /** Effective degrees of freedom, intercept included: 1 + sum d / (d + lambda). */
+    public double degreesOfFreedom(double lambda) {
+        double df = 1;
+        for (int k=0; k<n; k++) df += d[k] * inv(k, lambda);
+        return df;
+    }
+
+    /** Training residual sum of squares at {@code lambda}, from the statistics alone (O(n)). */
+    public double rss(double lambda) {
+        double r = syy;
+        for (int k=0; k<n; k++) {
+            double g = inv(k, lambda);
+            r -= z[k] * z[k] * g * (2 - d[k] * g);
+        }
+        return Math.max(0, r);
+    }
+
+    /** Generalized cross-validation: (RSS/m) / (1 - df/m)^2. Infinite when df >= m. */
+    public double gcv(double lambda) {
+        double dfr = 1 - degreesOfFreedom(lambda) / m;
+        if (dfr <= 0) return Double.POSITIVE_INFINITY;
+        return rss(lambda) / m / (dfr * dfr);
+    }
+
+    /** Exact leave-one-out mean squared error at {@code lambda}; needs a path built from rows. */
+    public double loo(double lambda) {
+        if (xc == null) throw new IllegalStateException("Leave-one-out needs the rows: build the path with fit(X, y)");
+        double[] u = projected();
+        double[] g = shrunk(lambda);
+        double[] h = new double[n];
+        for (int k=0; k<n; k++) h[k] = inv(k, lambda);
+        int rows = yc.length;
+        double s = 0;
+        for (int i=0; i<rows; i++) {
+            int o = i * n;
+            double fit = 0, lev = 1.0 / rows;
+            for (int k=0; k<n; k++) {
+                double uk = u[o + k];
+                fit += uk * g[k];
+                lev += uk * uk * h[k];
+            }
+            double e = (yc[i] - fit) / (1 - lev);
+            s += e * e;
+        }
+        return s / rows;
+    }
+
+    /** The lambda among {@code lambdas} with the lowest LOO error (GCV when there are no rows). */
+    public double best(double[] lambdas) {
+        double best = lambdas[0], score = Double.POSITIVE_INFINITY;
+        for (double l : lambdas) {
+            double c = xc != null ? loo(l) : gcv(l);
+            if (c < score) {
+                score = c;
+                best = l;
+            }
+        }
+        return best;
+    }
+
+    /** U = Xc V, computed once from the centered view. */
+    private synchronized double[] projected() {
+        if (u != null) return u;
+        int rows = xc.rows();
+        double[] U = new double[rows * n];
+        double[] row = new double[n];
+        for (int i=0; i<rows; i++) {
+            xc.copyRow(i, row, 0);
+            for (int k=0; k<n; k++) {
+                double t = 0;
+                for (int j=0; j<n; j++) t += row[j] * v[j*n + k];
+                U[i*n + k] = t;
+            }
+        }
+        u = U;
+        return u;
+    }
+
+    /** 1 / (d_k + lambda), or 0 for a null direction (minimum-norm solution at lambda = 0). */
+    private double inv(int k, double lambda) {
+        double t = d[k] + lambda;
+        return t > tol ? 1.0 / t : 0.0;
+    }
+
+    /** g = diag(1 / (d + lambda)) z. */
+    private double[] shrunk(double lambda) {
+        double[] g = new double[n];
+        for (int k=0; k<n; k++) g[k] = z[k] * inv(k, lambda);
+        return g;
+    }
+}
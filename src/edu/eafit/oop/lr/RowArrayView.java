@@ -0,0 +1,28 @@
+package edu.eafit.oop.lr;
+
+/** {@link DataView} over a double[][] whose rows are used in place. */
+final class RowArrayView implements DataView {
+    private final double[][] X;
+    private final int n;
+
+    RowArrayView(double[][] X) {
+        this.X = X;
+        this.n = X.length == 0 ? 0 : X[0].length;
+    }
+
+    /** The wrapped rows (not a copy). */
+    double[][] array() { return X; }
+
+    @Override public int rows() { return X.length; }
+    @Override public int cols() { return n; }
+    @Override public double get(int i, int j) { return X[i][j]; }
+    @Override public void copyRow(int i, double[] dst, int off) { System.arraycopy(X[i], 0, dst, off, n); }
+    @Override public double[][] toArray() { return X; }
+
+    /** Picks the row references, so the result keeps the in-place fast paths. */
+    @Override public DataView select(int[] rows) {
+        double[][] S = new double[rows.length][];
+        for (int i=0; i<S.length; i++) S[i] = X[rows[i]];
+        return new RowArrayView(S);
+    }
+}
@@ -0,0 +1,24 @@
+package edu.eafit.oop.lr;
+
+import java.io.IOException;
+
+/**
+ * A dataset that can be read any number of times, one bounded block of rows at a time.
+ * Used to train on data that does not fit in memory: only the current block is held.
+ */
+public interface RowBlockSource {
+
+    /** Receives one block: x is row-major rows x cols(), y holds the rows targets. */
+    interface BlockConsumer {
+        void accept(double[] x, double[] y, int rows) throws IOException;
+    }
+
+    /** Number of features per row. */
+    int cols();
+
+    /**
+     * One full pass over the rows, in a fixed order. The block arrays are reused between
+     * calls: the consumer may modify them in place but must not keep them.
+     */
+    void forEach(BlockConsumer consumer) throws IOException;
+}
@@ -0,0 +1,27 @@
+package edu.eafit.oop.lr;
+
+/** {@link DataView} over selected rows of another view; reads go through the base view. */
+final class RowSubsetView implements DataView {
+    private final DataView base;
+    private final int[] rows;
+
+    RowSubsetView(DataView base, int[] rows) {
+        this.base = base;
+        this.rows = rows;
+    }
+
+    @Override public int rows() { return rows.length; }
+    @Override public int cols() { return base.cols(); }
+    @Override public double get(int i, int j) { return base.get(rows[i], j); }
+    @Override public void copyRow(int i, double[] dst, int off) { base.copyRow(rows[i], dst, off); }
+
+    @Override public void copyRows(int from, int to, double[] dst) {
+        base.gatherRows(rows, from, to, dst);
+    }
+
+    @Override public DataView select(int[] sel) {
+        int[] idx = new int[sel.length];
+        for (int i=0; i<idx.length; i++) idx[i] = rows[sel[i]];
+        return new RowSubsetView(base, idx);
+    }
+}
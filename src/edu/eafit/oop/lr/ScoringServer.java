@@ -0,0 +1,408 @@
+package edu.eafit.oop.lr;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP scoring service on the JDK's built-in server ({@code com.sun.net.httpserver}).
+ * <pre>
+ *   POST /predict   JSON: [x1,..,xn] (one row) or [[..],[..]] / {"rows": [[..],..]}
+ *                   binary (Content-Type: application/octet-stream): rows*n float64 LE,
+ *                   answered with rows float64 LE
+ *   PUT  /model     model text ({@link Predictor#toText()}) replaces the model atomically
+ *   POST /model     reloads the model file the server was started with
+ *   GET  /stats     request/row counts, throughput, latency percentiles, batching (?reset=1 clears)
+ * </pre>
+ * Single-row requests go through a {@link MicroBatcher}; multi-row requests are scored
+ * directly. Requests run on virtual threads when the runtime has them (Java 21+, found
+ * by reflection) and on a bounded platform-thread pool otherwise. A swap replaces one
+ * {@link AtomicReference}: in-flight requests finish on the model they started with.
+ */
+public final class ScoringServer implements AutoCloseable {
+
+    private static final String BINARY = "application/octet-stream";
+
+    static {
+        // The JDK server writes headers and body separately; with Nagle on, every keep-alive
+        // response waits for the client's delayed ACK (~40 ms). The flag is read once, when
+        // the server implementation is first loaded, so set it here unless the user chose a value.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final AtomicReference<Predictor> model;
+    private final AtomicLong modelVersion = new AtomicLong(1);
+    private final Path modelPath;
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final MicroBatcher batcher;   // null = no batching
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder requests = new LongAdder(), rows = new LongAdder(), errors = new LongAdder();
+    private volatile long statsSince = System.nanoTime();
+
+    /**
+     * Binds to {@code port} on localhost (0 = any free port). Single rows are batched for up
+     * to {@code windowMicros} (0 = score each request on its own thread) and at most
+     * {@code maxBatch} rows. {@code modelPath} (may be null) is re-read by {@code POST /model}.
+     */
+    public ScoringServer(Predictor model, Path modelPath, int port, long windowMicros, int maxBatch) throws IOException {
+        this.model = new AtomicReference<>(model);
+        this.modelPath = modelPath;
+        this.batcher = windowMicros > 0 ? new MicroBatcher(this.model, windowMicros * 1000, maxBatch) : null;
+        ExecutorService vt = newVirtualThreadExecutor();
+        this.virtualThreads = vt != null;
+        this.executor = vt != null ? vt : Executors.newFixedThreadPool(Math.max(64, 8 * Runtime.getRuntime().availableProcessors()));
+        this.http = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        http.setExecutor(executor);
+        http.createContext("/predict", this::predict);
+        http.createContext("/model", this::model);
+        http.createContext("/stats", this::stats);
+    }
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()} when the running JDK has it
+     * (looked up reflectively so the code still compiles and runs on Java 17), else null.
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public void start() { http.start(); }
+
+    public int port() { return http.getAddress().getPort(); }
+
+    public boolean usesVirtualThreads() { return virtualThreads; }
+
+    /** Replaces the model for every request that starts from now on. */
+    public void swap(Predictor next) {
+        model.set(next);
+        modelVersion.incrementAndGet();
+    }
+
+    @Override
+    public void close() {
+        http.stop(0);
+        if (batcher != null) batcher.close();
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void predict(HttpExchange ex) throws IOException {
+        long t0 = System.nanoTime();
+        try {
+            if (!ex.getRequestMethod().equals("POST")) {
+                send(ex, 405, "text/plain", "Use POST\n".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            byte[] body = readBody(ex);
+            String type = ex.getRequestHeaders().getFirst("Content-Type");
+            if (type != null && type.startsWith(BINARY)) {
+                predictBinary(ex, body);
+            } else {
+                predictJson(ex, new String(body, StandardCharsets.UTF_8));
+            }
+        } catch (IllegalArgumentException e) {
+            errors.increment();
+            sendJson(ex, 400, "{\"error\":\"" + String.valueOf(e.getMessage()).replace("\"", "'") + "\"}");
+        } catch (RuntimeException e) {
+            errors.increment();
+            sendJson(ex, 500, "{\"error\":\"" + e.getClass().getSimpleName() + "\"}");
+        } finally {
+            requests.increment();
+            latency.record(System.nanoTime() - t0);
+        }
+    }
+
+    private void predictJson(HttpExchange ex, String body) throws IOException {
+        // One model for the whole request, even if it is swapped while the rows are checked and scored
+        Predictor p = model.get();
+        boolean[] single = new boolean[1];
+        double[][] X = parseRows(body, single);
+        if (single[0]) {
+            double y = scoreOne(p, X[0]);
+            rows.increment();
+            sendJson(ex, 200, "{\"prediction\":" + json(y) + "}");
+            return;
+        }
+        int n = p.features();
+        double[] flat = new double[X.length * n], out = new double[X.length];
+        for (int i=0; i<X.length; i++) {
+            if (X[i].length != n) throw new IllegalArgumentException("Row " + i + ": expected " + n + " features, got " + X[i].length);
+            System.arraycopy(X[i], 0, flat, i * n, n);
+        }
+        p.predictInto(flat, X.length, out);
+        rows.add(X.length);
+        StringBuilder sb = new StringBuilder(16 + 20 * out.length).append("{\"predictions\":[");
+        for (int i=0; i<out.length; i++) sb.append(i == 0 ? "" : ",").append(json(out[i]));
+        sendJson(ex, 200, sb.append("]}").toString());
+    }
+
+    private void predictBinary(HttpExchange ex, byte[] body) throws IOException {
+        Predictor p = model.get();
+        int n = p.features();
+        if (body.length == 0 || body.length % (8 * n) != 0) {
+            throw new IllegalArgumentException("Binary body must be rows * " + n + " float64 values");
+        }
+        int k = body.length / (8 * n);
+        double[] out = new double[k];
+        if (k == 1 && batcher != null) {
+            double[] row = new double[n];
+            ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(row);
+            out[0] = scoreOne(p, row);
+        } else {
+            p.predictInto(ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer(), k, out);
+        }
+        rows.add(k);
+        ByteBuffer res = ByteBuffer.allocate(8 * k).order(ByteOrder.LITTLE_ENDIAN);
+        res.asDoubleBuffer().put(out);
+        send(ex, 200, BINARY, res.array());
+    }
+
+    /**
+     * One row through the micro-batcher, which scores it with the model current at its
+     * batch boundary, or with {@code p} when batching is off.
+     */
+    private double scoreOne(Predictor p, double[] row) {
+        if (batcher == null) return p.predict(row);
+        try {
+            return batcher.submit(row).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted");
+        } catch (ExecutionException e) {
+            Throwable c = e.getCause();
+            if (c instanceof RuntimeException) throw (RuntimeException) c;
+            throw new IllegalStateException(c);
+        }
+    }
+
+    private void model(HttpExchange ex) throws IOException {
+        try {
+            String method = ex.getRequestMethod();
+            Predictor next;
+            if (method.equals("PUT")) {
+                next = Predictor.fromText(new String(readBody(ex), StandardCharsets.UTF_8));
+            } else if (method.equals("POST")) {
+                readBody(ex);
+                if (modelPath == null) throw new IllegalArgumentException("Server was not started from a model file");
+                next = Predictor.load(modelPath);
+            } else if (method.equals("GET")) {
+                send(ex, 200, "text/plain", model.get().toText().getBytes(StandardCharsets.UTF_8));
+                return;
+            } else {
+                send(ex, 405, "text/plain", "Use GET, PUT or POST\n".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            swap(next);
+            sendJson(ex, 200, "{\"version\":" + modelVersion.get() + ",\"features\":" + next.features() + "}");
+        } catch (IllegalArgumentException | IOException e) {
+            sendJson(ex, 400, "{\"error\":\"" + String.valueOf(e.getMessage()).replace("\"", "'") + "\"}");
+        }
+    }
+
+    private void stats(HttpExchange ex) throws IOException {
+        String q = ex.getRequestURI().getQuery();
+        double secs = (System.nanoTime() - statsSince) / 1e9;
+        long req = requests.sum();
+        String body = String.format(Locale.US,
+                "{\"requests\":%d,\"rows\":%d,\"errors\":%d,\"seconds\":%.3f,\"requestsPerSecond\":%.1f,"
+                + "\"latencyMicros\":{\"p50\":%.1f,\"p90\":%.1f,\"p99\":%.1f,\"p999\":%.1f,\"max\":%.1f},"
+                + "\"batches\":%d,\"meanBatchRows\":%.2f,\"modelVersion\":%d,\"features\":%d,\"virtualThreads\":%b}",
+                req, rows.sum(), errors.sum(), secs, req / Math.max(secs, 1e-9),
+                latency.percentile(0.50) / 1e3, latency.percentile(0.90) / 1e3, latency.percentile(0.99) / 1e3,
+                latency.percentile(0.999) / 1e3, latency.max() / 1e3,
+                batcher == null ? 0 : batcher.batches.sum(),
+                batcher == null || batcher.batches.sum() == 0 ? 0.0 : (double) batcher.batchedRows.sum() / batcher.batches.sum(),
+                modelVersion.get(), model.get().features(), virtualThreads);
+        if (q != null && q.contains("reset=1")) {
+            requests.reset();
+            rows.reset();
+            errors.reset();
+            latency.reset();
+            if (batcher != null) {
+                batcher.batches.reset();
+                batcher.batchedRows.reset();
+            }
+            statsSince = System.nanoTime();
+        }
+        sendJson(ex, 200, body);
+    }
+
+    /**
+     * Parses a JSON array of numbers ({@code single[0] = true}), an array of such arrays, or
+     * an object whose {@code "rows"} (or {@code "row"}) member is one of those. Other members
+     * of the object are skipped, whatever their value; nothing but whitespace may follow.
+     */
+    static double[][] parseRows(String s, boolean[] single) {
+        int p = skipWs(s, 0);
+        int[] end = new int[1];
+        double[][] X = null;
+        if (p < s.length() && s.charAt(p) == '{') {
+            p = skipWs(s, p + 1);
+            while (p < s.length() && s.charAt(p) != '}') {
+                int k = skipString(s, p);
+                String key = s.substring(p + 1, k - 1);
+                p = skipWs(s, k);
+                if (p >= s.length() || s.charAt(p) != ':') throw new IllegalArgumentException("Expected ':' at " + p);
+                p = skipWs(s, p + 1);
+                if (key.equals("rows") || key.equals("row")) {
+                    if (X != null) throw new IllegalArgumentException("More than one rows member");
+                    X = parseValue(s, p, single, end);
+                    p = end[0];
+                } else {
+                    p = skipValue(s, p);
+                }
+                p = skipWs(s, p);
+                if (p < s.length() && s.charAt(p) == ',') p = skipWs(s, p + 1);
+                else if (p >= s.length() || s.charAt(p) != '}') throw new IllegalArgumentException("Expected ',' or '}' at " + p);
+            }
+            if (p >= s.length()) throw new IllegalArgumentException("Unterminated JSON object");
+            if (X == null) throw new IllegalArgumentException("Expected a \"rows\" member");
+            p++;
+        } else {
+            X = parseValue(s, p, single, end);
+            p = end[0];
+        }
+        p = skipWs(s, p);
+        if (p < s.length()) throw new IllegalArgumentException("Unexpected content at " + p);
+        return X;
+    }
+
+    /** One row or an array of rows starting at s[p]; end[0] is set past it. */
+    private static double[][] parseValue(String s, int p, boolean[] single, int[] end) {
+        if (p >= s.length() || s.charAt(p) != '[') throw new IllegalArgumentException("Expected a JSON array");
+        int q = skipWs(s, p + 1);
+        if (q < s.length() && s.charAt(q) == '[') {
+            List<double[]> out = new ArrayList<>();
+            p = q;
+            while (true) {
+                out.add(parseArray(s, p, end));
+                p = skipWs(s, end[0]);
+                if (p < s.length() && s.charAt(p) == ',') { p = skipWs(s, p + 1); continue; }
+                if (p < s.length() && s.charAt(p) == ']') break;
+                throw new IllegalArgumentException("Expected ',' or ']' at " + p);
+            }
+            end[0] = p + 1;
+            single[0] = false;
+            return out.toArray(new double[0][]);
+        }
+        single[0] = true;
+        return new double[][] { parseArray(s, p, end) };
+    }
+
+    /** Index just past the JSON string starting at s[p] == '"'. */
+    private static int skipString(String s, int p) {
+        if (p >= s.length() || s.charAt(p) != '"') throw new IllegalArgumentException("Expected a string at " + p);
+        for (int q=p+1; q<s.length(); q++) {
+            char c = s.charAt(q);
+            if (c == '\\') q++;
+            else if (c == '"') return q + 1;
+        }
+        throw new IllegalArgumentException("Unterminated string at " + p);
+    }
+
+    /** Index just past the JSON value (of any type) starting at s[p]. */
+    private static int skipValue(String s, int p) {
+        if (p >= s.length()) throw new IllegalArgumentException("Expected a value at " + p);
+        char c = s.charAt(p);
+        if (c == '"') return skipString(s, p);
+        if (c != '[' && c != '{') {
+            int q = p;
+            while (q < s.length() && (Character.isLetterOrDigit(s.charAt(q)) || "+-.".indexOf(s.charAt(q)) >= 0)) q++;
+            if (q == p) throw new IllegalArgumentException("Expected a value at " + p);
+            return q;
+        }
+        int depth = 0;
+        for (int q=p; q<s.length(); q++) {
+            char d = s.charAt(q);
+            if (d == '"') q = skipString(s, q) - 1;
+            else if (d == '[' || d == '{') depth++;
+            else if ((d == ']' || d == '}') && --depth == 0) return q + 1;
+        }
+        throw new IllegalArgumentException("Unterminated value at " + p);
+    }
+
+    /** Numbers of the flat array starting at s[p] == '['; end[0] is set past its ']'. */
+    private static double[] parseArray(String s, int p, int[] end) {
+        if (p >= s.length() || s.charAt(p) != '[') throw new IllegalArgumentException("Expected '[' at " + p);
+        double[] v = new double[16];
+        int k = 0;
+        p = skipWs(s, p + 1);
+        if (p < s.length() && s.charAt(p) == ']') {
+            end[0] = p + 1;
+            return new double[0];
+        }
+        while (true) {
+            int q = p;
+            while (q < s.length() && "+-.eE0123456789".indexOf(s.charAt(q)) >= 0) q++;
+            if (q == p) throw new IllegalArgumentException("Expected a number at " + p);
+            if (k == v.length) v = Arrays.copyOf(v, k * 2);
+            try {
+                v[k++] = Double.parseDouble(s.substring(p, q));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number '" + s.substring(p, q) + "'");
+            }
+            p = skipWs(s, q);
+            if (p < s.length() && s.charAt(p) == ',') { p = skipWs(s, p + 1); continue; }
+            if (p < s.length() && s.charAt(p) == ']') break;
+            throw new IllegalArgumentException("Expected ',' or ']' at " + p);
+        }
+        end[0] = p + 1;
+        return Arrays.copyOf(v, k);
+    }
+
+    private static int skipWs(String s, int p) {
+        while (p < s.length() && Character.isWhitespace(s.charAt(p))) p++;
+        return p;
+    }
+
+    private static String json(double v) {
+        return Double.isFinite(v) ? Double.toString(v) : "null";
+    }
+
+    private static byte[] readBody(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static void sendJson(HttpExchange ex, int status, String body) throws IOException {
+        send(ex, status, "application/json", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange ex, int status, String type, byte[] body) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", type);
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package edu.eafit.oop.lr;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Coordinator of sharded training. Each of {@code shards} {@link ShardWorker} processes
+ * reads one part of the same file; the coordinator never touches the rows. Every full
+ * pass a trainer needs ({@link DataReductions}) is sent to all workers at once, they run
+ * it over their shard concurrently, and the partial sums are added up here in shard
+ * order, so a run is deterministic. The model is then solved or stepped locally exactly
+ * as in {@link LinearRegression#fit(RowBlockSource)}:
+ * <ul>
+ *   <li>normal equation: one pass for each shard's {@link GramAccumulator}, merged;</li>
+ *   <li>gradient descent: one pass per epoch for the gradient and SSE sums;</li>
+ *   <li>conjugate gradient: one pass for Xb^T y and the diagonal, then one per product.</li>
+ * </ul>
+ * Results equal single-process training up to the order of floating-point additions.
+ */
+public final class ShardCoordinator implements DataReductions, AutoCloseable {
+
+    private final Socket[] sockets;
+    private final DataInputStream[] in;
+    private final DataOutputStream[] out;
+    private final int n;
+
+    private ShardCoordinator(Socket[] sockets, DataInputStream[] in, DataOutputStream[] out, int n) {
+        this.sockets = sockets;
+        this.in = in;
+        this.out = out;
+        this.n = n;
+    }
+
+    /**
+     * Waits on {@code server} for {@code shards} workers (at most {@code timeoutMillis} for
+     * each) and assigns them shards 0..shards-1 of {@code path} in connection order, with
+     * column {@code target} as y. Workers stream their shard in blocks of {@code chunkRows}.
+     */
+    public static ShardCoordinator accept(ServerSocket server, int shards, String path, int target,
+                                          int chunkRows, int timeoutMillis) throws IOException {
+        if (shards <= 0) throw new IllegalArgumentException("shards must be > 0");
+        Socket[] sockets = new Socket[shards];
+        DataInputStream[] in = new DataInputStream[shards];
+        DataOutputStream[] out = new DataOutputStream[shards];
+        int n = -1;
+        try {
+            server.setSoTimeout(timeoutMillis);
+            for (int k=0; k<shards; k++) {
+                Socket s = server.accept();
+                sockets[k] = s;
+                s.setTcpNoDelay(true);
+                in[k] = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                out[k] = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                if (in[k].readInt() != ShardProtocol.MAGIC) throw new IOException("Connection " + k + " is not a shard worker");
+                int version = in[k].readInt();
+                if (version != ShardProtocol.VERSION) throw new IOException("Worker speaks protocol " + version + ", expected " + ShardProtocol.VERSION);
+                out[k].writeUTF(path);
+                out[k].writeInt(target);
+                out[k].writeInt(k);
+                out[k].writeInt(shards);
+                out[k].writeInt(chunkRows);
+                out[k].flush();
+            }
+            // Workers open their shards concurrently; collect the answers in order
+            for (int k=0; k<shards; k++) {
+                if (in[k].readByte() != ShardProtocol.OK) throw new IOException("Shard " + k + ": " + in[k].readUTF());
+                int cols = in[k].readInt();
+                if (n >= 0 && cols != n) throw new IOException("Shard " + k + " has " + cols + " features, shard 0 has " + n);
+                n = cols;
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Socket s : sockets) if (s != null) s.close();
+            throw e;
+        }
+        return new ShardCoordinator(sockets, in, out, n);
+    }
+
+    public int shards() { return sockets.length; }
+
+    @Override public int cols() { return n; }
+
+    /** Trains {@code model} (normal equation, GD or CG) on all shards. */
+    public void fit(LinearRegression model) throws IOException {
+        model.fit(this);
+    }
+
+    /**
+     * Fits a {@link StandardScaler} to the rows of all shards (moments merged with Chan's
+     * formula) and has every worker standardize its rows from then on. Calling it again
+     * refits on the raw rows and replaces the scaling; it does not stack.
+     */
+    public StandardScaler fitScaler() throws IOException {
+        double[][] parts = round(ShardProtocol.MOMENTS, new double[0]);
+        StandardScaler.Moments total = StandardScaler.Moments.unpack(parts[0]);
+        for (int k=1; k<parts.length; k++) total.merge(StandardScaler.Moments.unpack(parts[k]));
+        if (total.count == 0) throw new IllegalArgumentException("Empty X");
+        StandardScaler scaler = StandardScaler.of(total, true);
+        double[] arg = new double[2 * n];
+        System.arraycopy(scaler.getMeans(), 0, arg, 0, n);
+        System.arraycopy(scaler.getStds(), 0, arg, n, n);
+        round(ShardProtocol.SCALE, arg);
+        return scaler;
+    }
+
+    /**
+     * Error sums of theta = [bias, w] over all rows, in the features the workers currently
+     * see: {sse, sum |e|, mean y, sum (y - mean)^2, rows}, merged in shard order.
+     */
+    public double[] evaluate(double[] theta) throws IOException {
+        double[][] parts = round(ShardProtocol.EVALUATE, theta);
+        double[] r = new double[5];
+        for (int k=0; k<parts.length; k++) {
+            if (parts[k].length != 5) throw new IOException("Shard " + k + " sent " + parts[k].length + " values, expected 5");
+            LinearRegression.mergeErrorSums(r, parts[k]);
+        }
+        return r;
+    }
+
+    @Override
+    public GramAccumulator gram() throws IOException {
+        double[][] parts = round(ShardProtocol.GRAM, new double[0]);
+        GramAccumulator acc = GramAccumulator.unpack(n, parts[0]);
+        for (int k=1; k<parts.length; k++) acc.merge(GramAccumulator.unpack(n, parts[k]));
+        return acc;
+    }
+
+    @Override
+    public void gradient(double[] theta, double[] grad, double[] sums) throws IOException {
+        int d = n + 1;
+        double[] r = sum(round(ShardProtocol.GRADIENT, theta), d + 2);
+        for (int j=0; j<d; j++) grad[j] += r[j];
+        sums[0] += r[d];
+        sums[1] += r[d + 1];
+    }
+
+    @Override
+    public void sse(double[] theta, double[] sums) throws IOException {
+        double[] r = sum(round(ShardProtocol.SSE, theta), 2);
+        sums[0] += r[0];
+        sums[1] += r[1];
+    }
+
+    @Override
+    public void rhsAndDiagonal(double[] b, double[] diag) throws IOException {
+        int d = n + 1;
+        double[] r = sum(round(ShardProtocol.RHS_DIAGONAL, new double[0]), 2 * d);
+        for (int j=0; j<d; j++) {
+            b[j] += r[j];
+            diag[j] += r[d + j];
+        }
+    }
+
+    @Override
+    public void gramProduct(double[] p, double[] out) throws IOException {
+        double[] r = sum(round(ShardProtocol.GRAM_PRODUCT, p), n + 1);
+        System.arraycopy(r, 0, out, 0, n + 1);
+    }
+
+    /** Element-wise sum of the shard replies, in shard order. */
+    private static double[] sum(double[][] parts, int len) throws IOException {
+        double[] r = new double[len];
+        for (int k=0; k<parts.length; k++) {
+            if (parts[k].length != len) throw new IOException("Shard " + k + " sent " + parts[k].length + " values, expected " + len);
+            for (int j=0; j<len; j++) r[j] += parts[k][j];
+        }
+        return r;
+    }
+
+    /**
+     * Sends one request to every worker, then reads every reply (so the streams stay in
+     * step even when a shard fails) and throws the first error.
+     */
+    private double[][] round(byte op, double[] arg) throws IOException {
+        for (DataOutputStream o : out) {
+            o.writeByte(op);
+            ShardProtocol.writeDoubles(o, arg);
+            o.flush();
+        }
+        double[][] parts = new double[in.length][];
+        String error = null;
+        for (int k=0; k<in.length; k++) {
+            try {
+                if (in[k].readByte() == ShardProtocol.OK) {
+                    parts[k] = ShardProtocol.readDoubles(in[k]);
+                } else {
+                    String msg = in[k].readUTF();
+                    if (error == null) error = "Shard " + k + ": " + msg;
+                }
+            } catch (EOFException e) {
+                throw new IOException("Shard " + k + " closed the connection (worker exited?)");
+            }
+        }
+        if (error != null) throw new IOException(error);
+        return parts;
+    }
+
+    /** Tells every worker to exit and closes the connections. */
+    @Override
+    public void close() throws IOException {
+        IOException first = null;
+        for (int k=0; k<sockets.length; k++) {
+            try {
+                out[k].writeByte(ShardProtocol.BYE);
+                out[k].flush();
+            } catch (IOException e) {
+                if (first == null) first = e;
+            } finally {
+                try { sockets[k].close(); } catch (IOException ignored) { }
+            }
+        }
+        if (first != null) throw first;
+    }
+}
@@ -0,0 +1,68 @@
+package edu.eafit.oop.lr;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format between {@link ShardCoordinator} and {@link ShardWorker} (big-endian
+ * {@code DataOutputStream}). The worker opens with MAGIC and VERSION; the coordinator
+ * answers with the assignment (UTF path, target column, shard, shards, chunk rows) and the
+ * worker with OK + feature count or ERROR + message. After that every request is one
+ * opcode and one double array, every reply OK + one double array or ERROR + message,
+ * until BYE.
+ */
+final class ShardProtocol {
+
+    static final int MAGIC = 0x4C525348; // "LRSH"
+    static final int VERSION = 1;
+
+    static final byte OK = 0, ERROR = 1;
+
+    /** -> packed {@link StandardScaler.Moments} of the shard's raw features. */
+    static final byte MOMENTS = 1;
+    /** [means, stds] -> []; later passes see the raw features standardized (replacing any earlier SCALE). */
+    static final byte SCALE = 2;
+    /** -> packed {@link GramAccumulator}. */
+    static final byte GRAM = 3;
+    /** theta -> [gradient sum (n+1), sse, rows]. */
+    static final byte GRADIENT = 4;
+    /** theta -> [sse, rows]. */
+    static final byte SSE = 5;
+    /** -> [Xb^T y (n+1), diag(Xb^T Xb) (n+1)]. */
+    static final byte RHS_DIAGONAL = 6;
+    /** p -> Xb^T Xb p. */
+    static final byte GRAM_PRODUCT = 7;
+    /** theta -> [sse, sum |e|, mean y, sum (y - mean)^2, rows]. */
+    static final byte EVALUATE = 8;
+    static final byte BYE = 9;
+
+    private static final int CHUNK = 8192;
+
+    private ShardProtocol() {}
+
+    static void writeDoubles(DataOutputStream out, double[] v) throws IOException {
+        out.writeInt(v.length);
+        ByteBuffer b = ByteBuffer.allocate(8 * Math.min(v.length, CHUNK));
+        for (int i=0; i<v.length; i+=CHUNK) {
+            int k = Math.min(CHUNK, v.length - i);
+            b.clear();
+            b.asDoubleBuffer().put(v, i, k);
+            out.write(b.array(), 0, 8 * k);
+        }
+    }
+
+    static double[] readDoubles(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) throw new IOException("Negative array length " + len);
+        double[] v = new double[len];
+        byte[] buf = new byte[8 * Math.min(len, CHUNK)];
+        for (int i=0; i<len; i+=CHUNK) {
+            int k = Math.min(CHUNK, len - i);
+            in.readFully(buf, 0, 8 * k);
+            ByteBuffer.wrap(buf, 0, 8 * k).asDoubleBuffer().get(v, i, k);
+        }
+        return v;
+    }
+}
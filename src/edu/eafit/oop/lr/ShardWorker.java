@@ -0,0 +1,165 @@
+package edu.eafit.oop.lr;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Worker process of sharded training: connects to a {@link ShardCoordinator}, opens the
+ * shard it is assigned (a line-aligned byte range of a CSV or a row range of a
+ * {@link BinaryDataset} file) and answers full-pass requests over it until told to stop.
+ * Rows are streamed in blocks on every pass, so memory does not grow with the shard.
+ *
+ * Started by {@code App --worker --connect <host:port>}, or by the coordinator itself.
+ */
+public final class ShardWorker {
+
+    private final RowBlockSource raw; // the shard as read; a SCALE always starts from it
+    private RowBlockSource src;       // what the passes read: raw, or raw standardized
+    private DataReductions data;
+
+    private ShardWorker(RowBlockSource raw) {
+        this.raw = raw;
+        this.src = raw;
+        this.data = DataReductions.of(raw);
+    }
+
+    /** Serves one coordinator until it sends BYE or closes the connection. */
+    public static void run(String host, int port) throws IOException {
+        try (Socket s = new Socket(host, port)) {
+            s.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            out.writeInt(ShardProtocol.MAGIC);
+            out.writeInt(ShardProtocol.VERSION);
+            out.flush();
+
+            String path = in.readUTF();
+            int target = in.readInt(), shard = in.readInt(), shards = in.readInt(), chunkRows = in.readInt();
+            ShardWorker w;
+            try {
+                w = new ShardWorker(open(Paths.get(path), target, shard, shards, chunkRows));
+            } catch (IOException | RuntimeException e) {
+                out.writeByte(ShardProtocol.ERROR);
+                out.writeUTF(String.valueOf(e.getMessage()));
+                out.flush();
+                return;
+            }
+            out.writeByte(ShardProtocol.OK);
+            out.writeInt(w.src.cols());
+            out.flush();
+
+            while (true) {
+                byte op = in.readByte();
+                if (op == ShardProtocol.BYE) return;
+                double[] arg = ShardProtocol.readDoubles(in);
+                double[] res;
+                try {
+                    res = w.handle(op, arg);
+                } catch (IOException | RuntimeException e) {
+                    out.writeByte(ShardProtocol.ERROR);
+                    out.writeUTF(String.valueOf(e.getMessage()));
+                    out.flush();
+                    continue;
+                }
+                out.writeByte(ShardProtocol.OK);
+                ShardProtocol.writeDoubles(out, res);
+                out.flush();
+            }
+        }
+    }
+
+    /** Shard {@code shard} of {@code shards} of a CSV or binary dataset file, column {@code target} as y. */
+    static RowBlockSource open(Path path, int target, int shard, int shards, int chunkRows) throws IOException {
+        if (BinaryDataset.isDataset(path)) return BinaryDataset.open(path).blocks(target, shard, shards, chunkRows);
+        return CSVBlockSource.open(path.toString(), target, chunkRows).shard(shard, shards);
+    }
+
+    private double[] handle(byte op, double[] arg) throws IOException {
+        int n = src.cols(), d = n + 1;
+        switch (op) {
+            case ShardProtocol.MOMENTS:
+                return StandardScaler.Moments.of(raw).pack();
+            case ShardProtocol.SCALE: {
+                if (arg.length != 2 * n) throw new IllegalArgumentException("Expected " + n + " means and stds, got " + arg.length + " values");
+                double[] mean = new double[n], std = new double[n];
+                System.arraycopy(arg, 0, mean, 0, n);
+                System.arraycopy(arg, n, std, 0, n);
+                src = StandardScaler.of(mean, std).transform(raw);
+                data = DataReductions.of(src);
+                return new double[0];
+            }
+            case ShardProtocol.GRAM:
+                return data.gram().pack();
+            case ShardProtocol.GRADIENT: {
+                checkTheta(arg, d);
+                double[] r = new double[d + 2], sums = new double[2];
+                data.gradient(arg, r, sums);
+                r[d] = sums[0];
+                r[d + 1] = sums[1];
+                return r;
+            }
+            case ShardProtocol.SSE: {
+                checkTheta(arg, d);
+                double[] sums = new double[2];
+                data.sse(arg, sums);
+                return sums;
+            }
+            case ShardProtocol.RHS_DIAGONAL: {
+                double[] b = new double[d], diag = new double[d], r = new double[2 * d];
+                data.rhsAndDiagonal(b, diag);
+                System.arraycopy(b, 0, r, 0, d);
+                System.arraycopy(diag, 0, r, d, d);
+                return r;
+            }
+            case ShardProtocol.GRAM_PRODUCT: {
+                checkTheta(arg, d);
+                double[] r = new double[d];
+                data.gramProduct(arg, r);
+                return r;
+            }
+            case ShardProtocol.EVALUATE: {
+                checkTheta(arg, d);
+                double[] acc = new double[5];
+                src.forEach((x, y, rows) -> LinearRegression.addErrorSums(x, y, n, rows, arg, acc));
+                return acc;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown request " + op);
+        }
+    }
+
+    private static void checkTheta(double[] theta, int d) {
+        if (theta.length != d) throw new IllegalArgumentException("Expected " + d + " parameters, got " + theta.length);
+    }
+
+    /**
+     * Starts a worker JVM on this machine with the current class path, connected to
+     * {@code port} on the loopback address. Its stderr is inherited so crashes show up.
+     */
+    static Process spawn(int port) throws IOException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            cmd.add("--add-modules");
+            cmd.add("jdk.incubator.vector");
+        }
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(App.class.getName());
+        cmd.add("--worker");
+        cmd.add("--connect");
+        cmd.add("127.0.0.1:" + port);
+        return new ProcessBuilder(cmd)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+}
@@ -0,0 +1,101 @@
+package edu.eafit.oop.lr;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/** Loaders that build a {@link CsrMatrix} directly, without a dense copy of the data. */
+public final class SparseReader {
+
+    private SparseReader() {}
+
+    /** Sparse features and their targets. */
+    public static final class Dataset {
+        public final CsrMatrix X;
+        public final double[] y;
+        /** Feature names; null for formats without a header. */
+        public final String[] headers;
+
+        Dataset(CsrMatrix X, double[] y, String[] headers) {
+            this.X = X;
+            this.y = y;
+            this.headers = headers;
+        }
+    }
+
+    /**
+     * Reads the libsvm / svmlight text format: one row per line, {@code label idx:val ...}
+     * with 1-based, increasing feature indices. Blank lines, {@code #} comments and
+     * {@code qid:} tokens are ignored. The column count is the largest index seen, or
+     * {@code nFeatures} when positive (so train and test files line up).
+     */
+    public static Dataset readLibSvm(String path, int nFeatures) throws IOException {
+        CsrMatrix.Builder b = nFeatures > 0 ? new CsrMatrix.Builder(nFeatures) : new CsrMatrix.Builder();
+        double[] y = new double[1024];
+        int[] idx = new int[64];
+        double[] val = new double[64];
+        long lineNo = 0;
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                int hash = line.indexOf('#');
+                if (hash >= 0) line = line.substring(0, hash);
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                String[] tok = line.split("\\s+");
+                int k = 0;
+                try {
+                    if (b.rows() == y.length) y = Arrays.copyOf(y, y.length * 2);
+                    y[b.rows()] = Double.parseDouble(tok[0]);
+                    for (int t=1; t<tok.length; t++) {
+                        if (tok[t].startsWith("qid:")) continue;
+                        int colon = tok[t].indexOf(':');
+                        if (colon < 0) throw new IOException("Line " + lineNo + ": expected index:value, got '" + tok[t] + "'");
+                        int j = Integer.parseInt(tok[t].substring(0, colon));
+                        if (j < 1) throw new IOException("Line " + lineNo + ": feature indices start at 1");
+                        if (k == idx.length) {
+                            idx = Arrays.copyOf(idx, k * 2);
+                            val = Arrays.copyOf(val, k * 2);
+                        }
+                        idx[k] = j - 1;
+                        val[k++] = Double.parseDouble(tok[t].substring(colon + 1));
+                    }
+                    b.addRow(idx, val, k);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Line " + lineNo + ": invalid number (" + e.getMessage() + ")");
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Line " + lineNo + ": " + e.getMessage());
+                }
+            }
+        }
+        return new Dataset(b.build(), Arrays.copyOf(y, b.rows()), null);
+    }
+
+    /**
+     * Reads a regular CSV (same rules as {@link CSVReader#read}) into CSR form, keeping only
+     * the nonzero features. Rows are streamed, so memory is O(nnz) rather than O(rows * cols).
+     */
+    public static Dataset readCsv(String path, int target) throws IOException {
+        String[] names = MappedCSVParser.headers(Paths.get(path));
+        if (target < 0 || target >= names.length) throw new IllegalArgumentException("Target column out of range: " + target);
+        int n = names.length - 1;
+        String[] headers = new String[n];
+        for (int j=0, t=0; j<names.length; j++) if (j != target) headers[t++] = names[j];
+        CsrMatrix.Builder b = new CsrMatrix.Builder(n);
+        double[][] y = { new double[1024] };
+        double[] feat = new double[n];
+        MappedCSVParser.stream(Paths.get(path), (row, index) -> {
+            int i = (int) index;
+            if (i == y[0].length) y[0] = Arrays.copyOf(y[0], i * 2);
+            y[0][i] = row[target];
+            System.arraycopy(row, 0, feat, 0, target);
+            System.arraycopy(row, target + 1, feat, target, n - target);
+            b.addDenseRow(feat, 0);
+        });
+        return new Dataset(b.build(), Arrays.copyOf(y[0], b.rows()), headers);
+    }
+}
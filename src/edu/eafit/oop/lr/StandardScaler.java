@@ -1,52 +1,405 @@
 package edu.eafit.oop.lr;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
-/** Standard (z-score) scaler: mean=0, std=1 per feature. */
+/**
+ * Standard (z-score) scaler: mean=0, std=1 per feature.
+ *
+ * Statistics come from a single row-major pass: each row shard runs Welford's update
+ * and the shard moments are merged with Chan's formula, so fitting is one parallel
+ * sweep over the data and partial results (batches, shards, chunks) can be combined.
+ *
+ * With {@code setWithMean(false)} the scaler only divides by the standard deviation
+ * (the reported means are 0), which keeps zeros at zero: a {@link CsrMatrix} is then
+ * fitted from its nonzeros and transformed into a CSR matrix with the same structure.
+ */
 public class StandardScaler {
     private double[] means;
     private double[] stds;
     private boolean fitted = false;
+    private Moments moments; // running statistics, kept for partialFit
+    private boolean withMean = true;
+
+    /** A fitted scaler with the given statistics (copied). */
+    static StandardScaler of(double[] means, double[] stds) {
+        StandardScaler s = new StandardScaler();
+        s.means = means.clone();
+        s.stds = stds.clone();
+        s.fitted = true;
+        return s;
+    }
+
+    /** A fitted scaler from moments gathered elsewhere (e.g. merged from data shards). */
+    static StandardScaler of(Moments m, boolean withMean) {
+        StandardScaler s = new StandardScaler();
+        s.withMean = withMean;
+        s.moments = m;
+        s.finish();
+        return s;
+    }
+
+    /** Whether transforms subtract the mean (default) or only divide by the std. Set before fitting. */
+    public void setWithMean(boolean withMean) { this.withMean = withMean; }
 
     public void fit(double[][] X) {
-        int m = X.length;
-        if (m == 0) throw new IllegalArgumentException("Empty X");
-        int n = X[0].length;
-        means = new double[n];
+        if (X.length == 0) throw new IllegalArgumentException("Empty X");
+        moments = Moments.of(X);
+        finish();
+    }
+
+    /** Same as {@link #fit(double[][])} for any view, read in row blocks. */
+    public void fit(DataView X) {
+        if (X instanceof RowArrayView) { fit(((RowArrayView) X).array()); return; }
+        if (X.rows() == 0) throw new IllegalArgumentException("Empty X");
+        moments = X instanceof CsrMatrix ? Moments.ofSparse((CsrMatrix) X) : Moments.of(X);
+        finish();
+    }
+
+    /**
+     * Updates the statistics with a new batch of rows, as if {@link #fit(double[][])} had
+     * seen every batch so far, in O(rows * n).
+     */
+    public void partialFit(double[][] X) {
+        if (X.length == 0) return;
+        Moments b = Moments.of(X);
+        if (moments == null) moments = b;
+        else moments.merge(b);
+        finish();
+    }
+
+    /** One pass over a {@link RowBlockSource}; block moments are merged as they arrive. */
+    public void fit(RowBlockSource src) throws IOException {
+        Moments total = Moments.of(src);
+        if (total.count == 0) throw new IllegalArgumentException("Empty X");
+        moments = total;
+        finish();
+    }
+
+    /**
+     * Fits and returns the standardized copy of {@code X}, reading {@code X} only once.
+     * No row can be written before the final means are known, so this is still two sweeps:
+     * the fitting sweep copies each row into its output row as it feeds Welford's update,
+     * and the second sweep standardizes the output rows in place.
+     */
+    public double[][] fitTransform(double[][] X) {
+        if (X.length == 0) throw new IllegalArgumentException("Empty X");
+        double[][] Z = new double[X.length][];
+        moments = Moments.of(X, Z);
+        finish();
+        standardizeRows(Z, Z);
+        return Z;
+    }
+
+    /**
+     * {@link #fit(double[][])} followed by {@link #transformInPlace(double[][])}; no new matrix.
+     * Not fused: the rows are swept once to fit and once to transform.
+     */
+    public void fitTransformInPlace(double[][] X) {
+        fit(X);
+        transformInPlace(X);
+    }
+
+    private void finish() {
+        int n = moments.mean.length;
+        means = withMean ? moments.mean.clone() : new double[n];
         stds  = new double[n];
-        // means
         for (int j=0; j<n; j++) {
-            double s = 0;
-            for (int i=0; i<m; i++) s += X[i][j];
-            means[j] = s / m;
-        }
-        // stds
-        for (int j=0; j<n; j++) {
-            double s2 = 0;
-            for (int i=0; i<m; i++) {
-                double d = X[i][j] - means[j];
-                s2 += d*d;
-            }
-            stds[j] = Math.sqrt(s2 / Math.max(1, m-1));
+            stds[j] = Math.sqrt(moments.m2[j] / Math.max(1, moments.count - 1));
             if (stds[j] == 0) stds[j] = 1.0; // avoid division by zero
         }
         fitted = true;
     }
 
+    /** {@code src} with each block standardized in place as it is read. */
+    public RowBlockSource transform(RowBlockSource src) {
+        if (!fitted) throw new IllegalStateException("Call fit() first.");
+        if (src.cols() != means.length) throw new IllegalArgumentException("Expected " + means.length + " features, got " + src.cols());
+        double[] mu = means.clone(), sd = stds.clone();
+        int n = mu.length;
+        return new RowBlockSource() {
+            @Override public int cols() { return n; }
+            @Override public void forEach(BlockConsumer consumer) throws IOException {
+                src.forEach((x, y, rows) -> {
+                    for (int r=0, o=0; r<rows; r++, o+=n) Kernels.standardize(x, o, x, o, mu, sd, n);
+                    consumer.accept(x, y, rows);
+                });
+            }
+        };
+    }
+
+    /**
+     * Lazily scaled view of {@code X}: values are standardized as they are read, nothing is copied.
+     * In scale-only mode a {@link CsrMatrix} comes back as a CSR matrix with scaled nonzeros
+     * (new values array, shared structure) so sparse fast paths still apply.
+     */
+    public DataView transformView(DataView X) {
+        if (!fitted) throw new IllegalStateException("Call fit() first.");
+        if (X.cols() != means.length) throw new IllegalArgumentException("Expected " + means.length + " features, got " + X.cols());
+        if (X instanceof CsrMatrix && isScaleOnly()) return ((CsrMatrix) X).divideColumns(stds);
+        return new ScaledView(X, means.clone(), stds.clone());
+    }
+
     public double[][] transform(double[][] X) {
         if (!fitted) throw new IllegalStateException("Call fit() first.");
         int m = X.length;
         if (m == 0) return new double[0][0];
-        int n = X[0].length;
-        double[][] Z = new double[m][n];
-        for (int i=0; i<m; i++) {
-            for (int j=0; j<n; j++) {
-                Z[i][j] = (X[i][j] - means[j]) / stds[j];
-            }
-        }
+        double[][] Z = new double[m][];
+        standardizeRows(X, Z);
         return Z;
     }
 
+    /** Standardizes the rows of {@code X} in place, without allocating a new matrix. */
+    public void transformInPlace(double[][] X) {
+        if (!fitted) throw new IllegalStateException("Call fit() first.");
+        standardizeRows(X, X);
+    }
+
+    /** Z[i] = (X[i] - means) / stds for every row, split over row shards; Z rows are allocated if null. */
+    private void standardizeRows(double[][] X, double[][] Z) {
+        int m = X.length, n = means.length;
+        for (double[] row : X) {
+            if (row.length != n) throw new IllegalArgumentException("Expected " + n + " features, got " + row.length);
+        }
+        int grain = Math.max(4096, m / ForkJoinPool.getCommonPoolParallelism());
+        if (m <= grain) new TransformTask(X, Z, means, stds, 0, m, grain).compute();
+        else ForkJoinPool.commonPool().invoke(new TransformTask(X, Z, means, stds, 0, m, grain));
+    }
+
+    private boolean isScaleOnly() { return !withMean; }
+
     public double[] getMeans() { return Arrays.copyOf(means, means.length); }
     public double[] getStds()  { return Arrays.copyOf(stds, stds.length); }
+
+    private static final class ScaledView implements DataView {
+        private final DataView X;
+        private final double[] means, stds;
+
+        ScaledView(DataView X, double[] means, double[] stds) {
+            this.X = X;
+            this.means = means;
+            this.stds = stds;
+        }
+
+        @Override public int rows() { return X.rows(); }
+        @Override public int cols() { return X.cols(); }
+        @Override public double get(int i, int j) { return (X.get(i, j) - means[j]) / stds[j]; }
+
+        @Override public void copyRow(int i, double[] dst, int off) {
+            X.copyRow(i, dst, off);
+            scale(dst, off, 1);
+        }
+
+        @Override public void copyRows(int from, int to, double[] dst) {
+            X.copyRows(from, to, dst);
+            scale(dst, 0, to - from);
+        }
+
+        @Override public void gatherRows(int[] idx, int from, int to, double[] dst) {
+            X.gatherRows(idx, from, to, dst);
+            scale(dst, 0, to - from);
+        }
+
+        private void scale(double[] a, int off, int rows) {
+            int n = means.length;
+            for (int r=0, o=off; r<rows; r++, o+=n) Kernels.standardize(a, o, a, o, means, stds, n);
+        }
+    }
+
+    /** Count, mean and sum of squared deviations per feature; Welford per row, Chan to merge. */
+    static final class Moments {
+        long count;
+        final double[] mean, m2;
+
+        Moments(int n) {
+            mean = new double[n];
+            m2 = new double[n];
+        }
+
+        /** Moments of all rows of X, over parallel row shards. */
+        static Moments of(double[][] X) { return of(X, null); }
+
+        /** Moments of all rows of X; when {@code copy} is not null each row is also copied into it. */
+        static Moments of(double[][] X, double[][] copy) {
+            int m = X.length;
+            int grain = Math.max(4096, m / ForkJoinPool.getCommonPoolParallelism());
+            ShardTask t = new ShardTask(X, copy, null, 0, m, grain);
+            return m <= grain ? t.compute() : ForkJoinPool.commonPool().invoke(t);
+        }
+
+        /** Moments of all rows of a view, gathered in blocks, over parallel row shards. */
+        static Moments of(DataView X) {
+            int m = X.rows();
+            int grain = Math.max(4096, m / ForkJoinPool.getCommonPoolParallelism());
+            ShardTask t = new ShardTask(null, null, X, 0, m, grain);
+            return m <= grain ? t.compute() : ForkJoinPool.commonPool().invoke(t);
+        }
+
+        /** Moments of every row of {@code src}; block moments are merged as they arrive. */
+        static Moments of(RowBlockSource src) throws IOException {
+            int n = src.cols();
+            Moments total = new Moments(n);
+            Moments block = new Moments(n);
+            src.forEach((x, y, rows) -> {
+                block.clear();
+                block.addRows(x, rows);
+                total.merge(block);
+            });
+            return total;
+        }
+
+        /** count, mean and m2 in one array, e.g. to send to another process. */
+        double[] pack() {
+            int n = mean.length;
+            double[] a = new double[1 + 2 * n];
+            a[0] = count;
+            System.arraycopy(mean, 0, a, 1, n);
+            System.arraycopy(m2, 0, a, 1 + n, n);
+            return a;
+        }
+
+        /** Inverse of {@link #pack()}. */
+        static Moments unpack(double[] a) {
+            if (a.length % 2 != 1) throw new IllegalArgumentException("Packed moments have the wrong length " + a.length);
+            int n = a.length / 2;
+            Moments r = new Moments(n);
+            r.count = (long) a[0];
+            System.arraycopy(a, 1, r.mean, 0, n);
+            System.arraycopy(a, 1 + n, r.m2, 0, n);
+            return r;
+        }
+
+        /**
+         * Moments of a sparse matrix in O(nnz): Welford over each column's nonzeros, then
+         * Chan's merge with the column's implicit zeros (mean 0, no spread).
+         */
+        static Moments ofSparse(CsrMatrix X) {
+            int m = X.rows(), n = X.cols();
+            int[] col = X.colIdx();
+            double[] val = X.values();
+            long[] k = new long[n];
+            Moments r = new Moments(n);
+            for (int i=0; i<m; i++) {
+                for (int t=X.start(i), e=X.end(i); t<e; t++) {
+                    int j = col[t];
+                    double v = val[t];
+                    double d = v - r.mean[j];
+                    r.mean[j] += d / ++k[j];
+                    r.m2[j] += d * (v - r.mean[j]);
+                }
+            }
+            for (int j=0; j<n; j++) {
+                double mu = r.mean[j];
+                r.mean[j] = mu * k[j] / m;
+                r.m2[j] += mu * mu * k[j] * (m - k[j]) / m;
+            }
+            r.count = m;
+            return r;
+        }
+
+        void clear() {
+            count = 0;
+            Arrays.fill(mean, 0.0);
+            Arrays.fill(m2, 0.0);
+        }
+
+        /** Welford's update with one row at x[off .. off+n). */
+        void add(double[] x, int off) {
+            int n = mean.length;
+            double inv = 1.0 / ++count;
+            for (int j=0; j<n; j++) {
+                double v = x[off + j];
+                double d = v - mean[j];
+                mean[j] += d * inv;
+                m2[j] += d * (v - mean[j]);
+            }
+        }
+
+        void addRows(double[][] X, int from, int to) { addRows(X, null, from, to); }
+
+        /** Adds rows {@code from..to} of X, copying each one into {@code copy} too if it is not null. */
+        void addRows(double[][] X, double[][] copy, int from, int to) {
+            int n = mean.length;
+            for (int i=from; i<to; i++) {
+                if (X[i].length != n) throw new IllegalArgumentException("Row " + i + " has " + X[i].length + " features, expected " + n);
+                add(X[i], 0);
+                if (copy != null) copy[i] = X[i].clone();
+            }
+        }
+
+        /** Adds {@code rows} rows stored row-major in {@code flat}. */
+        void addRows(double[] flat, int rows) {
+            int n = mean.length;
+            for (int r=0; r<rows; r++) add(flat, r * n);
+        }
+
+        /** Chan's parallel update: folds {@code o} into this. */
+        void merge(Moments o) {
+            if (o.mean.length != mean.length) throw new IllegalArgumentException("Expected " + mean.length + " features, got " + o.mean.length);
+            if (o.count == 0) return;
+            long na = count, t = na + o.count;
+            for (int j=0; j<mean.length; j++) {
+                double delta = o.mean[j] - mean[j];
+                mean[j] += delta * o.count / t;
+                m2[j] += o.m2[j] + delta * delta * na * o.count / t;
+            }
+            count = t;
+        }
+    }
+
+    private static final class ShardTask extends RecursiveTask<Moments> {
+        final double[][] X, copy; final DataView view; final int from, to, grain;
+        ShardTask(double[][] X, double[][] copy, DataView view, int from, int to, int grain) {
+            this.X = X; this.copy = copy; this.view = view; this.from = from; this.to = to; this.grain = grain;
+        }
+        @Override protected Moments compute() {
+            if (to - from <= grain) {
+                if (X != null) {
+                    Moments r = new Moments(X[0].length);
+                    r.addRows(X, copy, from, to);
+                    return r;
+                }
+                int n = view.cols();
+                Moments r = new Moments(n);
+                double[] buf = new double[Math.min(GramAccumulator.BLOCK, Math.max(1, to - from)) * n];
+                for (int b0=from; b0<to; b0+=GramAccumulator.BLOCK) {
+                    int b1 = Math.min(to, b0 + GramAccumulator.BLOCK);
+                    view.copyRows(b0, b1, buf);
+                    r.addRows(buf, b1 - b0);
+                }
+                return r;
+            }
+            int mid = (from + to) >>> 1;
+            ShardTask left = new ShardTask(X, copy, view, from, mid, grain);
+            left.fork();
+            Moments r = new ShardTask(X, copy, view, mid, to, grain).compute();
+            Moments l = left.join();
+            l.merge(r);
+            return l;
+        }
+    }
+
+    private static final class TransformTask extends RecursiveAction {
+        final double[][] X, Z; final double[] means, stds; final int from, to, grain;
+        TransformTask(double[][] X, double[][] Z, double[] means, double[] stds, int from, int to, int grain) {
+            this.X = X; this.Z = Z; this.means = means; this.stds = stds;
+            this.from = from; this.to = to; this.grain = grain;
+        }
+        @Override protected void compute() {
+            if (to - from <= grain) {
+                int n = means.length;
+                for (int i=from; i<to; i++) {
+                    if (Z[i] == null) Z[i] = new double[n];
+                    Kernels.standardize(X[i], 0, Z[i], 0, means, stds, n);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TransformTask(X, Z, means, stds, from, mid, grain),
+                      new TransformTask(X, Z, means, stds, mid, to, grain));
+        }
+    }
 }
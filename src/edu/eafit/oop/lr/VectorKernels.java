@@ -0,0 +1,112 @@
+package edu.eafit.oop.lr;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link Kernels.Impl} on {@code jdk.incubator.vector} with the preferred species
+ * (8 lanes on AVX-512, 4 on AVX2). Each loop runs full vectors up to the loop bound
+ * and finishes the tail with scalar code. Only loaded when the module is present.
+ */
+final class VectorKernels implements Kernels.Impl {
+
+    private static final VectorSpecies<Double> S = DoubleVector.SPECIES_PREFERRED;
+    private static final int L = S.length();
+
+    @Override public double dot(double[] a, int ao, double[] b, int bo, int n) {
+        int i = 0, ub = S.loopBound(n);
+        double s = 0;
+        if (ub > 0) {
+            DoubleVector acc = DoubleVector.zero(S);
+            for (; i<ub; i+=L) {
+                acc = DoubleVector.fromArray(S, a, ao+i).fma(DoubleVector.fromArray(S, b, bo+i), acc);
+            }
+            s = acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i<n; i++) s += a[ao+i] * b[bo+i];
+        return s;
+    }
+
+    @Override public void axpy(double alpha, double[] x, int xo, double[] y, int yo, int n) {
+        int i = 0, ub = S.loopBound(n);
+        DoubleVector va = DoubleVector.broadcast(S, alpha);
+        for (; i<ub; i+=L) {
+            DoubleVector.fromArray(S, x, xo+i).fma(va, DoubleVector.fromArray(S, y, yo+i)).intoArray(y, yo+i);
+        }
+        for (; i<n; i++) y[yo+i] += alpha * x[xo+i];
+    }
+
+    @Override public void standardize(double[] src, int so, double[] dst, int dOff, double[] mean, double[] std, int n) {
+        int i = 0, ub = S.loopBound(n);
+        for (; i<ub; i+=L) {
+            DoubleVector.fromArray(S, src, so+i).sub(DoubleVector.fromArray(S, mean, i))
+                .div(DoubleVector.fromArray(S, std, i)).intoArray(dst, dOff+i);
+        }
+        for (; i<n; i++) dst[dOff+i] = (src[so+i] - mean[i]) / std[i];
+    }
+
+    @Override public double sumSquaredDiff(double[] a, double[] b, int n) {
+        int i = 0, ub = S.loopBound(n);
+        double s = 0;
+        if (ub > 0) {
+            DoubleVector acc = DoubleVector.zero(S);
+            for (; i<ub; i+=L) {
+                DoubleVector d = DoubleVector.fromArray(S, a, i).sub(DoubleVector.fromArray(S, b, i));
+                acc = d.fma(d, acc);
+            }
+            s = acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i<n; i++) {
+            double d = a[i] - b[i];
+            s += d*d;
+        }
+        return s;
+    }
+
+    @Override public double sumAbsDiff(double[] a, double[] b, int n) {
+        int i = 0, ub = S.loopBound(n);
+        double s = 0;
+        if (ub > 0) {
+            DoubleVector acc = DoubleVector.zero(S);
+            for (; i<ub; i+=L) {
+                acc = acc.add(DoubleVector.fromArray(S, a, i).sub(DoubleVector.fromArray(S, b, i)).abs());
+            }
+            s = acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i<n; i++) s += Math.abs(a[i] - b[i]);
+        return s;
+    }
+
+    @Override public double sumSquaredDev(double[] a, double c, int n) {
+        int i = 0, ub = S.loopBound(n);
+        double s = 0;
+        if (ub > 0) {
+            DoubleVector acc = DoubleVector.zero(S);
+            for (; i<ub; i+=L) {
+                DoubleVector d = DoubleVector.fromArray(S, a, i).sub(c);
+                acc = d.fma(d, acc);
+            }
+            s = acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i<n; i++) {
+            double d = a[i] - c;
+            s += d*d;
+        }
+        return s;
+    }
+
+    @Override public double sum(double[] a, int n) {
+        int i = 0, ub = S.loopBound(n);
+        double s = 0;
+        if (ub > 0) {
+            DoubleVector acc = DoubleVector.zero(S);
+            for (; i<ub; i+=L) acc = acc.add(DoubleVector.fromArray(S, a, i));
+            s = acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i<n; i++) s += a[i];
+        return s;
+    }
+
+    @Override public String toString() { return "vector(" + L + " lanes)"; }
+}
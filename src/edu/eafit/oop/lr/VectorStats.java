@@ -3,34 +3,28 @@ package edu.eafit.oop.lr;
 public class VectorStats {
 
     public static double mean(double[] v) {
-        double s=0; for (double x : v) s += x; return s / v.length;
+        return Kernels.sum(v, v.length) / v.length;
+    }
+
+    /** Sample standard deviation (n - 1 in the denominator); 0 for fewer than two values. */
+    public static double std(double[] v) {
+        if (v.length < 2) return 0.0;
+        return Math.sqrt(Kernels.sumSquaredDev(v, mean(v), v.length) / (v.length - 1));
     }
 
     public static double mse(double[] y, double[] yhat) {
-        double s=0; int n=y.length;
-        for (int i=0; i<n; i++) {
-            double d = yhat[i] - y[i];
-            s += d*d;
-        }
-        return s / n;
+        return Kernels.sumSquaredDiff(yhat, y, y.length) / y.length;
     }
 
     public static double mae(double[] y, double[] yhat) {
-        double s=0; int n=y.length;
-        for (int i=0; i<n; i++) s += Math.abs(yhat[i] - y[i]);
-        return s / n;
+        return Kernels.sumAbsDiff(yhat, y, y.length) / y.length;
     }
 
     /** R^2 = 1 - SSE/SST */
     public static double r2(double[] y, double[] yhat) {
         double ym = mean(y);
-        double sse=0, sst=0;
-        for (int i=0; i<y.length; i++) {
-            double e = yhat[i] - y[i];
-            sse += e*e;
-            double d = y[i] - ym;
-            sst += d*d;
-        }
+        double sse = Kernels.sumSquaredDiff(yhat, y, y.length);
+        double sst = Kernels.sumSquaredDev(y, ym, y.length);
         if (sst == 0) return 0.0;
         return 1.0 - (sse / sst);
     }
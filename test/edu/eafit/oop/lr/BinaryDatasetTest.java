@@ -0,0 +1,108 @@
+package edu.eafit.oop.lr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BinaryDatasetTest {
+
+    @TempDir
+    Path dir;
+
+    static CSVReader.DataFrame sample() {
+        double[][] cols = {
+            { 1.0, -0.0, Double.MIN_VALUE, Double.MAX_VALUE, 1e-300 },
+            { Math.PI, Double.POSITIVE_INFINITY, -2.5, 0.1, 7 },
+        };
+        return new CSVReader.DataFrame(new String[] { "x", "yé" }, cols);
+    }
+
+    static void assertSameFrame(CSVReader.DataFrame expected, CSVReader.DataFrame actual) {
+        assertArrayEquals(expected.headers, actual.headers);
+        assertEquals(expected.rows(), actual.rows());
+        for (int j=0; j<expected.cols(); j++) {
+            double[] e = expected.columnAsVector(j), a = actual.columnAsVector(j);
+            for (int i=0; i<e.length; i++) {
+                assertEquals(Double.doubleToRawLongBits(e[i]), Double.doubleToRawLongBits(a[i]), "row " + i + " col " + j);
+            }
+        }
+    }
+
+    @Test
+    void roundTripIsBitExact() throws IOException {
+        Path f = dir.resolve("s.lrc");
+        CSVReader.DataFrame df = sample();
+        BinaryDataset.write(df, f, "stamp|1");
+        assertTrue(BinaryDataset.isDataset(f));
+        BinaryDataset ds = BinaryDataset.open(f);
+        assertEquals("stamp|1", ds.source());
+        assertEquals(5, ds.rows());
+        assertSameFrame(df, ds.toDataFrame());
+        assertSameFrame(df, ds.frame());
+        assertArrayEquals(df.view().toArray(), ds.view().toArray());
+    }
+
+    @Test
+    void mappedFrameSplitsLikeHeapFrame() throws IOException {
+        Path f = dir.resolve("s.lrc");
+        CSVReader.DataFrame df = sample();
+        BinaryDataset.write(df, f, "");
+        CSVReader.DataFrame mapped = BinaryDataset.open(f).frame();
+        CSVReader.DataFrame[] a = df.trainTestSplit(0.6, 3), b = mapped.trainTestSplit(0.6, 3);
+        for (int k=0; k<2; k++) {
+            assertSameFrame(a[k], b[k]);
+            assertArrayEquals(a[k].featureView(1).toArray(), b[k].featureView(1).toArray());
+            DataView sa = a[k].view().select(new int[] { 0 }), sb = b[k].view().select(new int[] { 0 });
+            assertArrayEquals(sa.toArray(), sb.toArray());
+        }
+    }
+
+    @Test
+    void rejectsTruncatedAndForeignFiles() throws IOException {
+        Path f = dir.resolve("s.lrc");
+        BinaryDataset.write(sample(), f, "");
+        try (FileChannel ch = FileChannel.open(f, StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 8);
+        }
+        assertThrows(IOException.class, () -> BinaryDataset.open(f));
+        Path csv = dir.resolve("a.csv");
+        Files.writeString(csv, "x,y\n1,2\n3,4\n5,6\n7,8\n");
+        assertFalse(BinaryDataset.isDataset(csv));
+        assertThrows(IOException.class, () -> BinaryDataset.open(csv));
+    }
+
+    @Test
+    void cacheIsReusedUntilTheCsvChanges() throws IOException {
+        Path csv = dir.resolve("a.csv"), cache = dir.resolve("cache");
+        Files.writeString(csv, "x,y\n1,2\n3,4\n5,6\n");
+        CSVReader.DataFrame parsed = CSVReader.read(csv.toString());
+        assertSameFrame(parsed, CSVReader.readCached(csv.toString(), cache, false));
+        assertSameFrame(parsed, CSVReader.readCached(csv.toString(), cache, false));
+
+        Files.writeString(csv, "x,y\n1,2\n3,4\n5,6\n7,9\n");
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        CSVReader.DataFrame changed = CSVReader.readCached(csv.toString(), cache, false);
+        assertEquals(4, changed.rows());
+        assertSameFrame(CSVReader.read(csv.toString()), changed);
+    }
+
+    @Test
+    void unwritableCacheIsReported() throws IOException {
+        Path csv = dir.resolve("a.csv"), cache = dir.resolve("not-a-dir");
+        Files.writeString(csv, "x,y\n1,2\n3,4\n");
+        Files.writeString(cache, "");
+        IOException e = assertThrows(IOException.class, () -> CSVReader.readCached(csv.toString(), cache, false));
+        assertTrue(e.getMessage().startsWith("Could not write CSV cache"), e.getMessage());
+    }
+}
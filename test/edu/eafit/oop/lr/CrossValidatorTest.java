@@ -0,0 +1,51 @@
+package edu.eafit.oop.lr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CrossValidatorTest {
+
+    static List<CrossValidator.Result> scaledNormal(double[][] X, double[] y) {
+        CrossValidator cv = new CrossValidator(5, 41);
+        cv.setScale(true);
+        cv.setThreads(2);
+        List<CrossValidator.Params> grid = CrossValidator.grid(LinearRegression.TrainingMethod.NORMAL_EQUATION,
+                new double[] { 0, 1, 100 }, null, null);
+        return cv.run(DataView.of(X), y, grid);
+    }
+
+    @Test
+    void foldScalingIgnoresALargeOffset() {
+        // z-scores do not depend on an offset, so neither do the scaled fold scores
+        double[][] X = SolverAgreementTest.features(2000, 42);
+        double[] y = SolverAgreementTest.target(X);
+        PartialFitTest.addNoise(y, 43);
+        double[][] shifted = new double[X.length][];
+        for (int i=0; i<X.length; i++) {
+            shifted[i] = X[i].clone();
+            for (int j=0; j<shifted[i].length; j++) shifted[i][j] += 1e8;
+        }
+        List<CrossValidator.Result> a = scaledNormal(X, y), b = scaledNormal(shifted, y);
+        for (int k=0; k<a.size(); k++) {
+            assertEquals(a.get(k).meanMse, b.get(k).meanMse, 1e-6 * a.get(k).meanMse, "candidate " + a.get(k).params);
+            assertEquals(a.get(k).meanR2, b.get(k).meanR2, 1e-6, "candidate " + a.get(k).params);
+        }
+    }
+
+    @Test
+    void scaledNormalMatchesScaledIterative() {
+        double[][] X = SolverAgreementTest.features(500, 44);
+        for (double[] row : X) row[0] += 5e7;
+        double[] y = SolverAgreementTest.target(X);
+        PartialFitTest.addNoise(y, 45);
+        CrossValidator cv = new CrossValidator(4, 46);
+        cv.setScale(true);
+        List<CrossValidator.Params> grid = List.of(
+                new CrossValidator.Params(LinearRegression.TrainingMethod.NORMAL_EQUATION, 0.5, 0, 0),
+                new CrossValidator.Params(LinearRegression.TrainingMethod.CONJUGATE_GRADIENT, 0.5, 0, 200));
+        List<CrossValidator.Result> r = cv.run(DataView.of(X), y, grid);
+        assertEquals(r.get(0).meanMse, r.get(1).meanMse, 1e-6 * r.get(0).meanMse);
+    }
+}
@@ -0,0 +1,96 @@
+package edu.eafit.oop.lr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The blocked, register-tiled and fork-join kernels against naive loops, at shapes that
+ * cross the 4-row tile, the 256-deep k-panel, the 512-wide j-panel and the parallel cutoff.
+ */
+class GemmTest {
+
+    static double[][] random(int m, int n, long seed) {
+        Random r = new Random(seed);
+        double[][] A = new double[m][n];
+        for (int i=0; i<m; i++) for (int j=0; j<n; j++) A[i][j] = 2 * r.nextDouble() - 1;
+        return A;
+    }
+
+    static void assertClose(double[][] expected, double[][] actual, int depth) {
+        assertEquals(expected.length, actual.length);
+        for (int i=0; i<expected.length; i++) {
+            assertEquals(expected[i].length, actual[i].length);
+            for (int j=0; j<expected[i].length; j++) {
+                assertEquals(expected[i][j], actual[i][j], 1e-13 * depth, "(" + i + "," + j + ")");
+            }
+        }
+    }
+
+    static double[][] naiveDot(double[][] A, double[][] B) {
+        int m = A.length, n = B.length, p = B[0].length;
+        double[][] C = new double[m][p];
+        for (int i=0; i<m; i++)
+            for (int j=0; j<p; j++) {
+                double s = 0;
+                for (int k=0; k<n; k++) s += A[i][k] * B[k][j];
+                C[i][j] = s;
+            }
+        return C;
+    }
+
+    @Test
+    void dotMatchesNaiveLoops() {
+        int[][] shapes = { {3, 5, 7}, {5, 513, 3}, {300, 257, 65}, {1025, 70, 300}, {61, 300, 530} };
+        long seed = 1;
+        for (int[] s : shapes) {
+            double[][] A = random(s[0], s[1], seed++), B = random(s[1], s[2], seed++);
+            assertClose(naiveDot(A, B), Matrix.dot(A, B), s[1]);
+        }
+    }
+
+    @Test
+    void gramAndSyrkMatchTransposeTimesA() {
+        int[][] shapes = { {7, 3}, {1025, 70}, {301, 257}, {2000, 9} };
+        long seed = 100;
+        for (int[] s : shapes) {
+            double[][] A = random(s[0], s[1], seed++);
+            double[][] expected = naiveDot(Matrix.transpose(A), A);
+            assertClose(expected, Matrix.gram(A), s[0]);
+            double[] c = new double[s[1] * s[1]];
+            Gemm.syrk(Matrix.flatten(A), s[0], s[1], c);
+            assertClose(expected, Matrix.unflatten(c, s[1], s[1]), s[0]);
+        }
+    }
+
+    @Test
+    void syrkAccumulateAddsTheUpperTriangle() {
+        double[][] A = random(203, 13, 7);
+        double[] c = new double[13 * 13];
+        Gemm.syrkAccumulate(A, 0, 100, 13, c);
+        double[] flat = Matrix.flatten(Arrays.copyOfRange(A, 100, 203));
+        Gemm.syrkAccumulate(flat, 103, 13, c);
+        double[][] expected = naiveDot(Matrix.transpose(A), A);
+        for (int j=0; j<13; j++)
+            for (int l=j; l<13; l++) assertEquals(expected[j][l], c[j*13 + l], 1e-12, "(" + j + "," + l + ")");
+    }
+
+    @Test
+    void gemvMatchesNaiveLoops() {
+        for (int[] s : new int[][] { {5, 3}, {1500, 301} }) {
+            double[][] A = random(s[0], s[1], s[0]);
+            double[] x = random(1, s[1], 9)[0];
+            double[] y = Matrix.dot(A, x);
+            double[] yf = new double[s[0]];
+            Gemm.gemv(Matrix.flatten(A), x, yf, s[0], s[1]);
+            for (int i=0; i<s[0]; i++) {
+                double e = 0;
+                for (int j=0; j<s[1]; j++) e += A[i][j] * x[j];
+                assertEquals(e, y[i], 1e-13 * s[1]);
+                assertEquals(e, yf[i], 1e-13 * s[1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package edu.eafit.oop.lr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The vector kernels against the scalar fallback, at offsets and lengths that are not
+ * multiples of the lane count (any species up to 8 lanes), so every loop runs its tail.
+ */
+class KernelsTest {
+
+    static final Kernels.Impl VECTOR = new VectorKernels(), SCALAR = new Kernels.Scalar();
+    static final int[] LENGTHS = lengths();
+
+    static int[] lengths() {
+        int[] n = new int[40];
+        for (int i=0; i<33; i++) n[i] = i;
+        int[] big = { 63, 64, 65, 127, 255, 1001, 4099 };
+        System.arraycopy(big, 0, n, 33, big.length);
+        return n;
+    }
+
+    static double[] random(int n, long seed) {
+        Random r = new Random(seed);
+        double[] a = new double[n];
+        for (int i=0; i<n; i++) a[i] = 2 * r.nextDouble() - 1;
+        return a;
+    }
+
+    @Test
+    void dotAndAxpyAtOddOffsets() {
+        double[] a = random(4200, 1), b = random(4200, 2);
+        for (int n : LENGTHS) {
+            for (int ao=0; ao<=9; ao++) {
+                int bo = (ao * 5 + 3) % 11;
+                double scale = 0;
+                for (int i=0; i<n; i++) scale += Math.abs(a[ao+i] * b[bo+i]);
+                assertEquals(SCALAR.dot(a, ao, b, bo, n), VECTOR.dot(a, ao, b, bo, n), 1e-14 * (scale + 1), "dot n=" + n + " ao=" + ao);
+
+                double[] ys = b.clone(), yv = b.clone();
+                SCALAR.axpy(-1.7, a, ao, ys, bo, n);
+                VECTOR.axpy(-1.7, a, ao, yv, bo, n);
+                // fma rounds once, mul + add twice; cells outside [bo, bo + n) stay as they were
+                assertArrayEquals(ys, yv, 1e-15 * 4, "axpy n=" + n + " ao=" + ao);
+            }
+        }
+    }
+
+    @Test
+    void standardizeAtOddOffsetsAndInPlace() {
+        double[] src = random(4200, 3), mean = random(4200, 4), std = random(4200, 5);
+        for (int i=0; i<std.length; i++) std[i] = 0.5 + Math.abs(std[i]);
+        for (int n : LENGTHS) {
+            for (int so=0; so<=9; so++) {
+                int dOff = (so * 7 + 2) % 11;
+                double[] ds = new double[4200 + 11], dv = new double[4200 + 11];
+                SCALAR.standardize(src, so, ds, dOff, mean, std, n);
+                VECTOR.standardize(src, so, dv, dOff, mean, std, n);
+                assertArrayEquals(ds, dv, 0.0, "standardize n=" + n + " so=" + so);
+
+                double[] ss = src.clone(), sv = src.clone();
+                SCALAR.standardize(ss, so, ss, so, mean, std, n);
+                VECTOR.standardize(sv, so, sv, so, mean, std, n);
+                assertArrayEquals(ss, sv, 0.0, "in place n=" + n + " so=" + so);
+            }
+        }
+    }
+
+    @Test
+    void reductionsAtOddLengths() {
+        double[] a = random(4200, 6), b = random(4200, 7);
+        for (int n : LENGTHS) {
+            double scale = 1;
+            for (int i=0; i<n; i++) scale += Math.abs(a[i]) + Math.abs(b[i]) + (a[i] - b[i]) * (a[i] - b[i]) + (a[i] - 0.3) * (a[i] - 0.3);
+            double tol = 1e-14 * scale;
+            assertEquals(SCALAR.sum(a, n), VECTOR.sum(a, n), tol, "sum n=" + n);
+            assertEquals(SCALAR.sumSquaredDiff(a, b, n), VECTOR.sumSquaredDiff(a, b, n), tol, "sumSquaredDiff n=" + n);
+            assertEquals(SCALAR.sumAbsDiff(a, b, n), VECTOR.sumAbsDiff(a, b, n), tol, "sumAbsDiff n=" + n);
+            assertEquals(SCALAR.sumSquaredDev(a, 0.3, n), VECTOR.sumSquaredDev(a, 0.3, n), tol, "sumSquaredDev n=" + n);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package edu.eafit.oop.lr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** The mapped parser (sequential, parallel and streaming) against the original line-based reader. */
+class MappedCSVParserTest {
+
+    @TempDir
+    Path dir;
+
+    /** The pre-mmap CSVReader.read: split lines, trim, strip quotes, NaN for empty/NA, drop NaN rows. */
+    static double[][] baseline(Path path, List<String> headersOut) throws IOException {
+        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String headerLine = br.readLine();
+            String delim = headerLine.contains(";") ? ";" : ",";
+            for (String h : headerLine.trim().split("\\s*" + Pattern.quote(delim) + "\\s*")) headersOut.add(h);
+            List<double[]> rows = new ArrayList<>();
+            String line;
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                String[] parts = line.split(Pattern.quote(delim));
+                double[] row = new double[parts.length];
+                boolean ok = true;
+                for (int i=0; i<parts.length; i++) {
+                    String s = parts[i].trim().replace("\"", "");
+                    row[i] = s.isEmpty() || s.equalsIgnoreCase("NA") ? Double.NaN : Double.parseDouble(s);
+                    if (Double.isNaN(row[i])) ok = false;
+                }
+                if (ok) rows.add(row);
+            }
+            return rows.toArray(new double[0][]);
+        }
+    }
+
+    /** A messy CSV: quoted and padded fields, NA and empty cells, blank lines, CRLF, exponents. */
+    Path messyCsv(String name, char delim, int rows, long seed) throws IOException {
+        Random r = new Random(seed);
+        StringBuilder sb = new StringBuilder("a" + delim + " b " + delim + "\"c\"\r\n");
+        for (int i=0; i<rows; i++) {
+            for (int j=0; j<3; j++) {
+                if (j > 0) sb.append(delim);
+                int kind = r.nextInt(20);
+                double v = r.nextGaussian() * Math.pow(10, r.nextInt(12) - 6);
+                if (kind == 0) sb.append("NA");
+                else if (kind == 1 && j < 2) sb.append(""); // a trailing empty cell is a missing column, as with String.split
+                else if (kind == 2) sb.append('"').append(v).append('"');
+                else if (kind == 3) sb.append("  ").append(v).append(' ');
+                else if (kind == 4) sb.append(String.format(Locale.US, "%.3e", v));
+                else if (kind == 5) sb.append((long) (v * 1000));
+                else sb.append(v);
+            }
+            sb.append(i % 7 == 0 ? "\r\n" : "\n");
+            if (i % 50 == 0) sb.append("\n");
+        }
+        Path p = dir.resolve(name);
+        Files.writeString(p, sb.toString(), StandardCharsets.UTF_8);
+        return p;
+    }
+
+    static void assertSameData(double[][] expected, CSVReader.DataFrame df) {
+        assertEquals(expected.length, df.rows());
+        double[][] actual = df.view().toArray();
+        for (int i=0; i<expected.length; i++) assertArrayEquals(expected[i], actual[i], 0.0, "row " + i);
+    }
+
+    @Test
+    void matchesBaselineReader() throws IOException {
+        for (char delim : new char[] { ',', ';' }) {
+            Path csv = messyCsv("m" + (int) delim + ".csv", delim, 2000, delim);
+            List<String> headers = new ArrayList<>();
+            double[][] expected = baseline(csv, headers);
+            CSVReader.DataFrame df = CSVReader.read(csv.toString());
+            assertArrayEquals(headers.toArray(new String[0]), df.headers);
+            assertSameData(expected, df);
+        }
+    }
+
+    @Test
+    void parallelAndStreamingMatchSequential() throws IOException {
+        // Large enough to be cut into several ranges
+        Path csv = messyCsv("big.csv", ',', 200_000, 99);
+        assertTrue(Files.size(csv) > 8 << 20);
+        List<String> headers = new ArrayList<>();
+        double[][] expected = baseline(csv, headers);
+        assertSameData(expected, CSVReader.read(csv.toString()));
+        assertSameData(expected, CSVReader.readParallel(csv.toString()));
+
+        List<double[]> streamed = new ArrayList<>();
+        MappedCSVParser.stream(csv, (row, index) -> {
+            assertEquals(streamed.size(), index);
+            streamed.add(row.clone());
+        });
+        assertEquals(expected.length, streamed.size());
+        for (int i=0; i<expected.length; i++) assertArrayEquals(expected[i], streamed.get(i), 0.0);
+
+        // Shards cover every row exactly once, in order
+        List<double[]> sharded = new ArrayList<>();
+        for (int k=0; k<3; k++) MappedCSVParser.stream(csv, k, 3, (row, index) -> sharded.add(row.clone()));
+        assertEquals(expected.length, sharded.size());
+        for (int i=0; i<expected.length; i++) assertArrayEquals(expected[i], sharded.get(i), 0.0);
+    }
+
+    @Test
+    void reportsColumnCountMismatchWithLineNumber() throws IOException {
+        Path csv = dir.resolve("bad.csv");
+        Files.writeString(csv, "x,y\n1,2\n3,4\n5\n");
+        IOException e = assertThrows(IOException.class, () -> CSVReader.read(csv.toString()));
+        assertEquals("Row 4 has 1 columns, expected 2", e.getMessage());
+    }
+
+    @Test
+    void reportsLineNumberFromALaterChunk() throws IOException {
+        // Blank lines throughout and before the bad row: the number is the file line, not the row index
+        StringBuilder sb = new StringBuilder("x,y\n");
+        int line = 1;
+        for (int i=0; sb.length() < 14 << 20; i++) {
+            sb.append(i).append(',').append(0.5 * i).append(i % 3 == 0 ? "\r\n" : "\n");
+            line++;
+            if (i % 100 == 0) {
+                sb.append('\n');
+                line++;
+            }
+        }
+        sb.append("\n\n");
+        line += 3;
+        sb.append("5\n7,8\n");
+        Path csv = dir.resolve("bad-big.csv");
+        Files.writeString(csv, sb.toString(), StandardCharsets.UTF_8);
+
+        String expected = "Row " + line + " has 1 columns, expected 2";
+        IOException e = assertThrows(IOException.class, () -> CSVReader.readParallel(csv.toString()));
+        assertEquals(expected, e.getMessage());
+        e = assertThrows(IOException.class, () -> CSVReader.read(csv.toString()));
+        assertEquals(expected, e.getMessage());
+        e = assertThrows(IOException.class, () -> MappedCSVParser.stream(csv, (row, index) -> { }));
+        assertEquals(expected, e.getMessage());
+    }
+}
@@ -0,0 +1,45 @@
+package edu.eafit.oop.lr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class MiniBatchSgdTest {
+
+    static LinearRegression sgd(int batch, boolean shuffle) {
+        LinearRegression model = new LinearRegression(LinearRegression.TrainingMethod.MINI_BATCH_SGD);
+        model.setBatchSize(batch);
+        model.setShuffle(shuffle);
+        model.setLearningRate(0.1);
+        model.setEpochs(3000);
+        return model;
+    }
+
+    @Test
+    void batchLargerThanRowsWithShuffle() {
+        double[][] X = SolverAgreementTest.features(20, 11);
+        LinearRegression model = sgd(64, true);
+        model.fit(X, SolverAgreementTest.target(X));
+        SolverAgreementTest.assertRecovers(model, 1e-6);
+    }
+
+    @Test
+    void batchEqualToRowsWithoutShuffle() {
+        double[][] X = SolverAgreementTest.features(20, 12);
+        LinearRegression model = sgd(20, false);
+        model.fit(X, SolverAgreementTest.target(X));
+        SolverAgreementTest.assertRecovers(model, 1e-6);
+    }
+
+    @Test
+    void smallBatchesConverge() {
+        double[][] X = SolverAgreementTest.features(200, 13);
+        LinearRegression model = sgd(16, true);
+        model.setLearningRate(0.05);
+        model.setEpochs(200);
+        model.fit(X, SolverAgreementTest.target(X));
+        assertEquals(SolverAgreementTest.BIAS, model.getBias(), 1e-4);
+        assertArrayEquals(SolverAgreementTest.W, model.getWeights(), 1e-4);
+    }
+}
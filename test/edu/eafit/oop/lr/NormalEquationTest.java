@@ -0,0 +1,89 @@
+package edu.eafit.oop.lr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class NormalEquationTest {
+
+    /** View that refuses to be materialized, to prove the normal path reads it in blocks only. */
+    static DataView streamingOnly(DataView base) {
+        return new DataView() {
+            @Override public int rows() { return base.rows(); }
+            @Override public int cols() { return base.cols(); }
+            @Override public double get(int i, int j) { return base.get(i, j); }
+            @Override public void copyRow(int i, double[] dst, int off) { base.copyRow(i, dst, off); }
+            @Override public double[][] toArray() { throw new UnsupportedOperationException("materialized"); }
+        };
+    }
+
+    @Test
+    void collinearFeaturesFallBackWithoutMaterializing() {
+        // x2 = 2 x1: X^T X is singular, so Cholesky is rejected and the QR fallback runs
+        int m = 40;
+        double[][] X = new double[m][2];
+        double[] y = new double[m];
+        for (int i=0; i<m; i++) {
+            X[i][0] = i - 20;
+            X[i][1] = 2 * X[i][0];
+            y[i] = 1.0 + 5 * X[i][0];
+        }
+        LinearRegression model = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        model.fit(streamingOnly(DataView.of(X)), y);
+        double[] w = model.getWeights();
+        assertTrue(Double.isFinite(w[0]) && Double.isFinite(w[1]));
+        // Any split of the slope between the two columns is a solution; the fit must be exact
+        assertEquals(5.0, w[0] + 2 * w[1], 1e-6);
+        assertEquals(1.0, model.getBias(), 1e-6);
+    }
+
+    @Test
+    void accumulatorAndViewGiveTheSameModel() {
+        double[][] X = SolverAgreementTest.features(30, 7);
+        double[] y = SolverAgreementTest.target(X);
+        LinearRegression a = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        LinearRegression b = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        a.fit(DataView.of(X), y);
+        b.fit(GramAccumulator.of(X, y));
+        assertEquals(a.getBias(), b.getBias(), 0.0);
+        for (int j=0; j<X[0].length; j++) assertEquals(a.getWeights()[j], b.getWeights()[j], 0.0);
+    }
+
+    @Test
+    void nearlyCollinearFeaturesStayAccurate() {
+        // x2 = x1 + 1e-6 noise: cond(Xb^T Xb) ~ 1e13, Cholesky is rejected and QR on the rows must recover w
+        int m = 500;
+        Random r = new Random(8);
+        double[][] X = new double[m][2];
+        double[] y = new double[m];
+        for (int i=0; i<m; i++) {
+            X[i][0] = r.nextGaussian();
+            X[i][1] = X[i][0] + 1e-6 * r.nextGaussian();
+            y[i] = 1.0 + X[i][0] + X[i][1];
+        }
+        LinearRegression model = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        model.fit(streamingOnly(DataView.of(X)), y);
+        assertArrayEquals(new double[] { 1.0, 1.0 }, model.getWeights(), 1e-8);
+        assertEquals(1.0, model.getBias(), 1e-8);
+    }
+
+    @Test
+    void streamedQrMatchesDenseQr() {
+        // Several 256-row blocks, with a ridge row block on top
+        double[][] X = SolverAgreementTest.features(700, 9);
+        double[] y = SolverAgreementTest.target(X);
+        PartialFitTest.addNoise(y, 10);
+        double[][] Xb = new double[X.length][];
+        for (int i=0; i<X.length; i++) {
+            Xb[i] = new double[X[i].length + 1];
+            Xb[i][0] = 1.0;
+            System.arraycopy(X[i], 0, Xb[i], 1, X[i].length);
+        }
+        for (double lambda : new double[] { 0, 2.5 }) {
+            assertArrayEquals(LinearSolver.leastSquaresQR(Xb, y, lambda), LinearSolver.leastSquaresQR(DataView.of(X), y, lambda), 1e-12);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package edu.eafit.oop.lr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Off-heap rows (native and file-backed) against the heap frame of the same CSV, across chunk boundaries. */
+class OffHeapDatasetTest {
+
+    static final int COLS = 40, ROWS = 60_000; // 26214 rows per chunk: three chunks
+
+    @TempDir
+    Path dir;
+
+    Path csv() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int j=0; j<COLS; j++) sb.append(j == 0 ? "" : ",").append("c").append(j);
+        sb.append('\n');
+        for (int i=0; i<ROWS; i++) {
+            for (int j=0; j<COLS; j++) sb.append(j == 0 ? "" : ",").append((i * 31 + j * 7) % 1000);
+            sb.append('\n');
+        }
+        Path p = dir.resolve("wide.csv");
+        Files.writeString(p, sb.toString(), StandardCharsets.UTF_8);
+        return p;
+    }
+
+    static void assertSameRows(DataView expected, DataView actual, int from, int to) {
+        int n = expected.cols();
+        assertEquals(n, actual.cols());
+        double[] a = new double[(to - from) * n], b = new double[(to - from) * n];
+        expected.copyRows(from, to, a);
+        actual.copyRows(from, to, b);
+        assertArrayEquals(a, b, 0.0, "rows " + from + ".." + to);
+        double[] ra = new double[n + 2], rb = new double[n + 2];
+        for (int i=from; i<to; i++) {
+            expected.copyRow(i, ra, 2);
+            actual.copyRow(i, rb, 2);
+            assertArrayEquals(ra, rb, 0.0, "row " + i);
+        }
+    }
+
+    @Test
+    void matchesTheCsvFrameAcrossChunks() throws IOException {
+        Path csv = csv(), backing = dir.resolve("rows.bin");
+        CSVReader.DataFrame df = CSVReader.read(csv.toString());
+        int perChunk = OffHeapDataset.CHUNK_DOUBLES / COLS;
+        for (Path file : new Path[] { null, backing }) {
+            try (OffHeapDataset ds = OffHeapDataset.readCsv(csv, file)) {
+                assertEquals(file != null, ds.isFileBacked());
+                assertArrayEquals(df.headers, ds.headers);
+                assertEquals(ROWS, ds.rows());
+                assertEquals(3L * perChunk * COLS * 8, ds.reservedBytes());
+
+                int[] cols = { 5, 1, 2, 39 };
+                DataView[][] views = {
+                    { df.view(), ds.view() },                  // whole rows: bulk copies per chunk
+                    { df.featureView(3), ds.featureView(3) },  // two runs of columns
+                    { df.view(cols), ds.view(cols) },
+                };
+                for (DataView[] v : views) {
+                    // Ranges inside a chunk, ending on a boundary, and spanning one or two boundaries
+                    assertSameRows(v[0], v[1], 0, 10);
+                    assertSameRows(v[0], v[1], perChunk - 10, perChunk);
+                    assertSameRows(v[0], v[1], perChunk - 3, perChunk + 4);
+                    assertSameRows(v[0], v[1], perChunk - 1, 2 * perChunk + 2);
+                    assertSameRows(v[0], v[1], ROWS - 7, ROWS);
+                }
+                for (int j : cols) assertArrayEquals(df.columnAsVector(j), ds.column(j), 0.0);
+                assertEquals(df.get(2 * perChunk, 17), ds.get(2 * perChunk, 17), 0.0);
+            }
+            if (file != null) assertFalse(Files.exists(file), "backing file left behind");
+        }
+    }
+
+    @Test
+    void readsFailAfterClose() throws IOException {
+        OffHeapDataset ds = OffHeapDataset.allocate(new String[] { "a", "b", "c" });
+        for (int i=0; i<5; i++) ds.addRow(new double[] { i, 2 * i, 3 * i });
+        DataView all = ds.view(), some = ds.featureView(1);
+        assertEquals(8.0, ds.get(4, 1), 0.0);
+        ds.close();
+        ds.close(); // a second close is a no-op
+
+        double[] dst = new double[15];
+        assertThrows(IllegalStateException.class, () -> ds.get(0, 0));
+        assertThrows(IllegalStateException.class, () -> ds.addRow(new double[] { 1, 2, 3 }));
+        assertThrows(IllegalStateException.class, () -> all.copyRows(0, 5, dst));
+        assertThrows(IllegalStateException.class, () -> all.copyRow(0, dst, 0));
+        assertThrows(IllegalStateException.class, () -> some.copyRows(0, 5, dst));
+        assertThrows(IllegalStateException.class, () -> ds.column(0));
+    }
+
+    @Test
+    void backingFileIsDeletedOnCloseAndOnFailure() throws IOException {
+        Path file = dir.resolve("scratch.bin");
+        OffHeapDataset ds = OffHeapDataset.create(new String[] { "x", "y" }, file);
+        ds.addRow(new double[] { 1, 2 });
+        assertTrue(Files.exists(file));
+        ds.close();
+        assertFalse(Files.exists(file));
+
+        // A parse error part way through releases the rows read so far and the file
+        Path bad = dir.resolve("bad.csv");
+        Files.writeString(bad, "x,y\n1,2\n3,4\n5\n");
+        IOException e = assertThrows(IOException.class, () -> OffHeapDataset.readCsv(bad, file));
+        assertEquals("Row 4 has 1 columns, expected 2", e.getMessage());
+        assertFalse(Files.exists(file));
+    }
+}
@@ -0,0 +1,111 @@
+package edu.eafit.oop.lr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/** Recursive least squares against the batch normal equation on the same rows. */
+class PartialFitTest {
+
+    static void addNoise(double[] y, long seed) {
+        Random r = new Random(seed);
+        for (int i=0; i<y.length; i++) y[i] += 0.3 * r.nextGaussian();
+    }
+
+    static void assertSameModel(LinearRegression expected, LinearRegression actual, double tol) {
+        assertEquals(expected.getBias(), actual.getBias(), tol);
+        double[] a = expected.getWeights(), b = actual.getWeights();
+        assertEquals(a.length, b.length);
+        for (int j=0; j<a.length; j++) assertEquals(a[j], b[j], tol, "weight " + j);
+    }
+
+    @Test
+    void incrementalMatchesBatchRidge() {
+        double[][] X = SolverAgreementTest.features(300, 21);
+        double[] y = SolverAgreementTest.target(X);
+        addNoise(y, 22);
+        double ridge = 0.5;
+
+        LinearRegression batch = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        batch.setRidge(ridge);
+        batch.fit(X, y);
+
+        LinearRegression rls = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        rls.setRidge(ridge);
+        for (int from=0; from<X.length; from+=7) {
+            int to = Math.min(X.length, from + 7);
+            rls.partialFit(Arrays.copyOfRange(X, from, to), Arrays.copyOfRange(y, from, to));
+        }
+        assertSameModel(batch, rls, 1e-9);
+    }
+
+    @Test
+    void forgettingTracksARegimeChange() {
+        double[][] X = SolverAgreementTest.features(2000, 23);
+        double[] y = new double[X.length];
+        for (int i=0; i<X.length; i++) {
+            // slope of the first feature flips halfway through the stream
+            double w0 = i < 1000 ? 2.0 : -4.0;
+            y[i] = 1.0 + w0 * X[i][0] - X[i][1] + 0.5 * X[i][2];
+        }
+        LinearRegression rls = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        rls.setRidge(1e-3);
+        rls.setForgettingFactor(0.98);
+        rls.partialFit(X, y);
+        assertEquals(-4.0, rls.getWeights()[0], 1e-6);
+        assertEquals(1.0, rls.getBias(), 1e-6);
+    }
+
+    @Test
+    void fitThenPartialFitMatchesOneFitOnAllRows() {
+        double[][] X = SolverAgreementTest.features(400, 24);
+        double[] y = SolverAgreementTest.target(X);
+        addNoise(y, 25);
+        double[][] history = Arrays.copyOfRange(X, 0, 250), fresh = Arrays.copyOfRange(X, 250, 400);
+        double[] yHistory = Arrays.copyOfRange(y, 0, 250), yFresh = Arrays.copyOfRange(y, 250, 400);
+
+        for (double ridge : new double[] { 0.0, 0.5 }) {
+            LinearRegression batch = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+            batch.setRidge(ridge);
+            batch.fit(X, y);
+
+            LinearRegression model = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+            model.setRidge(ridge);
+            model.fit(history, yHistory);
+            model.partialFit(fresh, yFresh);
+            assertSameModel(batch, model, 1e-9);
+        }
+
+        // Trained on scaled rows and folded: the new rows come in raw, the ridge stays in the scaled space
+        StandardScaler scaler = new StandardScaler();
+        scaler.fit(history);
+        LinearRegression batch = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        batch.setRidge(0.5);
+        batch.fit(scaler.transform(X), y);
+        batch.foldScaling(scaler);
+
+        LinearRegression model = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        model.setRidge(0.5);
+        model.fit(scaler.transform(history), yHistory);
+        model.foldScaling(scaler);
+        model.partialFit(fresh, yFresh);
+        assertSameModel(batch, model, 1e-9);
+    }
+
+    @Test
+    void iterativeFitStartsPartialFitOver() {
+        double[][] X = SolverAgreementTest.features(50, 26);
+        double[] y = SolverAgreementTest.target(X);
+        LinearRegression model = new LinearRegression(LinearRegression.TrainingMethod.GRADIENT_DESCENT);
+        model.setRidge(0.1);
+        model.partialFit(X, y);
+        model.fit(new double[][] { {1, 2}, {3, 4}, {5, 7} }, new double[] { 1, 2, 3 });
+        // Gradient descent leaves no P: the 3-feature state is gone and the next partialFit starts over
+        model.partialFit(new double[][] { {1, 1} }, new double[] { 1 });
+        assertEquals(2, model.getWeights().length);
+        assertThrows(IllegalArgumentException.class, () -> model.partialFit(new double[][] { {1, 2, 3} }, new double[] { 1 }));
+    }
+}
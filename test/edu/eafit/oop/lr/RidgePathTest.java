@@ -0,0 +1,41 @@
+package edu.eafit.oop.lr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class RidgePathTest {
+
+    @Test
+    void leaveOneOutMatchesRefitting() {
+        double[][] X = SolverAgreementTest.features(40, 51);
+        double[] y = SolverAgreementTest.target(X);
+        PartialFitTest.addNoise(y, 52);
+        RidgePath path = RidgePath.fit(X, y);
+        for (double lambda : new double[] { 0, 0.5, 10 }) {
+            double s = 0;
+            for (int i=0; i<X.length; i++) {
+                double[][] Xi = new double[X.length - 1][];
+                double[] yi = new double[X.length - 1];
+                for (int r=0, t=0; r<X.length; r++) if (r != i) { Xi[t] = X[r]; yi[t++] = y[r]; }
+                double[] theta = RidgePath.fit(Xi, yi).coefficients(lambda);
+                double e = y[i] - theta[0];
+                for (int j=0; j<X[i].length; j++) e -= theta[j+1] * X[i][j];
+                s += e * e;
+            }
+            assertEquals(s / X.length, path.loo(lambda), 1e-10);
+        }
+    }
+
+    @Test
+    void statisticsOnlyPathHasCoefficientsButNoLoo() {
+        double[][] X = SolverAgreementTest.features(60, 53);
+        double[] y = SolverAgreementTest.target(X);
+        RidgePath rows = RidgePath.fit(X, y), stats = RidgePath.of(GramAccumulator.of(X, y));
+        assertArrayEquals(rows.coefficients(1.0), stats.coefficients(1.0), 1e-9);
+        assertEquals(rows.gcv(1.0), stats.gcv(1.0), 1e-9);
+        assertThrows(IllegalStateException.class, () -> stats.loo(1.0));
+    }
+}
@@ -0,0 +1,242 @@
+package edu.eafit.oop.lr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ScoringServerTest {
+
+    @TempDir
+    Path dir;
+
+    static double[][] parse(String json, boolean expectSingle) {
+        boolean[] single = new boolean[1];
+        double[][] X = ScoringServer.parseRows(json, single);
+        assertEquals(expectSingle, single[0], json);
+        return X;
+    }
+
+    @Test
+    void parsesRowsInEveryShape() {
+        assertArrayEquals(new double[][] { {1, -2.5, 3e2} }, parse(" [1, -2.5 ,3e2]\n", true));
+        assertArrayEquals(new double[][] { {1, 2}, {3, 4} }, parse("[[1,2],[ 3 , 4 ]]", false));
+        assertArrayEquals(new double[][] { {1, 2}, {3, 4} }, parse("{\"rows\": [[1,2],[3,4]]}", false));
+        assertArrayEquals(new double[][] { {5, 6} }, parse("{ \"row\" : [5,6] }", true));
+        assertArrayEquals(new double[][] { {} }, parse("[]", true));
+    }
+
+    @Test
+    void skipsOtherMembersWhateverTheyHold() {
+        // The key text inside a string value or a nested object is not the rows member
+        String json = "{\"x\":1,\"note\":\"the \\\"rows\\\": [[9]]\",\"meta\":{\"rows\":[[8]],\"ok\":[true,null]},"
+                + "\"rows\":[[1,2]],\"id\":\"a}b\"}";
+        assertArrayEquals(new double[][] { {1, 2} }, parse(json, false));
+        assertArrayEquals(new double[][] { {7} }, parse("{\"flag\":false,\"n\":-1.5e3,\"rows\":[7]}", true));
+    }
+
+    @Test
+    void rejectsMalformedBodies() {
+        for (String bad : new String[] {
+                "", "{}", "{\"x\":\"rows\"}", "{\"rows\" [1]}", "{\"rows\":[1]", "{\"rows\":[1],\"rows\":[2]}",
+                "[1,2", "[1,,2]", "[[1],2]", "[1] [2]", "{\"rows\":[1]} x", "[\"1\"]", "{\"a\":\"unterminated}",
+        }) {
+            assertThrows(IllegalArgumentException.class, () -> ScoringServer.parseRows(bad, new boolean[1]), bad);
+        }
+    }
+
+    static String post(int port, String body) throws IOException {
+        return request(port, "POST", "/predict", body);
+    }
+
+    /** "status body" of a text request; {@code body} null sends none. */
+    static String request(int port, String method, String path, String body) throws IOException {
+        byte[] b = body == null ? null : body.getBytes(StandardCharsets.UTF_8);
+        return new String(exchange(port, method, path, null, b, new int[1]), StandardCharsets.UTF_8);
+    }
+
+    /** Response bytes prefixed with "status " (text) or, with {@code status} out, the raw body. */
+    static byte[] exchange(int port, String method, String path, String type, byte[] body, int[] status) throws IOException {
+        HttpURLConnection c = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        c.setRequestMethod(method);
+        if (type != null) c.setRequestProperty("Content-Type", type);
+        if (body != null) {
+            c.setDoOutput(true);
+            try (OutputStream out = c.getOutputStream()) {
+                out.write(body);
+            }
+        }
+        status[0] = c.getResponseCode();
+        try (InputStream in = status[0] < 400 ? c.getInputStream() : c.getErrorStream()) {
+            byte[] res = in.readAllBytes();
+            if (type != null) return res;
+            return (status[0] + " " + new String(res, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    static Predictor model(long seed, double shift) {
+        double[][] X = SolverAgreementTest.features(30, seed);
+        double[] y = SolverAgreementTest.target(X);
+        for (int i=0; i<y.length; i++) y[i] += shift;
+        LinearRegression lr = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        lr.fit(X, y);
+        return Predictor.of(lr);
+    }
+
+    /** A numeric member of the /stats JSON. */
+    static double stat(String json, String name) {
+        Matcher m = Pattern.compile("\"" + name + "\":(-?[0-9.]+)").matcher(json);
+        assertTrue(m.find(), name + " in " + json);
+        return Double.parseDouble(m.group(1));
+    }
+
+    @Test
+    void answersJsonRequests() throws IOException {
+        double[][] X = SolverAgreementTest.features(30, 61);
+        LinearRegression lr = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        lr.fit(X, SolverAgreementTest.target(X));
+        Predictor p = Predictor.of(lr);
+        for (long window : new long[] { 0, 200 }) {
+            try (ScoringServer server = new ScoringServer(p, null, 0, window, 64)) {
+                server.start();
+                String one = post(server.port(), "[1,2,3]");
+                assertTrue(one.startsWith("200 {\"prediction\":"), one);
+                double y = Double.parseDouble(one.substring(one.indexOf(':') + 1, one.length() - 1));
+                assertEquals(p.predict(new double[] { 1, 2, 3 }), y, 0.0);
+
+                String many = post(server.port(), "{\"id\":\"\\\"rows\\\"\",\"rows\":[[1,2,3],[0,0,0]]}");
+                assertEquals("200 {\"predictions\":[" + p.predict(new double[] { 1, 2, 3 }) + "," + p.bias() + "]}", many);
+
+                String wrong = post(server.port(), "[[1,2,3],[1,2]]");
+                assertTrue(wrong.startsWith("400 ") && wrong.contains("expected 3 features"), wrong);
+                assertFalse(post(server.port(), "{\"x\":1}").startsWith("200"));
+            }
+        }
+    }
+
+    @Test
+    void answersBinaryRequests() throws IOException {
+        Predictor p = model(61, 0);
+        double[][] rows = { {1, 2, 3}, {0, 0, 0}, {-1.5, 4, 0.25} };
+        for (long window : new long[] { 0, 200 }) {
+            try (ScoringServer server = new ScoringServer(p, null, 0, window, 64)) {
+                server.start();
+                for (int k : new int[] { 1, 3 }) {
+                    ByteBuffer req = ByteBuffer.allocate(8 * 3 * k).order(ByteOrder.LITTLE_ENDIAN);
+                    for (int i=0; i<k; i++) req.asDoubleBuffer().put(i * 3, rows[i]);
+                    int[] status = new int[1];
+                    byte[] res = exchange(server.port(), "POST", "/predict", "application/octet-stream", req.array(), status);
+                    assertEquals(200, status[0]);
+                    assertEquals(8 * k, res.length);
+                    // Several rows go through the buffer kernel, whose summation order may differ
+                    for (int i=0; i<k; i++) {
+                        assertEquals(p.predict(rows[i]), ByteBuffer.wrap(res).order(ByteOrder.LITTLE_ENDIAN).getDouble(8 * i), 1e-12);
+                    }
+                }
+                // Not a whole number of rows
+                int[] status = new int[1];
+                exchange(server.port(), "POST", "/predict", "application/octet-stream", new byte[8 * 4], status);
+                assertEquals(400, status[0]);
+            }
+        }
+    }
+
+    @Test
+    void swapsTheModel() throws IOException {
+        Predictor first = model(61, 0), second = model(62, 10), third = model(63, -5);
+        Path file = dir.resolve("model.txt");
+        third.save(file);
+        try (ScoringServer server = new ScoringServer(first, file, 0, 200, 64)) {
+            server.start();
+            int port = server.port();
+            assertEquals("200 " + first.toText(), request(port, "GET", "/model", null));
+
+            assertEquals("200 {\"version\":2,\"features\":3}", request(port, "PUT", "/model", second.toText()));
+            assertEquals("200 {\"prediction\":" + second.predict(new double[] { 1, 2, 3 }) + "}", post(port, "[1,2,3]"));
+
+            // POST reloads the file the server was started with
+            assertEquals("200 {\"version\":3,\"features\":3}", request(port, "POST", "/model", ""));
+            assertEquals("200 {\"prediction\":" + third.predict(new double[] { 1, 2, 3 }) + "}", post(port, "[1,2,3]"));
+
+            assertTrue(request(port, "PUT", "/model", "not a model").startsWith("400 "));
+            assertEquals("200 " + third.toText(), request(port, "GET", "/model", null));
+        }
+        try (ScoringServer server = new ScoringServer(first, null, 0, 0, 64)) {
+            server.start();
+            assertTrue(request(server.port(), "POST", "/model", "").startsWith("400 "));
+        }
+    }
+
+    @Test
+    void coalescesConcurrentRowsAndReportsStats() throws Exception {
+        Predictor p = model(61, 0);
+        // A 5 ms window with 8 clients in a closed loop: rows from different requests share batches
+        try (ScoringServer server = new ScoringServer(p, null, 0, 5_000, 64)) {
+            server.start();
+            String url = "http://localhost:" + server.port();
+            String report = LoadClient.run(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(), url, 3, 8, 200, false);
+            assertTrue(report.startsWith("200 requests (0 failed)"), report);
+            String stats = request(server.port(), "GET", "/stats?reset=1", null);
+            assertTrue(stats.startsWith("200 "), stats);
+            assertEquals(200, stat(stats, "requests"));
+            assertEquals(200, stat(stats, "rows"));
+            assertEquals(0, stat(stats, "errors"));
+            double batches = stat(stats, "batches");
+            assertTrue(batches > 0 && batches < 200, stats);
+            assertEquals(200 / batches, stat(stats, "meanBatchRows"), 0.01);
+
+            report = LoadClient.run(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(), url, 3, 2, 20, true);
+            assertTrue(report.startsWith("20 requests (0 failed)"), report);
+            // Counted since the reset
+            stats = request(server.port(), "GET", "/stats", null);
+            assertEquals(20, stat(stats, "requests"));
+        }
+    }
+
+    @Test
+    void batchesQueuedRowsTogether() throws Exception {
+        Predictor p = model(61, 0);
+        double[][] X = SolverAgreementTest.features(100, 64);
+        try (MicroBatcher b = new MicroBatcher(new AtomicReference<>(p), TimeUnit.MILLISECONDS.toNanos(500), 64)) {
+            List<CompletableFuture<Double>> results = new ArrayList<>();
+            for (double[] row : X) results.add(b.submit(row));
+            for (int i=0; i<X.length; i++) assertEquals(p.predict(X[i]), results.get(i).get(5, TimeUnit.SECONDS), 0.0);
+            assertEquals(100, b.batchedRows.sum());
+            assertTrue(b.batches.sum() < 100, "batches " + b.batches.sum());
+        }
+    }
+
+    @Test
+    void closeFailsPendingRows() throws Exception {
+        // A long window keeps the first row in the worker's hands, off the queue, when close() comes
+        MicroBatcher b = new MicroBatcher(new AtomicReference<>(model(61, 0)), TimeUnit.SECONDS.toNanos(60), 64);
+        CompletableFuture<Double> inFlight = b.submit(new double[] { 1, 2, 3 });
+        Thread.sleep(50);
+        b.close();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> inFlight.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException, String.valueOf(e.getCause()));
+        assertThrows(ExecutionException.class, () -> b.submit(new double[] { 1, 2, 3 }).get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,224 @@
+package edu.eafit.oop.lr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Sharded training (workers on threads, real sockets) against the same fit in one process. */
+class ShardCoordinatorTest {
+
+    static final int CHUNK = 500;
+
+    @TempDir
+    Path dir;
+
+    interface Job<T> {
+        T run(ShardCoordinator coord) throws IOException;
+    }
+
+    /** Runs {@code job} on a coordinator whose {@code shards} workers serve {@code file} from this JVM. */
+    static <T> T withShards(Path file, int target, int shards, Job<T> job) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(shards);
+        try (ServerSocket server = new ServerSocket(0, shards, InetAddress.getLoopbackAddress())) {
+            String host = server.getInetAddress().getHostAddress();
+            List<Future<?>> workers = new ArrayList<>();
+            for (int k=0; k<shards; k++) {
+                workers.add(pool.submit(() -> {
+                    ShardWorker.run(host, server.getLocalPort());
+                    return null;
+                }));
+            }
+            T result;
+            try (ShardCoordinator coord = ShardCoordinator.accept(server, shards, file.toString(), target, CHUNK, 10_000)) {
+                result = job.run(coord);
+            }
+            for (Future<?> w : workers) w.get(10, TimeUnit.SECONDS);
+            return result;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** As {@link #withShards}, but each worker is a separate JVM started by {@link ShardWorker#spawn}. */
+    static <T> T withProcesses(Path file, int target, int shards, Job<T> job) throws Exception {
+        List<Process> workers = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(0, shards, InetAddress.getLoopbackAddress())) {
+            for (int k=0; k<shards; k++) workers.add(ShardWorker.spawn(server.getLocalPort()));
+            T result;
+            try (ShardCoordinator coord = ShardCoordinator.accept(server, shards, file.toString(), target, CHUNK, 60_000)) {
+                result = job.run(coord);
+            }
+            // BYE ends each worker normally
+            for (Process w : workers) {
+                assertTrue(w.waitFor(30, TimeUnit.SECONDS), "worker did not exit");
+                assertEquals(0, w.exitValue());
+            }
+            return result;
+        } finally {
+            for (Process w : workers) w.destroyForcibly();
+        }
+    }
+
+    /** y is the last of the 4 columns; {@code offset} is added to x0. */
+    Path csv(int rows, double offset) throws IOException {
+        return csv(rows, offset, 0);
+    }
+
+    /** As {@link #csv(int, double)}, with {@code yOffset} added to y. */
+    Path csv(int rows, double offset, double yOffset) throws IOException {
+        double[][] X = SolverAgreementTest.features(rows, 71);
+        double[] y = SolverAgreementTest.target(X);
+        PartialFitTest.addNoise(y, 72);
+        StringBuilder sb = new StringBuilder("a,b,c,y\n");
+        for (int i=0; i<rows; i++) {
+            sb.append(String.format(Locale.US, "%.17g,%.17g,%.17g,%.17g%n", X[i][0] + offset, X[i][1], X[i][2], y[i] + yOffset));
+        }
+        Path p = dir.resolve("d.csv");
+        Files.writeString(p, sb.toString());
+        return p;
+    }
+
+    static void assertSameModel(LinearRegression expected, LinearRegression actual, double tol) {
+        assertEquals(expected.getBias(), actual.getBias(), tol);
+        assertArrayEquals(expected.getWeights(), actual.getWeights(), tol);
+    }
+
+    static double[] theta(LinearRegression model) {
+        double[] w = model.getWeights(), t = new double[w.length + 1];
+        t[0] = model.getBias();
+        System.arraycopy(w, 0, t, 1, w.length);
+        return t;
+    }
+
+    @Test
+    void normalEquationAndScoresMatchOneProcess() throws Exception {
+        Path file = csv(3001, 0);
+        LinearRegression single = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        single.fit(CSVBlockSource.open(file.toString(), 3, CHUNK));
+        double[] expected = new double[5];
+        double[] th = theta(single);
+        CSVBlockSource.open(file.toString(), 3, CHUNK).forEach((x, y, rows) -> LinearRegression.addErrorSums(x, y, 3, rows, th, expected));
+
+        for (int shards=1; shards<=3; shards++) {
+            LinearRegression model = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+            double[] sums = withShards(file, 3, shards, coord -> {
+                coord.fit(model);
+                return coord.evaluate(theta(model));
+            });
+            assertSameModel(single, model, 1e-8);
+            assertEquals(expected[4], sums[4], 0.0);
+            for (int k=0; k<4; k++) assertEquals(expected[k], sums[k], 1e-9 * Math.abs(expected[k]), "sum " + k);
+        }
+    }
+
+    @Test
+    void scoresKeepTheirDigitsForALargeTargetMean() throws Exception {
+        // y ~ 1e9 + N(3, 2.3): sum y^2 - (sum y)^2 / m has no digits of the variance left
+        Path file = csv(3001, 0, 1e9);
+        LinearRegression model = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        double[] sums = withShards(file, 3, 3, coord -> {
+            coord.fit(model);
+            return coord.evaluate(theta(model));
+        });
+        CSVReader.DataFrame df = CSVReader.read(file.toString());
+        double[] y = df.columnAsVector(3);
+        double[] yhat = model.predict(df.featureView(3));
+        double[] scores = LinearRegression.scores(sums);
+        assertEquals(VectorStats.r2(y, yhat), scores[0], 1e-9);
+        assertEquals(VectorStats.mse(y, yhat), scores[1], 1e-9);
+        assertEquals(VectorStats.mean(y), sums[2], 1e-6);
+    }
+
+    @Test
+    void scaledGradientDescentMatchesOneProcess() throws Exception {
+        Path file = csv(2000, 1000);
+        StandardScaler scaler = new StandardScaler();
+        scaler.fit(CSVBlockSource.open(file.toString(), 3, CHUNK));
+        LinearRegression single = new LinearRegression(LinearRegression.TrainingMethod.GRADIENT_DESCENT);
+        single.setLearningRate(0.1);
+        single.setEpochs(200);
+        single.fit(scaler.transform(CSVBlockSource.open(file.toString(), 3, CHUNK)));
+
+        LinearRegression model = new LinearRegression(LinearRegression.TrainingMethod.GRADIENT_DESCENT);
+        model.setLearningRate(0.1);
+        model.setEpochs(200);
+        StandardScaler sharded = withShards(file, 3, 2, coord -> {
+            StandardScaler s = coord.fitScaler();
+            coord.fit(model);
+            return s;
+        });
+        assertArrayEquals(scaler.getMeans(), sharded.getMeans(), 1e-9);
+        assertArrayEquals(scaler.getStds(), sharded.getStds(), 1e-12);
+        assertSameModel(single, model, 1e-9);
+    }
+
+    @Test
+    void workerProcessesMatchOneProcess() throws Exception {
+        Path file = csv(2500, 1000);
+        StandardScaler scaler = new StandardScaler();
+        scaler.fit(CSVBlockSource.open(file.toString(), 3, CHUNK));
+        LinearRegression single = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        single.fit(scaler.transform(CSVBlockSource.open(file.toString(), 3, CHUNK)));
+
+        LinearRegression model = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        StandardScaler sharded = withProcesses(file, 3, 2, coord -> {
+            StandardScaler s = coord.fitScaler();
+            coord.fit(model);
+            return s;
+        });
+        assertArrayEquals(scaler.getMeans(), sharded.getMeans(), 1e-9);
+        assertArrayEquals(scaler.getStds(), sharded.getStds(), 1e-12);
+        assertSameModel(single, model, 1e-9);
+    }
+
+    @Test
+    void refittingTheScalerDoesNotStack() throws Exception {
+        Path file = csv(1200, 1000);
+        LinearRegression once = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        LinearRegression twice = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        StandardScaler first = withShards(file, 3, 2, coord -> {
+            StandardScaler s = coord.fitScaler();
+            coord.fit(once);
+            return s;
+        });
+        StandardScaler[] second = withShards(file, 3, 2, coord -> new StandardScaler[] { coord.fitScaler(), coord.fitScaler() });
+        withShards(file, 3, 2, coord -> {
+            coord.fitScaler();
+            coord.fitScaler();
+            coord.fit(twice);
+            return null;
+        });
+        // The second fit sees the raw rows again, not the already standardized ones
+        for (StandardScaler s : second) {
+            assertArrayEquals(first.getMeans(), s.getMeans(), 0.0);
+            assertArrayEquals(first.getStds(), s.getStds(), 0.0);
+        }
+        assertSameModel(once, twice, 0.0);
+    }
+
+    @Test
+    void binaryDatasetShardsMatchTheCsv() throws Exception {
+        Path file = csv(1500, 0), bin = dir.resolve("d.lrc");
+        BinaryDataset.write(CSVReader.read(file.toString()), bin, "");
+        LinearRegression fromCsv = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        LinearRegression fromBin = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        withShards(file, 3, 2, coord -> { coord.fit(fromCsv); return null; });
+        withShards(bin, 3, 3, coord -> { coord.fit(fromBin); return null; });
+        assertSameModel(fromCsv, fromBin, 1e-8);
+    }
+}
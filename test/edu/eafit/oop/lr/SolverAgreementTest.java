@@ -0,0 +1,99 @@
+package edu.eafit.oop.lr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/** Every solver recovers the same coefficients on a small noise-free problem. */
+class SolverAgreementTest {
+
+    static final double BIAS = 3.0;
+    static final double[] W = { 2.0, -1.0, 0.5 };
+
+    /** m rows of N(0,1) features with y = BIAS + W.x exactly. */
+    static double[][] features(int m, long seed) {
+        Random r = new Random(seed);
+        double[][] X = new double[m][W.length];
+        for (int i=0; i<m; i++) for (int j=0; j<W.length; j++) X[i][j] = r.nextGaussian();
+        return X;
+    }
+
+    static double[] target(double[][] X) {
+        double[] y = new double[X.length];
+        for (int i=0; i<X.length; i++) {
+            y[i] = BIAS;
+            for (int j=0; j<W.length; j++) y[i] += W[j] * X[i][j];
+        }
+        return y;
+    }
+
+    static void assertRecovers(LinearRegression model, double tol) {
+        assertEquals(BIAS, model.getBias(), tol);
+        assertArrayEquals(W, model.getWeights(), tol);
+    }
+
+    @Test
+    void normalEquation() {
+        double[][] X = features(50, 1);
+        LinearRegression model = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        model.fit(X, target(X));
+        assertRecovers(model, 1e-8);
+    }
+
+    @Test
+    void householderQR() {
+        double[][] X = features(50, 2);
+        double[][] Xb = new double[X.length][W.length + 1];
+        for (int i=0; i<X.length; i++) {
+            Xb[i][0] = 1.0;
+            System.arraycopy(X[i], 0, Xb[i], 1, W.length);
+        }
+        double[] theta = LinearSolver.leastSquaresQR(Xb, target(X), 0.0);
+        assertEquals(BIAS, theta[0], 1e-10);
+        for (int j=0; j<W.length; j++) assertEquals(W[j], theta[j+1], 1e-10);
+    }
+
+    @Test
+    void conjugateGradient() {
+        double[][] X = features(50, 3);
+        LinearRegression model = new LinearRegression(LinearRegression.TrainingMethod.CONJUGATE_GRADIENT);
+        model.setEpochs(100);
+        model.fit(X, target(X));
+        assertRecovers(model, 1e-6);
+    }
+
+    @Test
+    void gradientDescent() {
+        double[][] X = features(50, 4);
+        LinearRegression model = new LinearRegression(LinearRegression.TrainingMethod.GRADIENT_DESCENT);
+        model.setLearningRate(0.1);
+        model.setEpochs(5000);
+        model.fit(X, target(X));
+        assertRecovers(model, 1e-6);
+    }
+
+    @Test
+    void solversAgreeOnNoisyData() {
+        double[][] X = features(200, 5);
+        double[] y = target(X);
+        Random r = new Random(6);
+        for (int i=0; i<y.length; i++) y[i] += 0.1 * r.nextGaussian();
+        LinearRegression normal = new LinearRegression(LinearRegression.TrainingMethod.NORMAL_EQUATION);
+        LinearRegression cg = new LinearRegression(LinearRegression.TrainingMethod.CONJUGATE_GRADIENT);
+        LinearRegression gd = new LinearRegression(LinearRegression.TrainingMethod.GRADIENT_DESCENT);
+        normal.setRidge(0.0);
+        cg.setRidge(0.0);
+        cg.setEpochs(100);
+        gd.setLearningRate(0.1);
+        gd.setEpochs(5000);
+        normal.fit(X, y);
+        cg.fit(X, y);
+        gd.fit(X, y);
+        assertEquals(normal.getBias(), cg.getBias(), 1e-8);
+        assertArrayEquals(normal.getWeights(), cg.getWeights(), 1e-8);
+        assertEquals(normal.getBias(), gd.getBias(), 1e-6);
+        assertArrayEquals(normal.getWeights(), gd.getWeights(), 1e-6);
+    }
+}
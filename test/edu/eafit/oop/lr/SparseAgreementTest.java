@@ -0,0 +1,152 @@
+package edu.eafit.oop.lr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** The CSR paths (Gram, gradient, predict) against the same rows stored densely, and the libsvm reader. */
+class SparseAgreementTest {
+
+    @TempDir
+    Path dir;
+
+    /** m x n with about {@code density} of the entries nonzero; some rows are all zero. */
+    static double[][] sparse(int m, int n, double density, long seed) {
+        Random r = new Random(seed);
+        double[][] X = new double[m][n];
+        for (int i=0; i<m; i++) {
+            if (i % 17 == 5) continue;
+            for (int j=0; j<n; j++) if (r.nextDouble() < density) X[i][j] = r.nextGaussian();
+        }
+        return X;
+    }
+
+    static double[] target(double[][] X, long seed) {
+        Random r = new Random(seed);
+        double[] y = new double[X.length];
+        for (int i=0; i<X.length; i++) {
+            y[i] = 1.5 + 0.1 * r.nextGaussian();
+            for (int j=0; j<X[i].length; j++) y[i] += (j % 3 - 1) * 0.7 * X[i][j];
+        }
+        return y;
+    }
+
+    /** Every other row, backwards: exercises the row-index path of a selected CSR view. */
+    static int[] someRows(int m) {
+        int[] rows = new int[m / 2];
+        for (int i=0; i<rows.length; i++) rows[i] = m - 1 - 2 * i;
+        return rows;
+    }
+
+    static void assertSameAccumulator(GramAccumulator expected, GramAccumulator actual) {
+        assertEquals(expected.count(), actual.count());
+        assertEquals(expected.sumY(), actual.sumY(), 1e-10);
+        assertEquals(expected.sumYY(), actual.sumYY(), 1e-10);
+        assertArrayEquals(expected.columnSums(), actual.columnSums(), 1e-10);
+        assertArrayEquals(expected.xty(), actual.xty(), 1e-10);
+        assertArrayEquals(expected.gram(), actual.gram(), 1e-10);
+    }
+
+    @Test
+    void gramMatchesDense() {
+        double[][] X = sparse(700, 23, 0.1, 1);
+        double[] y = target(X, 2);
+        CsrMatrix S = CsrMatrix.fromDense(DataView.of(X));
+        DataView D = DataView.of(X);
+        assertSameAccumulator(GramAccumulator.of(D, y), GramAccumulator.of(S, y));
+
+        // A range that does not start at row 0, and a selected view
+        GramAccumulator dense = new GramAccumulator(23), csr = new GramAccumulator(23);
+        dense.addRows(D, y, 101, 650);
+        csr.addRows(S, y, 101, 650);
+        assertSameAccumulator(dense, csr);
+
+        int[] rows = someRows(700);
+        double[] ySel = new double[rows.length];
+        for (int i=0; i<rows.length; i++) ySel[i] = y[rows[i]];
+        assertSameAccumulator(GramAccumulator.of(D.select(rows), ySel), GramAccumulator.of(S.select(rows), ySel));
+    }
+
+    @Test
+    void gradientMatchesDense() {
+        double[][] X = sparse(600, 19, 0.15, 3);
+        double[] y = target(X, 4);
+        CsrMatrix S = CsrMatrix.fromDense(DataView.of(X));
+        GradientEvaluator dense = new GradientEvaluator(DataView.of(X), y, X.length);
+        GradientEvaluator csr = new GradientEvaluator(S, y, X.length);
+        double[] theta = new double[20];
+        Random r = new Random(5);
+        for (int j=0; j<theta.length; j++) theta[j] = r.nextGaussian();
+
+        double[] gd = new double[20], gs = new double[20];
+        assertEquals(dense.compute(null, 0, 600, theta, gd), csr.compute(null, 0, 600, theta, gs), 1e-10);
+        assertArrayEquals(gd, gs, 1e-10);
+        assertEquals(dense.loss(theta), csr.loss(theta), 1e-10);
+
+        // A shuffled mini-batch through an index array
+        int[] idx = someRows(600);
+        assertEquals(dense.compute(idx, 10, 250, theta, gd), csr.compute(idx, 10, 250, theta, gs), 1e-10);
+        assertArrayEquals(gd, gs, 1e-10);
+        assertEquals(dense.lastSse(), csr.lastSse(), 1e-9);
+    }
+
+    @Test
+    void fitAndPredictMatchDense() {
+        double[][] X = sparse(500, 12, 0.3, 6);
+        double[] y = target(X, 7);
+        CsrMatrix S = CsrMatrix.fromDense(DataView.of(X));
+        for (LinearRegression.TrainingMethod method : new LinearRegression.TrainingMethod[] {
+                LinearRegression.TrainingMethod.NORMAL_EQUATION, LinearRegression.TrainingMethod.GRADIENT_DESCENT }) {
+            LinearRegression dense = new LinearRegression(method), csr = new LinearRegression(method);
+            dense.setEpochs(300);
+            csr.setEpochs(300);
+            dense.fit(DataView.of(X), y);
+            csr.fit(S, y);
+            PartialFitTest.assertSameModel(dense, csr, 1e-9);
+
+            assertArrayEquals(dense.predict(X), csr.predict(S), 1e-12);
+            int[] rows = someRows(500);
+            assertArrayEquals(dense.predict(DataView.of(X).select(rows)), csr.predict(S.select(rows)), 1e-12);
+        }
+    }
+
+    @Test
+    void readsLibSvm() throws IOException {
+        Path file = dir.resolve("a.svm");
+        Files.writeString(file,
+            "# header comment\n" +
+            "1.5 qid:3 1:2 4:-1.25   # trailing comment\n" +
+            "\n" +
+            "-2 2:0.5\n" +
+            "   \n" +
+            "0 qid:3\n" +
+            "3e1 1:1 2:1 3:1 4:1\n");
+        SparseReader.Dataset d = SparseReader.readLibSvm(file.toString(), 0);
+        assertNull(d.headers);
+        assertArrayEquals(new double[] { 1.5, -2, 0, 30 }, d.y, 0.0);
+        assertEquals(4, d.X.cols());
+        double[][] expected = { {2, 0, 0, -1.25}, {0, 0.5, 0, 0}, {0, 0, 0, 0}, {1, 1, 1, 1} };
+        for (int i=0; i<4; i++) for (int j=0; j<4; j++) assertEquals(expected[i][j], d.X.get(i, j), 0.0, "(" + i + "," + j + ")");
+        assertEquals(7, d.X.nnz());
+
+        // nFeatures pads the columns so train and test files line up
+        SparseReader.Dataset padded = SparseReader.readLibSvm(file.toString(), 9);
+        assertEquals(9, padded.X.cols());
+        assertEquals(0.0, padded.X.get(0, 8), 0.0);
+        assertEquals(-1.25, padded.X.get(0, 3), 0.0);
+
+        Path bad = dir.resolve("b.svm");
+        Files.writeString(bad, "1 1:1\n2 0:1\n");
+        IOException e = assertThrows(IOException.class, () -> SparseReader.readLibSvm(bad.toString(), 0));
+        assertTrue(e.getMessage().startsWith("Line 2:"), e.getMessage());
+    }
+}
@@ -0,0 +1,64 @@
+package edu.eafit.oop.lr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class StandardScalerTest {
+
+    @Test
+    void fitTransformMatchesFitThenTransform() {
+        // Enough rows for several shards of the fork-join pass
+        double[][] X = SolverAgreementTest.features(20_000, 31);
+        double[][] before = new double[X.length][];
+        for (int i=0; i<X.length; i++) before[i] = X[i].clone();
+
+        StandardScaler a = new StandardScaler();
+        a.fit(X);
+        double[][] expected = a.transform(X);
+        StandardScaler b = new StandardScaler();
+        double[][] actual = b.fitTransform(X);
+
+        assertArrayEquals(a.getMeans(), b.getMeans(), 0.0);
+        assertArrayEquals(a.getStds(), b.getStds(), 0.0);
+        for (int i=0; i<X.length; i++) {
+            assertArrayEquals(expected[i], actual[i], 0.0);
+            assertArrayEquals(before[i], X[i], 0.0, "input row " + i + " was modified");
+        }
+        b.fitTransformInPlace(X);
+        for (int i=0; i<X.length; i++) assertArrayEquals(expected[i], X[i], 0.0);
+    }
+
+    @Test
+    void largeOffsetKeepsTheVariance() {
+        // Values 1e9 + {0, 1, 2}: sum of squares minus m*mean^2 loses every digit here
+        int m = 3000;
+        double[][] X = new double[m][1];
+        for (int i=0; i<m; i++) X[i][0] = 1e9 + i % 3;
+        StandardScaler s = new StandardScaler();
+        s.fit(X);
+        assertEquals(1e9 + 1, s.getMeans()[0], 1e-4);
+        assertEquals(Math.sqrt(2.0 * m / 3 / (m - 1)), s.getStds()[0], 1e-6);
+    }
+
+    @Test
+    void scaleOnlyFollowsTheFlag() {
+        double[][] dense = { {0, 2}, {0, 0}, {4, 0}, {0, 6} };
+        CsrMatrix X = CsrMatrix.fromDense(DataView.of(dense));
+
+        StandardScaler scaleOnly = new StandardScaler();
+        scaleOnly.setWithMean(false);
+        scaleOnly.fit(X);
+        assertTrue(scaleOnly.transformView(X) instanceof CsrMatrix);
+
+        // Zero-mean columns: the means are all 0, but the scaler still centres
+        double[][] centred = { {1, -3}, {-1, 3} };
+        StandardScaler withMean = new StandardScaler();
+        withMean.fit(centred);
+        assertArrayEquals(new double[] { 0, 0 }, withMean.getMeans(), 0.0);
+        assertFalse(withMean.transformView(CsrMatrix.fromDense(DataView.of(centred))) instanceof CsrMatrix);
+    }
+}